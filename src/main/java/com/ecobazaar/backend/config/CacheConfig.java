@@ -1,30 +1,56 @@
 package com.ecobazaar.backend.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Cache Configuration Class
  * 
  * Provides cache manager bean for Spring Boot caching functionality
- * in the EcoBazaarX backend application.
+ * in the EcoBazaarX backend application. Every cache is bounded and its
+ * entries expire, so keys that are never evicted (such as users who stop
+ * visiting) cannot grow memory without limit.
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    @Value("${cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${cache.leaderboard.max-entries:1000}")
+    private long leaderboardMaxEntries;
+
+    @Value("${cache.leaderboard.ttl-seconds:60}")
+    private long leaderboardTtlSeconds;
+
     /**
-     * Configure cache manager using ConcurrentMapCacheManager
+     * Configure cache manager using Caffeine
      * 
      * @return CacheManager instance
      */
     @Bean
     public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-        cacheManager.setCacheNames(java.util.Arrays.asList("settings", "users", "products"));
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds)));
+        cacheManager.setCacheNames(java.util.Arrays.asList("settings", "users", "products", "challengeLeaderboard"));
+        // Leaderboard pages change with every completion elsewhere in the cluster: few entries, short life
+        cacheManager.registerCustomCache("challengeLeaderboard", Caffeine.newBuilder()
+                .maximumSize(leaderboardMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(leaderboardTtlSeconds))
+                .build());
         return cacheManager;
     }
 }
@@ -0,0 +1,73 @@
+package com.ecobazaar.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries {@link RetryOnConflict} methods on optimistic lock failures.
+ *
+ * Ordered ahead of the transaction interceptor so every attempt runs in a
+ * fresh transaction that re-reads the entity. Records per-entity conflicts
+ * and per-method calls, retries and exhausted retries as Micrometer counters
+ * (optimistic.lock.*), so conflict rate = conflicts / calls per hotspot.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class OptimisticRetryAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticRetryAspect.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+
+        // Inside a caller's transaction a retry would reuse its stale persistence context
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        meterRegistry.counter("optimistic.lock.calls", "method", method).increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter("optimistic.lock.conflicts", "entity", entityName(e), "method", method).increment();
+                if (attempt >= retryOnConflict.maxAttempts()) {
+                    meterRegistry.counter("optimistic.lock.exhausted", "method", method).increment();
+                    log.warn("{} still conflicting on {} after {} attempts", method, entityName(e), attempt);
+                    throw e;
+                }
+                meterRegistry.counter("optimistic.lock.retries", "method", method).increment();
+                long backoff = retryOnConflict.backoffMs() << (attempt - 1);
+                Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+            }
+        }
+    }
+
+    private static String entityName(OptimisticLockingFailureException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException) {
+            String className = ((ObjectOptimisticLockingFailureException) e).getPersistentClassName();
+            if (className != null) {
+                return className.substring(className.lastIndexOf('.') + 1);
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecobazaar.backend.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-run a transactional service method when its commit loses an optimistic
+ * lock race (a concurrent update bumped an entity's @Version first).
+ *
+ * Only takes effect when the method starts its own transaction; inside an
+ * existing transaction the conflict propagates to the outermost caller.
+ * See {@link OptimisticRetryAspect}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    /** Total attempts, including the first */
+    int maxAttempts() default 4;
+
+    /** Base backoff before the first retry; doubled for each further retry, with jitter */
+    long backoffMs() default 10;
+}
@@ -0,0 +1,34 @@
+package com.ecobazaar.backend.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Sampled Debug Turbo Filter
+ *
+ * Lets DEBUG events from application loggers through for requests that
+ * {@link RequestCorrelationFilter} marked as sampled, while every other
+ * request keeps the configured (INFO) threshold. Registered in logback-spring.xml.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private String loggerPrefix = "com.ecobazaar";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != Level.DEBUG || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return "true".equals(MDC.get(RequestCorrelationFilter.DEBUG_SAMPLED_KEY))
+                ? FilterReply.ACCEPT
+                : FilterReply.NEUTRAL;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
@@ -4,6 +4,8 @@ import com.ecobazaar.backend.model.AuthRequest;
 import com.ecobazaar.backend.model.AuthResponse;
 import com.ecobazaar.backend.model.UserRegistration;
 import com.ecobazaar.backend.service.AuthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +30,8 @@ import java.util.Map;
 })
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthService authService;
 
@@ -37,15 +41,14 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest authRequest) {
         try {
-            System.out.println("Login attempt for email: " + authRequest.getEmail() + ", role: " + authRequest.getRole());
-            
             AuthResponse response = authService.authenticateUser(
                 authRequest.getEmail(), 
                 authRequest.getPassword(),
                 authRequest.getRole()
             );
             
-            System.out.println("Authentication result: " + response.isSuccess() + " - " + response.getMessage());
+            // Emails stay out of the log; only the outcome is worth keeping
+            log.debug("Login for role {}: {}", authRequest.getRole(), response.isSuccess() ? "succeeded" : "failed");
             
             if (response.isSuccess()) {
                 return ResponseEntity.ok(response);
@@ -53,8 +56,7 @@ public class AuthController {
                 return ResponseEntity.badRequest().body(response);
             }
         } catch (Exception e) {
-            System.err.println("Login error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Login error", e);
             return ResponseEntity.badRequest()
                 .body(new AuthResponse(false, "Login failed: " + e.getMessage(), null, null, null, null));
         }
@@ -1,6 +1,8 @@
 package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.service.CartService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +24,8 @@ import java.util.Map;
 })
 public class CartController {
 
+    private static final Logger log = LoggerFactory.getLogger(CartController.class);
+
     @Autowired
     private CartService cartService;
 
@@ -91,7 +95,7 @@ public class CartController {
             List<Map<String, Object>> cart = cartService.getUserCart(userId);
             return ResponseEntity.ok(cart);
         } catch (Exception e) {
-            System.err.println("Error getting user cart: " + e.getMessage());
+            log.error("Error getting cart for user {}", userId, e);
             return ResponseEntity.internalServerError().body(List.of());
         }
     }
@@ -117,7 +121,7 @@ public class CartController {
             Map<String, Object> summary = cartService.getCartSummary(userId);
             return ResponseEntity.ok(summary);
         } catch (Exception e) {
-            System.err.println("Error getting cart summary: " + e.getMessage());
+            log.error("Error getting cart summary for user {}", userId, e);
             return ResponseEntity.internalServerError().body(Map.of());
         }
     }
@@ -129,7 +133,7 @@ public class CartController {
             List<Map<String, Object>> carts = cartService.getAllCarts();
             return ResponseEntity.ok(carts);
         } catch (Exception e) {
-            System.err.println("Error getting all carts: " + e.getMessage());
+            log.error("Error getting all carts", e);
             return ResponseEntity.internalServerError().body(List.of());
         }
     }
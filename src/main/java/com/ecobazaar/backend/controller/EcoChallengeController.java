@@ -2,12 +2,14 @@ package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.entity.EcoChallenge;
 import com.ecobazaar.backend.entity.UserChallengeProgress;
+import com.ecobazaar.backend.service.ChallengeProgressPipeline;
 import com.ecobazaar.backend.service.EcoChallengeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +26,9 @@ public class EcoChallengeController {
     @Autowired
     private EcoChallengeService ecoChallengeService;
 
+    @Autowired
+    private ChallengeProgressPipeline progressPipeline;
+
     // Challenge Management Endpoints
 
     @PostMapping
@@ -74,6 +79,22 @@ public class EcoChallengeController {
         }
     }
 
+    @GetMapping("/ending-soon")
+    public ResponseEntity<Map<String, Object>> getChallengesEndingSoon(@RequestParam(defaultValue = "7") int days) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<EcoChallenge> challenges = ecoChallengeService.getChallengesEndingSoon(days);
+            response.put("success", true);
+            response.put("challenges", challenges);
+            response.put("count", challenges.size());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to fetch challenges ending soon: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @GetMapping("/{challengeId}")
     public ResponseEntity<Map<String, Object>> getChallengeById(@PathVariable String challengeId) {
         Map<String, Object> response = new HashMap<>();
@@ -229,6 +250,85 @@ public class EcoChallengeController {
         }
     }
 
+    @PostMapping("/progress/events")
+    public ResponseEntity<Map<String, Object>> submitProgressEvents(@RequestBody List<Map<String, Object>> events) {
+        Map<String, Object> response = new HashMap<>();
+        // Validate every event before queueing any, so a bad event cannot leave the request half applied
+        List<String> userIds = new ArrayList<>(events.size());
+        List<String> challengeIds = new ArrayList<>(events.size());
+        List<Integer> deltas = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            Map<String, Object> event = events.get(i);
+            if (event == null) {
+                response.put("success", false);
+                response.put("message", "Event " + i + " is null");
+                return ResponseEntity.badRequest().body(response);
+            }
+            Object userId = event.get("userId");
+            Object challengeId = event.get("challengeId");
+            if ((userId != null && !(userId instanceof String))
+                    || (challengeId != null && !(challengeId instanceof String))) {
+                response.put("success", false);
+                response.put("message", "Event " + i + " has a userId or challengeId that is not a string");
+                return ResponseEntity.badRequest().body(response);
+            }
+            Object delta = event.get("delta");
+            Integer parsed = delta != null ? parseDelta(delta) : null;
+            if (delta != null && parsed == null) {
+                response.put("success", false);
+                response.put("message", "Event " + i + " has a delta that is not a whole number: " + delta);
+                return ResponseEntity.badRequest().body(response);
+            }
+            userIds.add((String) userId);
+            challengeIds.add((String) challengeId);
+            deltas.add(parsed);
+        }
+        try {
+            int accepted = 0;
+            int rejected = 0;
+            for (int i = 0; i < events.size(); i++) {
+                String userId = userIds.get(i);
+                String challengeId = challengeIds.get(i);
+                Integer delta = deltas.get(i);
+                if (userId == null || challengeId == null || delta == null) {
+                    rejected++;
+                    continue;
+                }
+                if (progressPipeline.submit(userId, challengeId, delta)) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+            }
+            response.put("success", rejected == 0);
+            response.put("accepted", accepted);
+            response.put("rejected", rejected);
+            response.put("message", "Progress events queued");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to queue progress events: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Whole-number delta from a JSON number or string, or null if it is not one
+    private static Integer parseDelta(Object delta) {
+        if (delta instanceof Integer || delta instanceof Short || delta instanceof Byte) {
+            return ((Number) delta).intValue();
+        }
+        if (delta instanceof Number) {
+            double value = ((Number) delta).doubleValue();
+            boolean whole = value == Math.rint(value) && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+            return whole ? (int) value : null;
+        }
+        try {
+            return Integer.valueOf(delta.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @GetMapping("/user/{userId}/progress")
     public ResponseEntity<Map<String, Object>> getUserProgress(@PathVariable String userId) {
         Map<String, Object> response = new HashMap<>();
@@ -294,6 +394,22 @@ public class EcoChallengeController {
         }
     }
 
+    @GetMapping("/user/{userId}/dashboard")
+    public ResponseEntity<Map<String, Object>> getUserChallengeDashboard(@PathVariable String userId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> dashboard = ecoChallengeService.getUserChallengeDashboard(userId);
+            response.put("success", true);
+            response.put("stats", dashboard.get("stats"));
+            response.put("progress", dashboard.get("progress"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to fetch user dashboard: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @GetMapping("/{challengeId}/analytics")
     public ResponseEntity<Map<String, Object>> getChallengeAnalytics(@PathVariable String challengeId) {
         Map<String, Object> response = new HashMap<>();
@@ -310,12 +426,17 @@ public class EcoChallengeController {
     }
 
     @GetMapping("/leaderboard")
-    public ResponseEntity<Map<String, Object>> getLeaderboard() {
+    public ResponseEntity<Map<String, Object>> getLeaderboard(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Map<String, Object>> topUsers = ecoChallengeService.getTopUsersByPoints();
+            List<Map<String, Object>> topUsers = ecoChallengeService.getTopUsersByPoints(page, size);
             response.put("success", true);
             response.put("leaderboard", topUsers);
+            response.put("page", EcoChallengeService.leaderboardPage(page));
+            response.put("size", EcoChallengeService.leaderboardPageSize(size));
+            response.put("count", topUsers.size());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             response.put("success", false);
@@ -4,6 +4,7 @@ import com.ecobazaar.backend.entity.EcoDiscount;
 import com.ecobazaar.backend.entity.UserDiscountUsage;
 import com.ecobazaar.backend.service.EcoDiscountService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -185,6 +186,10 @@ public class EcoDiscountController {
                 EcoDiscount existingDiscount = existingDiscountOpt.get();
                 discount.setId(existingDiscount.getId());
                 discount.setDiscountCode(discountCode);
+                // Redemptions are counted server-side; the version guards against
+                // overwriting one that lands between the read above and this save
+                discount.setCurrentUsageCount(existingDiscount.getCurrentUsageCount());
+                discount.setVersion(existingDiscount.getVersion());
                 
                 EcoDiscount updatedDiscount = ecoDiscountService.updateDiscount(discount);
                 response.put("success", true);
@@ -196,6 +201,10 @@ public class EcoDiscountController {
                 response.put("message", "Discount not found");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (OptimisticLockingFailureException e) {
+            response.put("success", false);
+            response.put("message", "Discount was modified concurrently, please reload and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to update discount: " + e.getMessage());
@@ -262,6 +271,10 @@ public class EcoDiscountController {
             response.put("message", "Discount applied successfully");
             response.put("usage", usage);
             return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Failed to apply discount: " + e.getMessage());
@@ -269,6 +282,24 @@ public class EcoDiscountController {
         }
     }
 
+    @PostMapping("/best-for-cart")
+    public ResponseEntity<Map<String, Object>> getBestDiscountForCart(@RequestBody Map<String, Object> request) {
+        try {
+            String userId = (String) request.get("userId");
+            Integer userEcoPoints = request.get("userEcoPoints") != null ?
+                Integer.valueOf(request.get("userEcoPoints").toString()) : null;
+
+            Map<String, Object> result = ecoDiscountService.getBestDiscountForCart(userId, userEcoPoints);
+            result.put("success", true);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to find best discount: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @GetMapping("/calculate")
     public ResponseEntity<Map<String, Object>> calculateDiscount(@RequestParam String discountCode,
                                                                @RequestParam Double orderAmount) {
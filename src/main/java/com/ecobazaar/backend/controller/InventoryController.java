@@ -0,0 +1,127 @@
+package com.ecobazaar.backend.controller;
+
+import com.ecobazaar.backend.entity.InventoryReservation;
+import com.ecobazaar.backend.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/inventory")
+@CrossOrigin(origins = "*")
+public class InventoryController {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    // Hold stock for a user until checkout (or until the reservation expires)
+    @PostMapping("/reservations")
+    public ResponseEntity<Map<String, Object>> reserve(@RequestBody Map<String, Object> request) {
+        try {
+            if (request.get("productId") == null || request.get("userId") == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("message", "productId and userId are required");
+                return ResponseEntity.badRequest().body(error);
+            }
+            Long productId = Long.valueOf(request.get("productId").toString());
+            String userId = request.get("userId").toString();
+            int quantity = request.get("quantity") != null ? Integer.parseInt(request.get("quantity").toString()) : 1;
+
+            InventoryReservation reservation = inventoryService.reserve(productId, userId, quantity);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("reservation", reservation);
+            response.put("message", "Stock reserved successfully");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error reserving stock: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // Attach a held reservation to an order
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Map<String, Object>> confirm(@PathVariable String reservationId,
+                                                       @RequestBody Map<String, String> request) {
+        try {
+            String orderId = request.get("orderId");
+            String userId = request.get("userId");
+            if (orderId == null || orderId.isEmpty() || userId == null || userId.isEmpty()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("message", "orderId and userId are required");
+                return ResponseEntity.badRequest().body(error);
+            }
+            inventoryService.confirm(List.of(reservationId), orderId, userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Reservation confirmed");
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error confirming reservation: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // Release a held reservation's stock
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Map<String, Object>> release(@PathVariable String reservationId) {
+        try {
+            if (!inventoryService.release(reservationId)) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("message", "Reservation " + reservationId + " is not held");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Reservation released");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error releasing reservation: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // Stock available to reserve, plus what is currently held
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<Map<String, Object>> getAvailability(@PathVariable Long productId) {
+        try {
+            Map<String, Object> response = new HashMap<>(inventoryService.getAvailability(productId));
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error fetching availability: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+}
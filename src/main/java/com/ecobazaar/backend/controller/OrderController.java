@@ -2,8 +2,14 @@ package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.entity.Order;
 import com.ecobazaar.backend.entity.OrderStatus;
+import com.ecobazaar.backend.model.OrderSummary;
 import com.ecobazaar.backend.repository.OrderRepository;
+import com.ecobazaar.backend.service.CheckoutService;
+import com.ecobazaar.backend.service.OutboxDispatcher;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,11 +26,20 @@ public class OrderController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Get all orders
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllOrders() {
         try {
-            List<Order> orders = orderRepository.findAll();
+            List<OrderSummary> orders = orderRepository.findAllSummaries();
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("orders", orders);
@@ -56,11 +71,72 @@ public class OrderController {
         }
     }
 
+    // Place an order server-side: the order, its discount redemption, its stock
+    // reservations and its follow-up work (stats, challenge progress, cart clearing)
+    // commit together
+    @PostMapping("/checkout")
+    public ResponseEntity<Map<String, Object>> checkout(@RequestBody Map<String, Object> request) {
+        try {
+            Order order = objectMapper.convertValue(request.get("order"), Order.class);
+            if (order == null || order.getUserId() == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("message", "order with userId is required");
+                return ResponseEntity.badRequest().body(error);
+            }
+            Integer ecoProductsCount = request.get("ecoProductsCount") != null
+                    ? Integer.valueOf(request.get("ecoProductsCount").toString()) : null;
+            Map<String, Integer> challengeProgress = objectMapper.convertValue(
+                    request.get("challengeProgress"), new TypeReference<Map<String, Integer>>() {});
+            boolean clearCart = !Boolean.FALSE.equals(request.get("clearCart"));
+            List<String> reservationIds = objectMapper.convertValue(
+                    request.get("reservationIds"), new TypeReference<List<String>>() {});
+
+            Order savedOrder = checkoutService.checkout(order, ecoProductsCount, challengeProgress, clearCart,
+                    reservationIds);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("order", savedOrder);
+            response.put("message", "Order placed successfully");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error placing order: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // Outbox backlog for checkout side effects
+    @GetMapping("/checkout/outbox-stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        try {
+            Map<String, Object> response = new HashMap<>(outboxDispatcher.getStats());
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error fetching outbox stats: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
     // Get orders by user
     @GetMapping("/user/{userId}")
     public ResponseEntity<Map<String, Object>> getOrdersByUser(@PathVariable String userId) {
         try {
-            List<Order> orders = orderRepository.findByUserId(userId);
+            List<OrderSummary> orders = orderRepository.findSummariesByUserId(userId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("orders", orders);
@@ -80,7 +156,7 @@ public class OrderController {
     public ResponseEntity<Map<String, Object>> getOrdersByStatus(@PathVariable String status) {
         try {
             OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            List<Order> orders = orderRepository.findByOrderStatus(orderStatus);
+            List<OrderSummary> orders = orderRepository.findSummariesByOrderStatus(orderStatus);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("orders", orders);
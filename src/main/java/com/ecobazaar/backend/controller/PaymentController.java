@@ -1,8 +1,16 @@
 package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.entity.PaymentTransaction;
+import com.ecobazaar.backend.model.PaymentDetail;
+import com.ecobazaar.backend.model.PaymentSummary;
 import com.ecobazaar.backend.repository.PaymentTransactionRepository;
+import com.ecobazaar.backend.service.IdGenerator;
+import com.ecobazaar.backend.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,15 +23,65 @@ import java.util.Optional;
 @CrossOrigin(origins = {"*", "https://ecobazzarx.web.app", "http://localhost:62804", "http://127.0.0.1:62804"})
 public class PaymentController {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
+
     @Autowired
     private PaymentTransactionRepository paymentTransactionRepository;
 
-    // Process payment and create payment transaction
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    // Process payment and create payment transaction. A retried request carrying
+    // the same Idempotency-Key gets the original response instead of a new charge.
     @PostMapping("/process")
-    public ResponseEntity<Map<String, Object>> processPayment(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> processPayment(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createPayment(request, null);
+        }
+
+        String scopedKey = request.get("userId") + ":" + idempotencyKey;
+        String fingerprint = request.get("orderId") + "|" + amountKey(request.get("amount"));
+        IdempotencyStore.Claim claim = idempotencyStore.claim(scopedKey, fingerprint);
+
+        if (!claim.isOwner()) {
+            if (!claim.matches(fingerprint)) {
+                return idempotencyKeyReused();
+            }
+            try {
+                return replayed(claim.awaitResponse());
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "success", false,
+                    "message", "A request with this Idempotency-Key is still in progress or failed; retry later"
+                ));
+            }
+        }
+
+        ResponseEntity<Map<String, Object>> response;
+        try {
+            // The key may have been used before this instance's cache saw it
+            Optional<PaymentTransaction> existing = paymentTransactionRepository.findByIdempotencyKey(scopedKey);
+            response = existing.isPresent() ? replay(existing.get(), request) : createPayment(request, scopedKey);
+        } catch (RuntimeException e) {
+            idempotencyStore.abandon(scopedKey);
+            throw e;
+        }
+
+        if (response.getStatusCode().is2xxSuccessful()) {
+            idempotencyStore.complete(scopedKey, response.getBody());
+        } else {
+            idempotencyStore.abandon(scopedKey);
+        }
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> createPayment(Map<String, Object> request, String idempotencyKey) {
         try {
-            System.out.println("💳 Processing payment: " + request);
-            
             // Extract payment details
             String orderId = (String) request.get("orderId");
             String userId = (String) request.get("userId");
@@ -33,9 +91,10 @@ public class PaymentController {
             @SuppressWarnings("unchecked")
             Map<String, Object> gatewayResponse = (Map<String, Object>) request.get("gatewayResponse");
             String failureReason = (String) request.get("failureReason");
+            log.debug("Processing payment - orderId: {}, userId: {}, method: {}", orderId, userId, paymentMethod);
             
             // Generate transaction ID
-            String transactionId = "TXN_" + System.currentTimeMillis() + "_" + Math.abs(orderId.hashCode() % 1000);
+            String transactionId = idGenerator.nextId("TXN_");
             
             // Create payment transaction
             PaymentTransaction transaction = new PaymentTransaction();
@@ -45,6 +104,7 @@ public class PaymentController {
             transaction.setAmount(amount);
             transaction.setPaymentMethod(paymentMethod);
             transaction.setPaymentGateway(paymentGateway != null ? paymentGateway : "razorpay");
+            transaction.setIdempotencyKey(idempotencyKey);
             
             // Determine payment status based on gateway response
             Boolean isSuccess = gatewayResponse != null && (Boolean) gatewayResponse.get("success");
@@ -62,19 +122,25 @@ public class PaymentController {
             // Save payment transaction
             PaymentTransaction savedTransaction = paymentTransactionRepository.save(transaction);
             
-            System.out.println("💳 Payment transaction saved: " + savedTransaction.getId());
+            log.info("Payment transaction saved - id: {}, orderId: {}, status: {}",
+                    savedTransaction.getId(), orderId, savedTransaction.getStatus());
             
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "paymentId", transactionId,
-                "transactionId", savedTransaction.getId(),
-                "message", "Payment processed successfully",
-                "status", savedTransaction.getStatus()
-            ));
+            return ResponseEntity.ok(paymentResponse(savedTransaction));
             
+        } catch (DataIntegrityViolationException e) {
+            // Another instance inserted this idempotency key first
+            Optional<PaymentTransaction> existing = idempotencyKey != null
+                    ? paymentTransactionRepository.findByIdempotencyKey(idempotencyKey) : Optional.empty();
+            if (existing.isPresent()) {
+                return replay(existing.get(), request);
+            }
+            log.error("Error processing payment for orderId {}", request.get("orderId"), e);
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Error processing payment: " + e.getMessage()
+            ));
         } catch (Exception e) {
-            System.err.println("💳 Error processing payment: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error processing payment for orderId {}", request.get("orderId"), e);
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
                 "message", "Error processing payment: " + e.getMessage()
@@ -82,11 +148,51 @@ public class PaymentController {
         }
     }
 
+    private ResponseEntity<Map<String, Object>> replay(PaymentTransaction transaction, Map<String, Object> request) {
+        Object amount = request.get("amount");
+        boolean sameRequest = transaction.getOrderId().equals(request.get("orderId"))
+                && amount != null && Double.valueOf(amount.toString()).equals(transaction.getAmount());
+        return sameRequest ? replayed(paymentResponse(transaction)) : idempotencyKeyReused();
+    }
+
+    // 100, 100.0 and "100.00" are the same amount, here as in replay()
+    private static String amountKey(Object amount) {
+        if (amount == null) {
+            return "null";
+        }
+        try {
+            return Double.valueOf(amount.toString()).toString();
+        } catch (NumberFormatException e) {
+            return amount.toString();
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> replayed(Map<String, Object> body) {
+        return ResponseEntity.ok().header("Idempotent-Replayed", "true").body(body);
+    }
+
+    private ResponseEntity<Map<String, Object>> idempotencyKeyReused() {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+            "success", false,
+            "message", "Idempotency-Key was already used for a different payment request"
+        ));
+    }
+
+    private Map<String, Object> paymentResponse(PaymentTransaction transaction) {
+        return Map.of(
+            "success", true,
+            "paymentId", transaction.getTransactionId(),
+            "transactionId", transaction.getId(),
+            "message", "Payment processed successfully",
+            "status", transaction.getStatus()
+        );
+    }
+
     // Get payment by transaction ID
     @GetMapping("/{transactionId}")
-    public ResponseEntity<PaymentTransaction> getPaymentByTransactionId(@PathVariable String transactionId) {
+    public ResponseEntity<PaymentDetail> getPaymentByTransactionId(@PathVariable String transactionId) {
         try {
-            Optional<PaymentTransaction> payment = paymentTransactionRepository.findByTransactionId(transactionId);
+            Optional<PaymentDetail> payment = paymentTransactionRepository.findDetailByTransactionId(transactionId);
             if (payment.isPresent()) {
                 return ResponseEntity.ok(payment.get());
             } else {
@@ -99,9 +205,9 @@ public class PaymentController {
 
     // Get payments by user
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PaymentTransaction>> getPaymentsByUser(@PathVariable String userId) {
+    public ResponseEntity<List<PaymentSummary>> getPaymentsByUser(@PathVariable String userId) {
         try {
-            List<PaymentTransaction> payments = paymentTransactionRepository.findByUserId(userId);
+            List<PaymentSummary> payments = paymentTransactionRepository.findSummariesByUserId(userId);
             return ResponseEntity.ok(payments);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -110,9 +216,9 @@ public class PaymentController {
 
     // Get payments by order
     @GetMapping("/order/{orderId}")
-    public ResponseEntity<List<PaymentTransaction>> getPaymentsByOrder(@PathVariable String orderId) {
+    public ResponseEntity<List<PaymentSummary>> getPaymentsByOrder(@PathVariable String orderId) {
         try {
-            List<PaymentTransaction> payments = paymentTransactionRepository.findByOrderId(orderId);
+            List<PaymentSummary> payments = paymentTransactionRepository.findSummariesByOrderId(orderId);
             return ResponseEntity.ok(payments);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -121,9 +227,9 @@ public class PaymentController {
 
     // Get all payments (admin)
     @GetMapping("/admin/all")
-    public ResponseEntity<List<PaymentTransaction>> getAllPayments() {
+    public ResponseEntity<List<PaymentSummary>> getAllPayments() {
         try {
-            List<PaymentTransaction> payments = paymentTransactionRepository.findAll();
+            List<PaymentSummary> payments = paymentTransactionRepository.findAllSummaries();
             return ResponseEntity.ok(payments);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -134,19 +240,11 @@ public class PaymentController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getPaymentStats() {
         try {
-            List<PaymentTransaction> allPayments = paymentTransactionRepository.findAll();
-            List<PaymentTransaction> completedPayments = paymentTransactionRepository.findByStatus("COMPLETED");
-            List<PaymentTransaction> failedPayments = paymentTransactionRepository.findByStatus("FAILED");
-            
-            double totalAmount = completedPayments.stream()
-                    .mapToDouble(PaymentTransaction::getAmount)
-                    .sum();
-            
             return ResponseEntity.ok(Map.of(
-                "totalPayments", allPayments.size(),
-                "completedPayments", completedPayments.size(),
-                "failedPayments", failedPayments.size(),
-                "totalAmount", totalAmount
+                "totalPayments", paymentTransactionRepository.count(),
+                "completedPayments", paymentTransactionRepository.countByStatus("COMPLETED"),
+                "failedPayments", paymentTransactionRepository.countByStatus("FAILED"),
+                "totalAmount", paymentTransactionRepository.sumAmountByStatus("COMPLETED")
             ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -1,8 +1,13 @@
 package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.model.ProductSummary;
 import com.ecobazaar.backend.repository.ProductRepository;
 import com.ecobazaar.backend.service.DataInitializationService;
+import com.ecobazaar.backend.service.ProductRecommender;
+import com.ecobazaar.backend.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,22 +21,30 @@ import java.util.Optional;
 @CrossOrigin(origins = {"*", "https://ecobazzarx.web.app", "http://localhost:62804", "http://127.0.0.1:62804"})
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
     @Autowired
     private ProductRepository productRepository;
     
     @Autowired
     private DataInitializationService dataInitializationService;
+    
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRecommender productRecommender;
 
     // Get all products
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<ProductSummary>> getAllProducts() {
         try {
             // Auto-initialize data if database is empty
             if (dataInitializationService.needsInitialization()) {
                 dataInitializationService.initializeSampleData();
             }
             
-            List<Product> products = productRepository.findAll();
+            List<ProductSummary> products = productRepository.findAllSummaries();
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -55,9 +68,9 @@ public class ProductController {
 
     // Get products by category
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<List<ProductSummary>> getProductsByCategory(@PathVariable String category) {
         try {
-            List<Product> products = productRepository.findByCategory(category);
+            List<ProductSummary> products = productRepository.findSummariesByCategory(category);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -66,9 +79,9 @@ public class ProductController {
 
     // Get products by store
     @GetMapping("/store/{storeId}")
-    public ResponseEntity<List<Product>> getProductsByStore(@PathVariable String storeId) {
+    public ResponseEntity<List<ProductSummary>> getProductsByStore(@PathVariable String storeId) {
         try {
-            List<Product> products = productRepository.findByStoreId(storeId);
+            List<ProductSummary> products = productRepository.findSummariesByStoreId(storeId);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
@@ -77,20 +90,25 @@ public class ProductController {
 
     // Search products
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String query) {
+    public ResponseEntity<List<ProductSummary>> searchProducts(@RequestParam String query) {
         try {
-            List<Product> products = productRepository.findByNameContainingIgnoreCase(query);
+            List<ProductSummary> products = productRepository.findSummariesByNameContaining(escapeLike(query));
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(List.of());
         }
     }
 
+    // Match query literally: LIKE wildcards and the escape character are escaped
+    private static String escapeLike(String query) {
+        return query.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
     // Add new product (Admin/Shopkeeper only)
     @PostMapping
     public ResponseEntity<Map<String, Object>> addProduct(@RequestBody Product product) {
         try {
-            System.out.println("📦 Received product creation request: " + product.getName());
+            log.debug("Received product creation request: {}", product.getName());
             
             // Validate required fields
             if (product.getName() == null || product.getName().trim().isEmpty()) {
@@ -158,7 +176,7 @@ public class ProductController {
             product.setIsActive(true);
             
             Product savedProduct = productRepository.save(product);
-            System.out.println("✅ Product saved successfully with ID: " + savedProduct.getId());
+            log.info("Product created - productId: {}, storeId: {}", savedProduct.getId(), savedProduct.getStoreId());
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -167,8 +185,7 @@ public class ProductController {
                 "productId", savedProduct.getId()
             ));
         } catch (Exception e) {
-            System.err.println("❌ Error adding product: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error adding product: {}", product.getName(), e);
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
                 "message", "Error adding product: " + e.getMessage(),
@@ -183,19 +200,9 @@ public class ProductController {
             @PathVariable Long productId, 
             @RequestBody Product productDetails) {
         try {
-            Optional<Product> productOptional = productRepository.findById(productId);
-            if (productOptional.isPresent()) {
-                Product product = productOptional.get();
-                product.setName(productDetails.getName());
-                product.setDescription(productDetails.getDescription());
-                product.setPrice(productDetails.getPrice());
-                product.setQuantity(productDetails.getQuantity());
-                product.setCategory(productDetails.getCategory());
-                product.setImageUrl(productDetails.getImageUrl());
-                product.setStoreId(productDetails.getStoreId());
-                product.setStoreName(productDetails.getStoreName());
-                
-                Product updatedProduct = productRepository.save(product);
+            Optional<Product> updated = productService.updateProduct(productId, productDetails);
+            if (updated.isPresent()) {
+                Product updatedProduct = updated.get();
                 return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Product updated successfully",
@@ -218,6 +225,7 @@ public class ProductController {
         try {
             if (productRepository.existsById(productId)) {
                 productRepository.deleteById(productId);
+                productRecommender.productRemoved(productId);
                 return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Product deleted successfully"
@@ -1,11 +1,17 @@
 package com.ecobazaar.backend.controller;
 
 import com.ecobazaar.backend.model.*;
+import com.ecobazaar.backend.service.NotificationAudienceIndex;
 import com.ecobazaar.backend.service.SettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -28,9 +34,14 @@ import java.util.Map;
 })
 public class SettingsController {
 
+    private static final Logger log = LoggerFactory.getLogger(SettingsController.class);
+
     @Autowired
     private SettingsService settingsService;
 
+    @Autowired
+    private NotificationAudienceIndex audienceIndex;
+
     /**
      * Get user settings
      * 
@@ -40,14 +51,13 @@ public class SettingsController {
     @GetMapping("/{userId}")
     public ResponseEntity<?> getUserSettings(@PathVariable String userId) {
         try {
-            Settings settings = settingsService.getUserSettings(userId);
-            if (settings != null) {
-                return ResponseEntity.ok(settings);
-            } else {
-                return ResponseEntity.status(404).body("Settings not found for user: " + userId);
-            }
+            // Pre-serialized JSON from the settings cache
+            String settings = settingsService.getUserSettingsJson(userId);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(settings);
         } catch (Exception e) {
-            System.err.println("❌ Error getting settings: " + e.getMessage());
+            log.error("Error getting settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error retrieving settings: " + e.getMessage());
         }
@@ -70,8 +80,10 @@ public class SettingsController {
             Settings updatedSettings = settingsService.updateUserSettings(userId, settings);
             return ResponseEntity.ok(updatedSettings);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Error updating settings: " + e.getMessage());
+            log.error("Error updating settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error updating settings: " + e.getMessage());
         }
@@ -93,8 +105,10 @@ public class SettingsController {
             Settings updatedSettings = settingsService.updateAppPreferences(userId, appPreferences);
             return ResponseEntity.ok(updatedSettings);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Error updating app preferences: " + e.getMessage());
+            log.error("Error updating app preferences for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error updating app preferences: " + e.getMessage());
         }
@@ -116,8 +130,10 @@ public class SettingsController {
             Settings updatedSettings = settingsService.updateNotificationSettings(userId, notificationSettings);
             return ResponseEntity.ok(updatedSettings);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Error updating notification settings: " + e.getMessage());
+            log.error("Error updating notification settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error updating notification settings: " + e.getMessage());
         }
@@ -139,8 +155,10 @@ public class SettingsController {
             Settings updatedSettings = settingsService.updatePrivacySettings(userId, privacySettings);
             return ResponseEntity.ok(updatedSettings);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Error updating privacy settings: " + e.getMessage());
+            log.error("Error updating privacy settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error updating privacy settings: " + e.getMessage());
         }
@@ -163,7 +181,7 @@ public class SettingsController {
             return ResponseEntity.ok(updatedSettings);
 
         } catch (Exception e) {
-            System.err.println("❌ Error updating sync settings: " + e.getMessage());
+            log.error("Error updating sync settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error updating sync settings: " + e.getMessage());
         }
@@ -185,13 +203,56 @@ public class SettingsController {
             Settings initializedSettings = settingsService.initializeUserSettings(userId, settings);
             return ResponseEntity.ok(initializedSettings);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Error initializing user settings: " + e.getMessage());
+            log.error("Error initializing user settings for user {}", userId, e);
             return ResponseEntity.internalServerError()
                 .body("Error initializing user settings: " + e.getMessage());
         }
     }
 
+    /**
+     * Count and list users by notification preferences, e.g.
+     * allOf=orderUpdates,pushNotifications&noneOf=promotionalEmails
+     * 
+     * @param allOf Flags that must be enabled
+     * @param noneOf Flags that must be disabled
+     * @param page Page of user ids to return
+     * @param size Page size (max 10000)
+     * @return Audience size and one page of user ids
+     */
+    @GetMapping("/audience")
+    public ResponseEntity<?> getAudience(
+            @RequestParam(required = false) String allOf,
+            @RequestParam(required = false) String noneOf,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "1000") int size) {
+        
+        try {
+            int required = NotificationAudienceIndex.parseFlags(allOf);
+            int excluded = NotificationAudienceIndex.parseFlags(noneOf);
+            int pageSize = Math.max(1, Math.min(size, 10000));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("count", audienceIndex.count(required, excluded));
+            response.put("page", Math.max(page, 0));
+            response.put("size", pageSize);
+            response.put("userIds", audienceIndex.userIds(required, excluded, Math.max(page, 0), pageSize));
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            // The index has not finished its first build yet
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error querying notification audience", e);
+            return ResponseEntity.internalServerError()
+                .body("Error querying notification audience: " + e.getMessage());
+        }
+    }
+
     /**
      * Health check endpoint
      * 
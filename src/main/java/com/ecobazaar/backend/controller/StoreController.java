@@ -3,6 +3,10 @@ package com.ecobazaar.backend.controller;
 import com.ecobazaar.backend.entity.Store;
 import com.ecobazaar.backend.repository.StoreRepository;
 import com.ecobazaar.backend.service.DataInitializationService;
+import com.ecobazaar.backend.service.DenormalizationPropagator;
+import com.ecobazaar.backend.service.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,12 +21,20 @@ import java.util.Optional;
 @CrossOrigin(origins = {"*", "https://ecobazzarx.web.app", "http://localhost:62804", "http://127.0.0.1:62804"})
 public class StoreController {
 
+    private static final Logger log = LoggerFactory.getLogger(StoreController.class);
+
     @Autowired
     private StoreRepository storeRepository;
     
     @Autowired
     private DataInitializationService dataInitializationService;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private DenormalizationPropagator denormalizationPropagator;
+
     // Get all stores
     @GetMapping
     public ResponseEntity<List<Store>> getAllStores() {
@@ -97,7 +109,7 @@ public class StoreController {
             
             // Generate unique storeId if not provided
             if (store.getStoreId() == null || store.getStoreId().trim().isEmpty()) {
-                store.setStoreId("STORE_" + System.currentTimeMillis());
+                store.setStoreId(idGenerator.nextId("STORE_"));
             }
             
             // Set default values if not provided
@@ -136,7 +148,7 @@ public class StoreController {
                 "store", savedStore
             ));
         } catch (Exception e) {
-            System.err.println("Error adding store: " + e.getMessage());
+            log.error("Error adding store", e);
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
                 "message", "Error adding store: " + e.getMessage()
@@ -176,6 +188,7 @@ public class StoreController {
                 }
                 
                 Store updatedStore = storeRepository.save(store);
+                denormalizationPropagator.storeChanged(updatedStore.getStoreId());
                 return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Store updated successfully",
@@ -188,7 +201,7 @@ public class StoreController {
                 ));
             }
         } catch (Exception e) {
-            e.printStackTrace(); // Add logging to see the actual error
+            log.error("Error updating store {}", storeId, e);
             return ResponseEntity.internalServerError().body(Map.of(
                 "success", false,
                 "message", "Error updating store: " + e.getMessage()
@@ -3,15 +3,20 @@ package com.ecobazaar.backend.controller;
 import com.ecobazaar.backend.entity.User;
 import com.ecobazaar.backend.entity.UserRole;
 import com.ecobazaar.backend.repository.UserRepository;
+import com.ecobazaar.backend.service.CartService;
+import com.ecobazaar.backend.service.WishlistService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -23,6 +28,12 @@ public class UserController {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private WishlistService wishlistService;
+    
+    @Autowired
+    private CartService cartService;
 
     // Get all users
     @GetMapping
@@ -126,6 +137,52 @@ public class UserController {
         }
     }
 
+    // Wishlist and cart membership for a page of products (one request per product grid)
+    @PostMapping("/{id}/product-flags")
+    public ResponseEntity<Map<String, Object>> getProductFlags(@PathVariable String id,
+                                                               @RequestBody Map<String, Object> request) {
+        try {
+            Object rawIds = request.get("productIds");
+            if (!(rawIds instanceof List) || ((List<?>) rawIds).size() > 500) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "productIds must be a list of at most 500 ids");
+                
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            List<String> productIds = ((List<?>) rawIds).stream()
+                .map(String::valueOf)
+                .distinct()
+                .collect(Collectors.toList());
+            
+            // One cached set lookup for the wishlist, one IN query for the cart
+            Set<String> wishlisted = wishlistService.getWishlistedProductIds(id, productIds);
+            Map<String, Integer> cartQuantities = cartService.getCartQuantities(id, productIds);
+            
+            Map<String, Object> flags = new LinkedHashMap<>();
+            for (String productId : productIds) {
+                Integer cartQuantity = cartQuantities.get(productId);
+                Map<String, Object> productFlags = new HashMap<>();
+                productFlags.put("inWishlist", wishlisted.contains(productId));
+                productFlags.put("inCart", cartQuantity != null);
+                productFlags.put("cartQuantity", cartQuantity != null ? cartQuantity : 0);
+                flags.put(productId, productFlags);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("flags", flags);
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch product flags: " + e.getMessage());
+            
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
     // Update user status (activate/deactivate)
     @PutMapping("/{id}/status")
     public ResponseEntity<Map<String, Object>> updateUserStatus(@PathVariable Long id, @RequestBody Map<String, Boolean> request) {
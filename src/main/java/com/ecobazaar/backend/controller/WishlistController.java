@@ -5,8 +5,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/wishlist")
@@ -88,6 +91,41 @@ public class WishlistController {
         }
     }
 
+    // Check which of several products are in the wishlist, e.g. for a product listing page
+    @PostMapping("/check-batch")
+    public ResponseEntity<Map<String, Object>> checkBatch(@RequestBody Map<String, Object> request) {
+        try {
+            String userId = (String) request.get("userId");
+            @SuppressWarnings("unchecked")
+            List<Object> productIds = (List<Object>) request.get("productIds");
+            if (userId == null || productIds == null) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "userId and productIds are required"
+                ));
+            }
+            if (productIds.size() > 500) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "At most 500 productIds per request"
+                ));
+            }
+            
+            List<String> ids = productIds.stream().map(String::valueOf).collect(Collectors.toList());
+            Set<String> wishlisted = wishlistService.getWishlistedProductIds(userId, ids);
+            Map<String, Boolean> result = new LinkedHashMap<>();
+            for (String id : ids) {
+                result.put(id, wishlisted.contains(id));
+            }
+            return ResponseEntity.ok(Map.of(
+                "wishlisted", result
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "wishlisted", Map.of(),
+                "error", e.getMessage()
+            ));
+        }
+    }
+
     // Get wishlist count
     @GetMapping("/count/{userId}")
     public ResponseEntity<Map<String, Object>> getWishlistCount(@PathVariable String userId) {
@@ -172,6 +210,40 @@ public class WishlistController {
         }
     }
 
+    // Get price-drop alerts for wishlisted products
+    @GetMapping("/price-alerts/{userId}")
+    public ResponseEntity<Map<String, Object>> getPriceAlerts(@PathVariable String userId,
+                                                              @RequestParam(defaultValue = "0") int page,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        try {
+            if (page < 0 || size < 1 || size > 100) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "page must be >= 0 and size between 1 and 100"
+                ));
+            }
+            return ResponseEntity.ok(wishlistService.getPriceAlerts(userId, page, size));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Error getting price alerts: " + e.getMessage()
+            ));
+        }
+    }
+
+    // Mark price-drop alerts as read
+    @PostMapping("/price-alerts/{userId}/read")
+    public ResponseEntity<Map<String, Object>> markPriceAlertsRead(@PathVariable String userId) {
+        try {
+            return ResponseEntity.ok(wishlistService.markPriceAlertsRead(userId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Error marking price alerts as read: " + e.getMessage()
+            ));
+        }
+    }
+
     // Get wishlist analytics
     @GetMapping("/analytics/{userId}")
     public ResponseEntity<Map<String, Object>> getWishlistAnalytics(@PathVariable String userId) {
@@ -7,7 +7,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+    @Index(name = "uk_carts_user_id", columnList = "user_id", unique = true)
+})
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
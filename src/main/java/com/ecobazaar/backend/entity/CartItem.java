@@ -7,12 +7,19 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+    @Index(name = "idx_cart_items_user_product", columnList = "user_id, product_id"),
+    @Index(name = "idx_cart_items_product", columnList = "product_id")
+})
 public class CartItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    
     @Column(name = "user_id", nullable = false)
     private String userId;
     
@@ -195,4 +202,12 @@ public class CartItem {
     public Double getTotalCarbonFootprint() {
         return (carbonFootprint != null && quantity != null) ? carbonFootprint * quantity : 0.0;
     }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
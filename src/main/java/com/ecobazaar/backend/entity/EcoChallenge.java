@@ -1,5 +1,6 @@
 package com.ecobazaar.backend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -13,7 +14,11 @@ import java.time.LocalDateTime;
  * and contribute to sustainable practices.
  */
 @Entity
-@Table(name = "eco_challenges")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "eco_challenges", indexes = {
+    @Index(name = "idx_eco_challenges_active_dates", columnList = "is_active, start_date, end_date"),
+    @Index(name = "idx_eco_challenges_category", columnList = "category, is_active")
+})
 public class EcoChallenge {
     
     @Id
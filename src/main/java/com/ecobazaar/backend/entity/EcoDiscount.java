@@ -12,13 +12,19 @@ import java.time.LocalDateTime;
  * Represents discount offers for eco-friendly products and sustainable shopping
  */
 @Entity
-@Table(name = "eco_discounts")
+@Table(name = "eco_discounts", indexes = {
+    @Index(name = "idx_eco_discounts_active_validity", columnList = "is_active, valid_from, valid_until")
+})
 public class EcoDiscount {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    
     @Column(nullable = false, unique = true)
     private String discountCode;
     
@@ -263,4 +269,12 @@ public class EcoDiscount {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
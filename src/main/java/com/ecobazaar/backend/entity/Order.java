@@ -7,7 +7,12 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_orders_status_created", columnList = "order_status, created_at"),
+    @Index(name = "idx_orders_created_at", columnList = "created_at"),
+    @Index(name = "idx_orders_user_email", columnList = "user_email")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -7,7 +7,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment_transactions")
+@Table(name = "payment_transactions", indexes = {
+    @Index(name = "idx_payment_tx_order_id", columnList = "order_id"),
+    @Index(name = "idx_payment_tx_user_id", columnList = "user_id"),
+    @Index(name = "idx_payment_tx_status", columnList = "status")
+})
 public class PaymentTransaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -46,6 +50,10 @@ public class PaymentTransaction {
     @Column(name = "gateway_response", columnDefinition = "TEXT")
     private String gatewayResponse;
     
+    // Client-supplied Idempotency-Key scoped by user; null when none was sent
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+    
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -161,6 +169,14 @@ public class PaymentTransaction {
         this.gatewayResponse = gatewayResponse;
     }
     
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
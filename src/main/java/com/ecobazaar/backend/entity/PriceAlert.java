@@ -0,0 +1,135 @@
+package com.ecobazaar.backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * PriceAlert Entity
+ *
+ * Tells a user that a product on their wishlist is now cheaper than the price
+ * they last saw for it (the wishlist item's productPrice).
+ */
+@Entity
+@Table(name = "price_alerts", indexes = {
+    @Index(name = "idx_price_alerts_user_read", columnList = "user_id, is_read"),
+    @Index(name = "idx_price_alerts_product", columnList = "product_id")
+})
+public class PriceAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "previous_price")
+    private Double previousPrice; // the wishlist item's price before the drop
+
+    @Column(name = "new_price", nullable = false)
+    private Double newPrice;
+
+    @Column(name = "eco_product")
+    private Boolean ecoProduct = false;
+
+    @Column(name = "is_read", nullable = false)
+    private Boolean isRead = false;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public PriceAlert() {}
+
+    public PriceAlert(String userId, String productId, String productName, Double previousPrice,
+                      Double newPrice, Boolean ecoProduct) {
+        this.userId = userId;
+        this.productId = productId;
+        this.productName = productName;
+        this.previousPrice = previousPrice;
+        this.newPrice = newPrice;
+        this.ecoProduct = ecoProduct;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Double getPreviousPrice() {
+        return previousPrice;
+    }
+
+    public void setPreviousPrice(Double previousPrice) {
+        this.previousPrice = previousPrice;
+    }
+
+    public Double getNewPrice() {
+        return newPrice;
+    }
+
+    public void setNewPrice(Double newPrice) {
+        this.newPrice = newPrice;
+    }
+
+    public Boolean getEcoProduct() {
+        return ecoProduct;
+    }
+
+    public void setEcoProduct(Boolean ecoProduct) {
+        this.ecoProduct = ecoProduct;
+    }
+
+    public Boolean getIsRead() {
+        return isRead;
+    }
+
+    public void setIsRead(Boolean isRead) {
+        this.isRead = isRead;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
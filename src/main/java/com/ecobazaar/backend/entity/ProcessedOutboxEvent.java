@@ -0,0 +1,50 @@
+package com.ecobazaar.backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * ProcessedOutboxEvent Entity
+ *
+ * Records that an outbox event's effect has been applied. Written in the same
+ * transaction as the effect, so a redelivered event (lease expiry, or a crash
+ * before the event was marked done) is recognised and skipped.
+ */
+@Entity
+@Table(name = "processed_outbox_events")
+public class ProcessedOutboxEvent {
+
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @CreationTimestamp
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Constructors
+    public ProcessedOutboxEvent() {}
+
+    public ProcessedOutboxEvent(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    // Getters and Setters
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
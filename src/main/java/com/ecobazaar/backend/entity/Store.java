@@ -7,7 +7,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stores")
+@Table(name = "stores", indexes = {
+    @Index(name = "idx_stores_owner_id", columnList = "owner_id")
+})
 public class Store {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
  * Tracks individual user's progress on eco challenges
  */
 @Entity
-@Table(name = "user_challenge_progress")
+@Table(name = "user_challenge_progress", indexes = {
+    @Index(name = "uk_challenge_progress_user_challenge", columnList = "user_id, challenge_id", unique = true),
+    @Index(name = "idx_challenge_progress_user_completed", columnList = "user_id, is_completed"),
+    @Index(name = "idx_challenge_progress_challenge_completed", columnList = "challenge_id, is_completed")
+})
 public class UserChallengeProgress {
     
     @Id
@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
  * Tracks which discounts have been used by which users
  */
 @Entity
-@Table(name = "user_discount_usage")
+@Table(name = "user_discount_usage", indexes = {
+    @Index(name = "idx_discount_usage_user_code", columnList = "user_id, discount_code"),
+    @Index(name = "idx_discount_usage_code", columnList = "discount_code"),
+    @Index(name = "idx_discount_usage_used_at", columnList = "used_at")
+})
 public class UserDiscountUsage {
     
     @Id
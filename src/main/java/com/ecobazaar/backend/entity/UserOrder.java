@@ -7,7 +7,13 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_orders")
+@Table(name = "user_orders", indexes = {
+    @Index(name = "idx_user_orders_user_id", columnList = "user_id"),
+    @Index(name = "idx_user_orders_order_id", columnList = "order_id"),
+    @Index(name = "idx_user_orders_store_id", columnList = "store_id"),
+    @Index(name = "idx_user_orders_product_id", columnList = "product_id"),
+    @Index(name = "idx_user_orders_status", columnList = "order_status")
+})
 public class UserOrder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,10 +5,50 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
 
+/**
+ * UserSettings Entity
+ *
+ * The on/off preferences are packed into one bitmask column (flags)
+ * and theme, language and privacy level are stored as small codes, so a
+ * row is a handful of bytes. A language outside the code table is kept
+ * as-is in language_other, so any well-formed language tag stays
+ * representable. Getters and setters keep the string/Boolean view used by
+ * the settings API.
+ */
 @Entity
 @Table(name = "user_settings")
 public class UserSettings {
+    
+    // Bits of the flags column
+    public static final int NOTIFICATIONS_ENABLED = 1;
+    public static final int EMAIL_NOTIFICATIONS = 1 << 1;
+    public static final int PUSH_NOTIFICATIONS = 1 << 2;
+    public static final int SMS_NOTIFICATIONS = 1 << 3;
+    public static final int ECO_TIPS_ENABLED = 1 << 4;
+    public static final int CHALLENGE_REMINDERS = 1 << 5;
+    public static final int ORDER_UPDATES = 1 << 6;
+    public static final int PROMOTIONAL_EMAILS = 1 << 7;
+    public static final int DATA_SHARING = 1 << 8;
+    public static final int LOCATION_TRACKING = 1 << 9;
+    
+    public static final int DEFAULT_FLAGS = NOTIFICATIONS_ENABLED | EMAIL_NOTIFICATIONS | PUSH_NOTIFICATIONS
+            | ECO_TIPS_ENABLED | CHALLENGE_REMINDERS | ORDER_UPDATES;
+    
+    // Code tables: the stored code is the index (append only)
+    public static final List<String> THEMES = List.of("light", "dark", "system");
+    public static final List<String> LANGUAGES = List.of("en", "hi", "mr", "ta", "te", "bn", "gu", "kn", "ml", "pa",
+            "es", "fr", "de");
+    public static final List<String> PRIVACY_LEVELS = List.of("low", "medium", "high");
+    
+    // language_code of a language stored in language_other
+    public static final byte OTHER_LANGUAGE = -1;
+    // Language tags accepted outside the code table, e.g. "pt-br" or "zh-hant-tw" (BCP 47 shape)
+    private static final Pattern LANGUAGE_TAG = Pattern.compile("[a-z]{2,8}(-[a-z0-9]{1,8}){0,4}");
+    private static final int MAX_LANGUAGE_TAG_LENGTH = 35;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -16,44 +56,22 @@ public class UserSettings {
     @Column(name = "user_id", unique = true, nullable = false)
     private String userId;
     
-    @Column(name = "theme")
-    private String theme = "light";
-    
-    @Column(name = "language")
-    private String language = "en";
-    
-    @Column(name = "notifications_enabled")
-    private Boolean notificationsEnabled = true;
-    
-    @Column(name = "email_notifications")
-    private Boolean emailNotifications = true;
-    
-    @Column(name = "push_notifications")
-    private Boolean pushNotifications = true;
-    
-    @Column(name = "sms_notifications")
-    private Boolean smsNotifications = false;
-    
-    @Column(name = "eco_tips_enabled")
-    private Boolean ecoTipsEnabled = true;
-    
-    @Column(name = "challenge_reminders")
-    private Boolean challengeReminders = true;
-    
-    @Column(name = "order_updates")
-    private Boolean orderUpdates = true;
+    // Null only on rows written before the bitmask existed, until they are packed
+    @Column(name = "flags")
+    private Integer flags = DEFAULT_FLAGS;
     
-    @Column(name = "promotional_emails")
-    private Boolean promotionalEmails = false;
+    @Column(name = "theme_code", nullable = false, columnDefinition = "tinyint default 0")
+    private byte themeCode = 0;
     
-    @Column(name = "privacy_level")
-    private String privacyLevel = "medium";
+    @Column(name = "language_code", nullable = false, columnDefinition = "tinyint default 0")
+    private byte languageCode = 0;
     
-    @Column(name = "data_sharing")
-    private Boolean dataSharing = false;
+    // Set only when languageCode is OTHER_LANGUAGE
+    @Column(name = "language_other", length = MAX_LANGUAGE_TAG_LENGTH)
+    private String languageOther;
     
-    @Column(name = "location_tracking")
-    private Boolean locationTracking = false;
+    @Column(name = "privacy_code", nullable = false, columnDefinition = "tinyint default 1")
+    private byte privacyCode = 1;
     
     @CreationTimestamp
     @Column(name = "created_at")
@@ -87,108 +105,139 @@ public class UserSettings {
         this.userId = userId;
     }
     
+    public int getFlags() {
+        return flags != null ? flags : DEFAULT_FLAGS;
+    }
+    
+    public void setFlags(int flags) {
+        this.flags = flags;
+    }
+    
+    public boolean hasFlag(int flag) {
+        return (getFlags() & flag) != 0;
+    }
+    
+    // Null leaves the flag unchanged
+    public void setFlag(int flag, Boolean enabled) {
+        if (enabled != null) {
+            flags = enabled ? getFlags() | flag : getFlags() & ~flag;
+        }
+    }
+    
     public String getTheme() {
-        return theme;
+        return THEMES.get(themeCode);
     }
     
     public void setTheme(String theme) {
-        this.theme = theme;
+        this.themeCode = code(THEMES, "theme", theme);
     }
     
     public String getLanguage() {
-        return language;
+        if (languageCode == OTHER_LANGUAGE) {
+            return languageOther != null ? languageOther : LANGUAGES.get(0);
+        }
+        return LANGUAGES.get(languageCode);
     }
     
     public void setLanguage(String language) {
-        this.language = language;
+        String tag = language != null ? language.trim().toLowerCase() : null;
+        if (tag != null && LANGUAGES.contains(tag)) {
+            this.languageCode = (byte) LANGUAGES.indexOf(tag);
+            this.languageOther = null;
+        } else if (tag != null && tag.length() <= MAX_LANGUAGE_TAG_LENGTH && LANGUAGE_TAG.matcher(tag).matches()) {
+            this.languageCode = OTHER_LANGUAGE;
+            this.languageOther = tag;
+        } else {
+            throw new IllegalArgumentException("Unsupported language: " + language);
+        }
     }
     
     public Boolean getNotificationsEnabled() {
-        return notificationsEnabled;
+        return hasFlag(NOTIFICATIONS_ENABLED);
     }
     
     public void setNotificationsEnabled(Boolean notificationsEnabled) {
-        this.notificationsEnabled = notificationsEnabled;
+        setFlag(NOTIFICATIONS_ENABLED, notificationsEnabled);
     }
     
     public Boolean getEmailNotifications() {
-        return emailNotifications;
+        return hasFlag(EMAIL_NOTIFICATIONS);
     }
     
     public void setEmailNotifications(Boolean emailNotifications) {
-        this.emailNotifications = emailNotifications;
+        setFlag(EMAIL_NOTIFICATIONS, emailNotifications);
     }
     
     public Boolean getPushNotifications() {
-        return pushNotifications;
+        return hasFlag(PUSH_NOTIFICATIONS);
     }
     
     public void setPushNotifications(Boolean pushNotifications) {
-        this.pushNotifications = pushNotifications;
+        setFlag(PUSH_NOTIFICATIONS, pushNotifications);
     }
     
     public Boolean getSmsNotifications() {
-        return smsNotifications;
+        return hasFlag(SMS_NOTIFICATIONS);
     }
     
     public void setSmsNotifications(Boolean smsNotifications) {
-        this.smsNotifications = smsNotifications;
+        setFlag(SMS_NOTIFICATIONS, smsNotifications);
     }
     
     public Boolean getEcoTipsEnabled() {
-        return ecoTipsEnabled;
+        return hasFlag(ECO_TIPS_ENABLED);
     }
     
     public void setEcoTipsEnabled(Boolean ecoTipsEnabled) {
-        this.ecoTipsEnabled = ecoTipsEnabled;
+        setFlag(ECO_TIPS_ENABLED, ecoTipsEnabled);
     }
     
     public Boolean getChallengeReminders() {
-        return challengeReminders;
+        return hasFlag(CHALLENGE_REMINDERS);
     }
     
     public void setChallengeReminders(Boolean challengeReminders) {
-        this.challengeReminders = challengeReminders;
+        setFlag(CHALLENGE_REMINDERS, challengeReminders);
     }
     
     public Boolean getOrderUpdates() {
-        return orderUpdates;
+        return hasFlag(ORDER_UPDATES);
     }
     
     public void setOrderUpdates(Boolean orderUpdates) {
-        this.orderUpdates = orderUpdates;
+        setFlag(ORDER_UPDATES, orderUpdates);
     }
     
     public Boolean getPromotionalEmails() {
-        return promotionalEmails;
+        return hasFlag(PROMOTIONAL_EMAILS);
     }
     
     public void setPromotionalEmails(Boolean promotionalEmails) {
-        this.promotionalEmails = promotionalEmails;
+        setFlag(PROMOTIONAL_EMAILS, promotionalEmails);
     }
     
     public String getPrivacyLevel() {
-        return privacyLevel;
+        return PRIVACY_LEVELS.get(privacyCode);
     }
     
     public void setPrivacyLevel(String privacyLevel) {
-        this.privacyLevel = privacyLevel;
+        this.privacyCode = code(PRIVACY_LEVELS, "privacy level", privacyLevel);
     }
     
     public Boolean getDataSharing() {
-        return dataSharing;
+        return hasFlag(DATA_SHARING);
     }
     
     public void setDataSharing(Boolean dataSharing) {
-        this.dataSharing = dataSharing;
+        setFlag(DATA_SHARING, dataSharing);
     }
     
     public Boolean getLocationTracking() {
-        return locationTracking;
+        return hasFlag(LOCATION_TRACKING);
     }
     
     public void setLocationTracking(Boolean locationTracking) {
-        this.locationTracking = locationTracking;
+        setFlag(LOCATION_TRACKING, locationTracking);
     }
     
     public LocalDateTime getCreatedAt() {
@@ -206,4 +255,12 @@ public class UserSettings {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    private static byte code(List<String> table, String what, String value) {
+        int code = value != null ? table.indexOf(value.toLowerCase()) : -1;
+        if (code < 0) {
+            throw new IllegalArgumentException("Unsupported " + what + ": " + value);
+        }
+        return (byte) code;
+    }
 }
@@ -7,7 +7,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "wishlists")
+@Table(name = "wishlists", indexes = {
+    @Index(name = "uk_wishlists_user_id", columnList = "user_id", unique = true)
+})
 public class Wishlist {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -7,7 +7,10 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "wishlist_items")
+@Table(name = "wishlist_items", indexes = {
+    @Index(name = "idx_wishlist_items_wishlist_product", columnList = "wishlist_id, product_id"),
+    @Index(name = "idx_wishlist_items_product", columnList = "product_id")
+})
 public class WishlistItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,38 @@
+package com.ecobazaar.backend.model;
+
+import com.ecobazaar.backend.entity.OrderStatus;
+import com.ecobazaar.backend.entity.PaymentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order list item
+ *
+ * An order without its shipping address, billing address and delivery notes
+ * (TEXT columns), selected directly by query; the order detail returns them.
+ */
+public record OrderSummary(
+        Long id,
+        String orderId,
+        String userId,
+        String userEmail,
+        String userName,
+        String userPhone,
+        Double totalAmount,
+        Double taxAmount,
+        Double shippingAmount,
+        Double discountAmount,
+        String discountCode,
+        Double finalAmount,
+        OrderStatus orderStatus,
+        PaymentStatus paymentStatus,
+        String paymentMethod,
+        String paymentId,
+        LocalDateTime estimatedDelivery,
+        String trackingNumber,
+        Double carbonFootprint,
+        Integer ecoPointsEarned,
+        String currency,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
@@ -0,0 +1,25 @@
+package com.ecobazaar.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment detail
+ *
+ * A single payment as returned to clients. The raw gateway response and the
+ * idempotency key stay server-side and are not selected.
+ */
+public record PaymentDetail(
+        Long id,
+        String transactionId,
+        String orderId,
+        String userId,
+        Double amount,
+        String currency,
+        String paymentMethod,
+        String paymentGateway,
+        String gatewayTransactionId,
+        String status,
+        String failureReason,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
@@ -0,0 +1,20 @@
+package com.ecobazaar.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment list item
+ *
+ * What a payment history row needs, selected directly by query.
+ */
+public record PaymentSummary(
+        Long id,
+        String transactionId,
+        String orderId,
+        String userId,
+        Double amount,
+        String currency,
+        String paymentMethod,
+        String status,
+        LocalDateTime createdAt) {
+}
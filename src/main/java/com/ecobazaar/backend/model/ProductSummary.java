@@ -0,0 +1,25 @@
+package com.ecobazaar.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Product list item
+ *
+ * The product fields shown in catalogue lists, selected directly by query;
+ * the description (a TEXT column) is only returned by the product detail.
+ */
+public record ProductSummary(
+        Long id,
+        String name,
+        Double price,
+        Integer quantity,
+        String category,
+        String icon,
+        String color,
+        String imageUrl,
+        String storeId,
+        String storeName,
+        @JsonProperty("isActive") Boolean isActive,
+        Double carbonFootprint,
+        Integer ecoPoints) {
+}
@@ -1,9 +1,15 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.CartItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +19,48 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     Optional<CartItem> findByUserIdAndProductId(String userId, String productId);
     boolean existsByUserIdAndProductId(String userId, String productId);
     void deleteByUserIdAndProductId(String userId, String productId);
-    void deleteByUserId(String userId);
+    
+    // Empty a cart in one statement (no entity loading); returns the number of items removed
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+    
+    // Remove the given items from a user's cart; returns the number removed
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.userId = :userId AND c.id IN :ids")
+    int deleteByUserIdAndIdIn(@Param("userId") String userId, @Param("ids") Collection<Long> ids);
+    
+    // Remove a user's items added before a point in time; returns the number removed
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.userId = :userId AND c.createdAt <= :before")
+    int deleteByUserIdAddedBefore(@Param("userId") String userId, @Param("before") LocalDateTime before);
+    
     long countByUserId(String userId);
+    
+    // (productId, quantity) of the given products in a user's cart
+    @Query("SELECT c.productId, c.quantity FROM CartItem c WHERE c.userId = :userId AND c.productId IN :productIds")
+    List<Object[]> findQuantitiesByUserIdAndProductIdIn(@Param("userId") String userId,
+                                                         @Param("productIds") Collection<String> productIds);
+    
+    // (id, userId, productId) pages in id order, for the recommender's batch build
+    @Query("SELECT c.id, c.userId, c.productId FROM CartItem c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findUserProductPairsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // (id, userId) of a product's items whose copied product fields differ from the given ones
+    @Query("SELECT c.id, c.userId FROM CartItem c WHERE c.productId = :productId AND c.id > :afterId "
+            + "AND (COALESCE(c.productName, '') <> :name OR c.productPrice <> :price "
+            + "OR COALESCE(c.productImage, '') <> :image OR COALESCE(c.productCategory, '') <> :category) ORDER BY c.id")
+    List<Object[]> findStaleCopiesAfter(@Param("productId") String productId, @Param("name") String name,
+                                        @Param("price") Double price, @Param("image") String image,
+                                        @Param("category") String category, @Param("afterId") Long afterId,
+                                        Pageable pageable);
+    
+    // Refresh copied product fields (and the line total) on a chunk of items
+    @Modifying
+    @Query("UPDATE CartItem c SET c.productName = :name, c.productPrice = :price, c.price = :price, "
+            + "c.totalPrice = :price * c.quantity, c.productImage = :image, c.productCategory = :category, "
+            + "c.version = c.version + 1 WHERE c.id IN :ids")
+    int refreshProductCopies(@Param("ids") Collection<Long> ids, @Param("name") String name,
+                             @Param("price") Double price, @Param("image") String image,
+                             @Param("category") String category);
 }
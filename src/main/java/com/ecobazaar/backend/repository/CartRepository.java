@@ -1,15 +1,40 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.Cart;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByCartId(String cartId);
     Optional<Cart> findByUserId(String userId);
+    
+    // Locking read: sees a cart committed after the current transaction started
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM Cart c WHERE c.userId = :userId")
+    Optional<Cart> findByUserIdForShare(@Param("userId") String userId);
+    
+    // Create a user's cart unless one exists; a concurrent insert for the same user waits, then does nothing
+    @Modifying
+    @Query(value = "INSERT INTO carts (cart_id, user_id, total_items, total_amount, created_at, updated_at) "
+            + "VALUES (:cartId, :userId, 0, 0, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)) "
+            + "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfAbsent(@Param("cartId") String cartId, @Param("userId") String userId);
     boolean existsByCartId(String cartId);
     boolean existsByUserId(String userId);
+    
+    // Recompute the stored total of these users' carts from their items
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = "
+            + "(SELECT COALESCE(SUM(i.totalPrice), 0) FROM CartItem i WHERE i.userId = c.userId) "
+            + "WHERE c.userId IN :userIds")
+    int refreshTotals(@Param("userIds") Collection<String> userIds);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,12 @@ public interface EcoChallengeRepository extends JpaRepository<EcoChallenge, Long
     // Find by challenge ID
     Optional<EcoChallenge> findByChallengeId(String challengeId);
     
+    // Check a challenge exists without loading it
+    boolean existsByChallengeId(String challengeId);
+    
+    // Find several challenges by challenge ID
+    List<EcoChallenge> findByChallengeIdIn(Collection<String> challengeIds);
+    
     // Find all active challenges
     List<EcoChallenge> findByIsActiveTrue();
     
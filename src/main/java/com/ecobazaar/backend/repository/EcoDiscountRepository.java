@@ -2,6 +2,7 @@ package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.EcoDiscount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -59,4 +60,9 @@ public interface EcoDiscountRepository extends JpaRepository<EcoDiscount, Long>
     // Search discounts by title or description
     @Query("SELECT d FROM EcoDiscount d WHERE d.isActive = true AND (LOWER(d.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(d.description) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     List<EcoDiscount> searchDiscounts(@Param("keyword") String keyword);
-}
\ No newline at end of file
+    
+    // Atomically consume one redemption if the discount is active and below its usage limit
+    @Modifying
+    @Query("UPDATE EcoDiscount d SET d.currentUsageCount = COALESCE(d.currentUsageCount, 0) + 1, d.version = d.version + 1 WHERE d.discountCode = :discountCode AND d.isActive = true AND (d.usageLimit IS NULL OR COALESCE(d.currentUsageCount, 0) < d.usageLimit)")
+    int incrementUsageIfAvailable(@Param("discountCode") String discountCode);
+}
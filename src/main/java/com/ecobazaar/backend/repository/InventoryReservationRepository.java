@@ -0,0 +1,43 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.InventoryReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryReservationRepository extends JpaRepository<InventoryReservation, Long> {
+
+    // Find reservation by its business key
+    Optional<InventoryReservation> findByReservationId(String reservationId);
+
+    // Find reservations attached to an order
+    List<InventoryReservation> findByOrderId(String orderId);
+
+    // Find held reservations that are past their expiry (sweep after restart or missed ticks)
+    @Query("SELECT r FROM InventoryReservation r WHERE r.status = 'HELD' AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<InventoryReservation> findExpiredHolds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Move a user's held reservation to CONFIRMED for an order; returns 0 if it is not held for that user
+    @Modifying
+    @Query("UPDATE InventoryReservation r SET r.status = 'CONFIRMED', r.orderId = :orderId "
+            + "WHERE r.reservationId = :reservationId AND r.userId = :userId AND r.status = 'HELD'")
+    int confirm(@Param("reservationId") String reservationId, @Param("orderId") String orderId,
+                @Param("userId") String userId);
+
+    // Move a held reservation to a terminal status (RELEASED/EXPIRED); returns 0 if it is no longer held
+    @Modifying
+    @Query("UPDATE InventoryReservation r SET r.status = :status WHERE r.reservationId = :reservationId AND r.status = 'HELD'")
+    int endHold(@Param("reservationId") String reservationId, @Param("status") String status);
+
+    // Sum of stock currently held for a product
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM InventoryReservation r WHERE r.productId = :productId AND r.status = 'HELD'")
+    Long sumHeldQuantity(@Param("productId") Long productId);
+}
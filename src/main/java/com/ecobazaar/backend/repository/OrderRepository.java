@@ -2,6 +2,7 @@ package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.Order;
 import com.ecobazaar.backend.entity.OrderStatus;
+import com.ecobazaar.backend.model.OrderSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -31,5 +32,21 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT o FROM Order o ORDER BY o.createdAt DESC")
     List<Order> findAllOrderByCreatedAtDesc();
+    
+    // List views select only the OrderSummary columns (no address or delivery-note TEXT columns)
+    String SELECT_SUMMARY = "SELECT new com.ecobazaar.backend.model.OrderSummary(o.id, o.orderId, o.userId, "
+            + "o.userEmail, o.userName, o.userPhone, o.totalAmount, o.taxAmount, o.shippingAmount, "
+            + "o.discountAmount, o.discountCode, o.finalAmount, o.orderStatus, o.paymentStatus, o.paymentMethod, "
+            + "o.paymentId, o.estimatedDelivery, o.trackingNumber, o.carbonFootprint, o.ecoPointsEarned, "
+            + "o.currency, o.createdAt, o.updatedAt) FROM Order o ";
+    
+    @Query(SELECT_SUMMARY)
+    List<OrderSummary> findAllSummaries();
+    
+    @Query(SELECT_SUMMARY + "WHERE o.userId = :userId")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") String userId);
+    
+    @Query(SELECT_SUMMARY + "WHERE o.orderStatus = :status")
+    List<OrderSummary> findSummariesByOrderStatus(@Param("status") OrderStatus status);
 }
 
@@ -0,0 +1,43 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Find events that are due: pending ones, plus processing ones whose lease has expired
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status IN ('PENDING', 'PROCESSING') AND e.availableAt <= :now ORDER BY e.id")
+    List<OutboxEvent> findDueEvents(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Claim a due event for processing until leaseUntil; returns 0 if another worker got it first
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = 'PROCESSING', e.attempts = e.attempts + 1, e.availableAt = :leaseUntil WHERE e.id = :id AND e.status IN ('PENDING', 'PROCESSING') AND e.availableAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Mark a claimed event as processed
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = 'DONE', e.processedAt = :now, e.lastError = NULL WHERE e.id = :id")
+    int markDone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Release a claimed event after a failed attempt, as PENDING (retry at availableAt) or FAILED
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.availableAt = :availableAt, e.lastError = :error WHERE e.id = :id")
+    int release(@Param("id") Long id, @Param("status") String status,
+                @Param("availableAt") LocalDateTime availableAt, @Param("error") String error);
+
+    // Count events by status
+    long countByStatus(String status);
+}
@@ -1,7 +1,11 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.PaymentTransaction;
+import com.ecobazaar.backend.model.PaymentDetail;
+import com.ecobazaar.backend.model.PaymentSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +18,28 @@ public interface PaymentTransactionRepository extends JpaRepository<PaymentTrans
     List<PaymentTransaction> findByUserId(String userId);
     List<PaymentTransaction> findByStatus(String status);
     boolean existsByTransactionId(String transactionId);
+    Optional<PaymentTransaction> findByIdempotencyKey(String idempotencyKey);
+    long countByStatus(String status);
+    
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM PaymentTransaction t WHERE t.status = :status")
+    Double sumAmountByStatus(@Param("status") String status);
+    
+    // Client-facing reads never select gateway_response (TEXT) or the idempotency key
+    String SELECT_SUMMARY = "SELECT new com.ecobazaar.backend.model.PaymentSummary(t.id, t.transactionId, "
+            + "t.orderId, t.userId, t.amount, t.currency, t.paymentMethod, t.status, t.createdAt) "
+            + "FROM PaymentTransaction t ";
+    
+    @Query("SELECT new com.ecobazaar.backend.model.PaymentDetail(t.id, t.transactionId, t.orderId, t.userId, "
+            + "t.amount, t.currency, t.paymentMethod, t.paymentGateway, t.gatewayTransactionId, t.status, "
+            + "t.failureReason, t.createdAt, t.updatedAt) FROM PaymentTransaction t WHERE t.transactionId = :transactionId")
+    Optional<PaymentDetail> findDetailByTransactionId(@Param("transactionId") String transactionId);
+    
+    @Query(SELECT_SUMMARY)
+    List<PaymentSummary> findAllSummaries();
+    
+    @Query(SELECT_SUMMARY + "WHERE t.userId = :userId")
+    List<PaymentSummary> findSummariesByUserId(@Param("userId") String userId);
+    
+    @Query(SELECT_SUMMARY + "WHERE t.orderId = :orderId")
+    List<PaymentSummary> findSummariesByOrderId(@Param("orderId") String orderId);
 }
@@ -0,0 +1,24 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.PriceAlert;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
+    List<PriceAlert> findByUserIdOrderByIdDesc(String userId, Pageable pageable);
+    long countByUserIdAndIsReadFalse(String userId);
+
+    // Mark all of a user's alerts as read; returns the number changed
+    @Transactional
+    @Modifying
+    @Query("UPDATE PriceAlert a SET a.isRead = true WHERE a.userId = :userId AND a.isRead = false")
+    int markAllRead(@Param("userId") String userId);
+}
@@ -0,0 +1,9 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.ProcessedOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProcessedOutboxEventRepository extends JpaRepository<ProcessedOutboxEvent, Long> {
+}
@@ -1,15 +1,45 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.model.ProductSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    
+    // List views select only the ProductSummary columns (no TEXT description)
+    String SELECT_SUMMARY = "SELECT new com.ecobazaar.backend.model.ProductSummary(p.id, p.name, p.price, "
+            + "p.quantity, p.category, p.icon, p.color, p.imageUrl, p.storeId, p.storeName, p.isActive, "
+            + "p.carbonFootprint, p.ecoPoints) FROM Product p ";
+    
+    @Query(SELECT_SUMMARY)
+    List<ProductSummary> findAllSummaries();
+    
+    @Query(SELECT_SUMMARY + "WHERE p.category = :category")
+    List<ProductSummary> findSummariesByCategory(@Param("category") String category);
+    
+    @Query(SELECT_SUMMARY + "WHERE p.storeId = :storeId")
+    List<ProductSummary> findSummariesByStoreId(@Param("storeId") String storeId);
+    
+    // Names containing query, ignoring case; the caller escapes %, _ and ! in query with !
+    @Query(SELECT_SUMMARY + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!'")
+    List<ProductSummary> findSummariesByNameContaining(@Param("query") String query);
+    
+    // Active products in id order, one page at a time, for the recommender's build
+    @Query(SELECT_SUMMARY + "WHERE p.id > :afterId AND (p.isActive IS NULL OR p.isActive = true) ORDER BY p.id")
+    List<ProductSummary> findActiveSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
     List<Product> findByStoreId(String storeId);
     List<Product> findByCategory(String category);
     List<Product> findByIsActiveTrue();
@@ -27,5 +57,40 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     @Query("SELECT COUNT(p) FROM Product p WHERE p.storeId = :storeId")
     Long countByStoreId(@Param("storeId") String storeId);
+    
+    // Ids of a store's products whose copied store name differs from the given one
+    @Query("SELECT p.id FROM Product p WHERE p.storeId = :storeId AND p.id > :afterId "
+            + "AND COALESCE(p.storeName, '') <> :storeName ORDER BY p.id")
+    List<Long> findStaleStoreNamesAfter(@Param("storeId") String storeId, @Param("storeName") String storeName,
+                                        @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.storeName = :storeName, p.version = p.version + 1 WHERE p.id IN :ids")
+    int refreshStoreNames(@Param("ids") Collection<Long> ids, @Param("storeName") String storeName);
+    
+    // Current price of a product, without loading the entity
+    @Query("SELECT p.price FROM Product p WHERE p.id = :id")
+    Optional<Double> findPriceById(@Param("id") Long id);
+    
+    // Page through product ids, for a full denormalization resync
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Take stock only if enough is left; returns 0 instead of going negative
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :amount, p.version = p.version + 1 WHERE p.id = :id AND p.quantity >= :amount")
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("amount") int amount);
+    
+    // Same as decrementStockIfAvailable, committed on its own regardless of the caller's transaction
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :amount, p.version = p.version + 1 WHERE p.id = :id AND p.quantity >= :amount")
+    int decrementStockIfAvailableNow(@Param("id") Long id, @Param("amount") int amount);
+    
+    // Return stock, committed on its own regardless of the caller's transaction
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :amount, p.version = p.version + 1 WHERE p.id = :id")
+    int incrementStockNow(@Param("id") Long id, @Param("amount") int amount);
 }
 
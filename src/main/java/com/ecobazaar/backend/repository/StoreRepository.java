@@ -1,7 +1,10 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.Store;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,4 +21,8 @@ public interface StoreRepository extends JpaRepository<Store, Long> {
     List<Store> findByStoreNameContainingIgnoreCase(String name);
     boolean existsByStoreId(String storeId);
     boolean existsByOwnerId(String ownerId);
+    
+    // Page of (id, storeId) rows after a given id, for a full denormalization resync
+    @Query("SELECT s.id, s.storeId FROM Store s WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findStoreIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -1,11 +1,17 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.UserChallengeProgress;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,18 +21,62 @@ public interface UserChallengeProgressRepository extends JpaRepository<UserChall
     // Find progress by user and challenge
     Optional<UserChallengeProgress> findByUserIdAndChallengeId(String userId, String challengeId);
     
+    // Locking read: sees a row committed after the current transaction started
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT p FROM UserChallengeProgress p WHERE p.userId = :userId AND p.challengeId = :challengeId")
+    Optional<UserChallengeProgress> findByUserIdAndChallengeIdForShare(@Param("userId") String userId,
+                                                                       @Param("challengeId") String challengeId);
+    
+    // Add delta (clamped at zero progress) to a user's progress on a challenge, creating the row
+    // if it does not exist; concurrent calls for the same user and challenge each count once.
+    // The percentage is assigned first so it reads the old progress on MySQL and H2 alike
+    @Modifying
+    @Query(value = "INSERT INTO user_challenge_progress (user_id, challenge_id, eco_challenge_id, current_progress, "
+            + "progress_percentage, is_completed, points_earned, started_at, created_at, updated_at) "
+            + "VALUES (:userId, :challengeId, :ecoChallengeId, GREATEST(:delta, 0), "
+            + "LEAST(100, GREATEST(:delta, 0) * 100.0 / GREATEST(:target, 1)), false, 0, "
+            + "CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "progress_percentage = LEAST(100, GREATEST(current_progress + :delta, 0) * 100.0 / GREATEST(:target, 1)), "
+            + "current_progress = GREATEST(current_progress + :delta, 0), "
+            + "eco_challenge_id = COALESCE(eco_challenge_id, :ecoChallengeId), "
+            + "updated_at = CURRENT_TIMESTAMP(6)", nativeQuery = true)
+    int addProgress(@Param("userId") String userId, @Param("challengeId") String challengeId,
+                    @Param("ecoChallengeId") Long ecoChallengeId, @Param("delta") int delta,
+                    @Param("target") int target);
+    
+    // Complete the progress if it has reached target; only the call that completes it gets 1
+    @Modifying
+    @Query("UPDATE UserChallengeProgress p SET p.isCompleted = true, p.completedAt = :now, p.pointsEarned = :points "
+            + "WHERE p.userId = :userId AND p.challengeId = :challengeId AND p.isCompleted = false "
+            + "AND p.currentProgress >= :target")
+    int completeIfReached(@Param("userId") String userId, @Param("challengeId") String challengeId,
+                          @Param("target") int target, @Param("points") Integer points,
+                          @Param("now") LocalDateTime now);
+    
+    // Find progress rows for a batch of users and challenges
+    List<UserChallengeProgress> findByUserIdInAndChallengeIdIn(Collection<String> userIds, Collection<String> challengeIds);
+    
     // Find all progress for a user
     List<UserChallengeProgress> findByUserId(String userId);
     
-    // Find completed challenges for a user
-    List<UserChallengeProgress> findByUserIdAndIsCompletedTrue(String userId);
+    // Find all progress for a user with the challenge loaded in the same query
+    @Query("SELECT p FROM UserChallengeProgress p LEFT JOIN FETCH p.ecoChallenge WHERE p.userId = :userId")
+    List<UserChallengeProgress> findByUserIdWithChallenge(@Param("userId") String userId);
     
-    // Find active (incomplete) challenges for a user
-    List<UserChallengeProgress> findByUserIdAndIsCompletedFalse(String userId);
+    // Find completed (or active) challenges for a user with the challenge loaded in the same query
+    @Query("SELECT p FROM UserChallengeProgress p LEFT JOIN FETCH p.ecoChallenge "
+            + "WHERE p.userId = :userId AND p.isCompleted = :completed")
+    List<UserChallengeProgress> findByUserIdAndCompletedWithChallenge(@Param("userId") String userId,
+                                                                     @Param("completed") boolean completed);
     
     // Find progress by challenge ID
     List<UserChallengeProgress> findByChallengeId(String challengeId);
     
+    // Per-completion-state count, points and average progress for a user in one query
+    @Query("SELECT p.isCompleted, COUNT(p), COALESCE(SUM(p.pointsEarned), 0), AVG(p.progressPercentage) FROM UserChallengeProgress p WHERE p.userId = :userId GROUP BY p.isCompleted")
+    List<Object[]> summarizeUserProgress(@Param("userId") String userId);
+    
     // Get user's total earned points
     @Query("SELECT COALESCE(SUM(p.pointsEarned), 0) FROM UserChallengeProgress p WHERE p.userId = :userId AND p.isCompleted = true")
     Integer getTotalPointsEarnedByUser(@Param("userId") String userId);
@@ -47,13 +97,17 @@ public interface UserChallengeProgressRepository extends JpaRepository<UserChall
     @Query("SELECT p.userId FROM UserChallengeProgress p WHERE p.challengeId = :challengeId AND p.isCompleted = true")
     List<String> findUsersWhoCompletedChallenge(@Param("challengeId") String challengeId);
     
+    // Participants of a challenge grouped by completion state and 10% progress bucket
+    @Query("SELECT p.isCompleted, FLOOR(p.progressPercentage / 10), COUNT(p) FROM UserChallengeProgress p WHERE p.challengeId = :challengeId GROUP BY p.isCompleted, FLOOR(p.progressPercentage / 10)")
+    List<Object[]> countProgressBuckets(@Param("challengeId") String challengeId);
+    
     // Get challenge completion rate
     @Query("SELECT (COUNT(CASE WHEN p.isCompleted = true THEN 1 END) * 100.0 / COUNT(*)) FROM UserChallengeProgress p WHERE p.challengeId = :challengeId")
     Double getChallengeCompletionRate(@Param("challengeId") String challengeId);
     
-    // Find top performing users by total points
-    @Query("SELECT p.userId, SUM(p.pointsEarned) as totalPoints FROM UserChallengeProgress p WHERE p.isCompleted = true GROUP BY p.userId ORDER BY totalPoints DESC")
-    List<Object[]> findTopUsersByPoints();
+    // Find top performing users by total points, one page at a time
+    @Query("SELECT p.userId, SUM(p.pointsEarned) as totalPoints FROM UserChallengeProgress p WHERE p.isCompleted = true GROUP BY p.userId ORDER BY totalPoints DESC, p.userId")
+    List<Object[]> findTopUsersByPoints(Pageable pageable);
     
     // Find user's progress in specific categories
     @Query("SELECT p FROM UserChallengeProgress p JOIN p.ecoChallenge c WHERE p.userId = :userId AND c.category = :category")
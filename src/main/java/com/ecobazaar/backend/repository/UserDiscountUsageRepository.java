@@ -25,6 +25,10 @@ public interface UserDiscountUsageRepository extends JpaRepository<UserDiscountU
     @Query("SELECT COUNT(u) FROM UserDiscountUsage u WHERE u.userId = :userId AND u.discountCode = :discountCode")
     Long countUserDiscountUsage(@Param("userId") String userId, @Param("discountCode") String discountCode);
     
+    // Count a user's usage of every discount code in one query
+    @Query("SELECT u.discountCode, COUNT(u) FROM UserDiscountUsage u WHERE u.userId = :userId GROUP BY u.discountCode")
+    List<Object[]> countUsageByDiscountCodeForUser(@Param("userId") String userId);
+    
     // Get total discount amount saved by user
     @Query("SELECT COALESCE(SUM(u.discountAmount), 0) FROM UserDiscountUsage u WHERE u.userId = :userId")
     Double getTotalDiscountSavedByUser(@Param("userId") String userId);
@@ -1,9 +1,12 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.UserEcoProfile;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -18,6 +21,26 @@ public interface UserEcoProfileRepository extends JpaRepository<UserEcoProfile,
     // Find by user ID
     Optional<UserEcoProfile> findByUserId(String userId);
     
+    // Locking read: sees a profile committed after the current transaction started
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT u FROM UserEcoProfile u WHERE u.userId = :userId")
+    Optional<UserEcoProfile> findByUserIdForShare(@Param("userId") String userId);
+    
+    // Create a user's profile with the entity's defaults unless one exists; a concurrent insert
+    // for the same user waits, then does nothing
+    @Modifying
+    @Query(value = "INSERT INTO user_eco_profiles (version, user_id, user_name, user_email, total_eco_points, "
+            + "eco_level, level_name, total_carbon_saved, total_water_saved, total_energy_saved, total_waste_reduced, "
+            + "trees_equivalent, total_challenges_completed, active_challenges, challenge_completion_rate, "
+            + "current_streak_days, longest_streak_days, last_activity_date, total_orders, total_spent, "
+            + "total_savings_from_discounts, eco_products_purchased, total_badges, total_referrals, "
+            + "community_contributions, is_public_profile, show_on_leaderboard, created_at, updated_at) "
+            + "VALUES (0, :userId, :userName, :userEmail, 0, 1, 'Eco Beginner', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "
+            + "CURRENT_TIMESTAMP(6), 0, 0, 0, 0, 0, 0, 0, TRUE, TRUE, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)) "
+            + "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") String userId, @Param("userName") String userName,
+                       @Param("userEmail") String userEmail);
+    
     // Leaderboard Queries - By Eco Points
     @Query("SELECT u FROM UserEcoProfile u WHERE u.showOnLeaderboard = true ORDER BY u.totalEcoPoints DESC")
     Page<UserEcoProfile> findLeaderboardByEcoPoints(Pageable pageable);
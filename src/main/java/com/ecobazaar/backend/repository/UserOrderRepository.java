@@ -1,9 +1,14 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.UserOrder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +21,19 @@ public interface UserOrderRepository extends JpaRepository<UserOrder, Long> {
     List<UserOrder> findByStoreId(String storeId);
     List<UserOrder> findByOrderStatus(String orderStatus);
     boolean existsByUserOrderId(String userOrderId);
+    
+    // (id, userId, productId) of non-cancelled order lines in id order, for the recommender's batch build
+    @Query("SELECT o.id, o.userId, o.productId FROM UserOrder o WHERE o.id > :afterId "
+            + "AND (o.orderStatus IS NULL OR o.orderStatus <> 'CANCELLED') ORDER BY o.id")
+    List<Object[]> findUserProductPairsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Ids of a store's order lines whose copied store name differs from the given one
+    @Query("SELECT o.id FROM UserOrder o WHERE o.storeId = :storeId AND o.id > :afterId "
+            + "AND COALESCE(o.storeName, '') <> :storeName ORDER BY o.id")
+    List<Long> findStaleStoreNamesAfter(@Param("storeId") String storeId, @Param("storeName") String storeName,
+                                        @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE UserOrder o SET o.storeName = :storeName WHERE o.id IN :ids")
+    int refreshStoreNames(@Param("ids") Collection<Long> ids, @Param("storeName") String storeName);
 }
@@ -1,13 +1,30 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.UserSettings;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserSettingsRepository extends JpaRepository<UserSettings, Long> {
     Optional<UserSettings> findByUserId(String userId);
     boolean existsByUserId(String userId);
+    
+    // Page of (id, flags) rows after a given id, for building the audience index
+    @Query("SELECT s.id, s.flags FROM UserSettings s WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findFlagsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Resolve audience index ordinals (row ids) to user ids
+    @Query("SELECT s.userId FROM UserSettings s WHERE s.id IN :ids ORDER BY s.id")
+    List<String> findUserIdsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // (userId, flags) for a batch of users; users without settings are absent
+    @Query("SELECT s.userId, s.flags FROM UserSettings s WHERE s.userId IN :userIds")
+    List<Object[]> findFlagsByUserIdIn(@Param("userIds") Collection<String> userIds);
 }
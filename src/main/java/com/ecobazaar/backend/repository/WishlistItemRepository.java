@@ -1,9 +1,14 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.WishlistItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +19,49 @@ public interface WishlistItemRepository extends JpaRepository<WishlistItem, Long
     boolean existsByWishlistIdAndProductId(String wishlistId, String productId);
     void deleteByWishlistIdAndProductId(String wishlistId, String productId);
     long countByWishlistId(String wishlistId);
+    
+    // Empty a wishlist in one statement (no entity loading); returns the number of items removed
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM WishlistItem i WHERE i.wishlistId = :wishlistId")
+    int deleteByWishlistId(@Param("wishlistId") String wishlistId);
+    
+    // Product ids in a user's wishlist; empty if the user has no wishlist
+    @Query("SELECT i.productId FROM WishlistItem i WHERE i.wishlistId IN "
+            + "(SELECT w.wishlistId FROM Wishlist w WHERE w.userId = :userId)")
+    List<String> findProductIdsByUserId(@Param("userId") String userId);
+    
+    // (id, userId, productId) pages in id order, for the recommender's batch build
+    @Query("SELECT i.id, w.userId, i.productId FROM WishlistItem i, Wishlist w "
+            + "WHERE w.wishlistId = i.wishlistId AND i.id > :afterId ORDER BY i.id")
+    List<Object[]> findUserProductPairsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // (id, userId, productPrice) of items whose saved price is above newPrice, in id order
+    // after afterId; a range scan of the product_id index, whatever the table size
+    @Query("SELECT i.id, w.userId, i.productPrice FROM WishlistItem i, Wishlist w "
+            + "WHERE w.wishlistId = i.wishlistId AND i.productId = :productId AND i.id > :afterId "
+            + "AND (i.productPrice IS NULL OR i.productPrice > :newPrice) ORDER BY i.id")
+    List<Object[]> findPriceDropHoldersAfter(@Param("productId") String productId, @Param("newPrice") Double newPrice,
+                                             @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Record the price the holders of these items have now been told about
+    @Modifying
+    @Query("UPDATE WishlistItem i SET i.productPrice = :price WHERE i.id IN :ids")
+    int updateProductPrice(@Param("ids") Collection<Long> ids, @Param("price") Double price);
+    
+    // Ids of a product's items with a different copied name or image, or a saved price below
+    // the current one (drops are left to the price-drop watcher)
+    @Query("SELECT i.id FROM WishlistItem i WHERE i.productId = :productId AND i.id > :afterId "
+            + "AND (COALESCE(i.productName, '') <> :name OR COALESCE(i.productImage, '') <> :image "
+            + "OR i.productPrice < :price) ORDER BY i.id")
+    List<Long> findStaleCopiesAfter(@Param("productId") String productId, @Param("name") String name,
+                                    @Param("price") Double price, @Param("image") String image,
+                                    @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Refresh copied product fields on a chunk of items; a saved price is only ever raised here
+    @Modifying
+    @Query("UPDATE WishlistItem i SET i.productName = :name, i.productImage = :image, "
+            + "i.productPrice = CASE WHEN i.productPrice < :price THEN :price ELSE i.productPrice END "
+            + "WHERE i.id IN :ids")
+    int refreshProductCopies(@Param("ids") Collection<Long> ids, @Param("name") String name,
+                             @Param("price") Double price, @Param("image") String image);
 }
@@ -1,7 +1,12 @@
 package com.ecobazaar.backend.repository;
 
 import com.ecobazaar.backend.entity.Wishlist;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,6 +15,18 @@ import java.util.Optional;
 public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
     Optional<Wishlist> findByWishlistId(String wishlistId);
     Optional<Wishlist> findByUserId(String userId);
+    
+    // Locking read: sees a wishlist committed after the current transaction started
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT w FROM Wishlist w WHERE w.userId = :userId")
+    Optional<Wishlist> findByUserIdForShare(@Param("userId") String userId);
+    
+    // Create a user's wishlist unless one exists; a concurrent insert for the same user waits, then does nothing
+    @Modifying
+    @Query(value = "INSERT INTO wishlists (wishlist_id, user_id, total_items, created_at, updated_at) "
+            + "VALUES (:wishlistId, :userId, 0, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)) "
+            + "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfAbsent(@Param("wishlistId") String wishlistId, @Param("userId") String userId);
     boolean existsByWishlistId(String wishlistId);
     boolean existsByUserId(String userId);
 }
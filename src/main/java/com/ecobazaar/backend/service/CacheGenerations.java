@@ -0,0 +1,85 @@
+package com.ecobazaar.backend.service;
+
+/**
+ * Cache Generations
+ *
+ * Per-key generation counters that stop a read-through cache from storing a
+ * value loaded before a concurrent invalidation of the same key: a reader
+ * notes the key's generation before loading and puts only if it is unchanged,
+ * while an invalidation bumps it before evicting. Keys are hashed onto a
+ * fixed number of stripes, so memory stays bounded however many keys are
+ * seen; keys that share a stripe only cost each other an occasional skipped
+ * put, never a stale one, and writes to one key do not block reads of others.
+ */
+final class CacheGenerations {
+
+    private final Stripe[] stripes;
+
+    CacheGenerations(int stripeCount) {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * The key's generation, to pass to {@link #putIfCurrent} once the value is loaded.
+     */
+    long read(Object key) {
+        return stripe(key).read();
+    }
+
+    /**
+     * Run put unless key was invalidated since generation was read.
+     *
+     * @return true if put ran
+     */
+    boolean putIfCurrent(Object key, long generation, Runnable put) {
+        return stripe(key).putIfCurrent(generation, put);
+    }
+
+    /**
+     * Bump the key's generation, then run evict. A put that has not happened
+     * yet is skipped, and one that has is undone by evict.
+     */
+    void invalidate(Object key, Runnable evict) {
+        stripe(key).bump();
+        evict.run();
+    }
+
+    /**
+     * Bump every generation, then run clear; for caches whose entries are all
+     * invalidated together.
+     */
+    void invalidateAll(Runnable clear) {
+        for (Stripe stripe : stripes) {
+            stripe.bump();
+        }
+        clear.run();
+    }
+
+    private Stripe stripe(Object key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static final class Stripe {
+        private long generation;
+
+        synchronized long read() {
+            return generation;
+        }
+
+        synchronized void bump() {
+            generation++;
+        }
+
+        synchronized boolean putIfCurrent(long expected, Runnable put) {
+            if (generation != expected) {
+                return false;
+            }
+            put.run();
+            return true;
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.ecobazaar.backend.service;
 
+import com.ecobazaar.backend.config.RetryOnConflict;
 import com.ecobazaar.backend.entity.Cart;
 import com.ecobazaar.backend.entity.CartItem;
 import com.ecobazaar.backend.entity.User;
 import com.ecobazaar.backend.repository.CartRepository;
 import com.ecobazaar.backend.repository.CartItemRepository;
 import com.ecobazaar.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class CartService {
 
+    private static final Logger log = LoggerFactory.getLogger(CartService.class);
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -25,26 +32,41 @@ public class CartService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private UpsertSupport upsertSupport;
+
     // Get or create cart for a user
     private Cart getOrCreateCart(String userId) {
-        Optional<Cart> existingCart = cartRepository.findByUserId(userId);
-        if (existingCart.isPresent()) {
-            return existingCart.get();
+        return upsertSupport.getOrInsert("cart:" + userId,
+                () -> cartRepository.findByUserId(userId),
+                () -> cartRepository.findByUserIdForShare(userId),
+                () -> cartRepository.insertIfAbsent(idGenerator.nextId("cart_"), userId));
+    }
+
+    // Quantities in the user's cart for the given products (absent products are left out)
+    public Map<String, Integer> getCartQuantities(String userId, Collection<String> productIds) {
+        Map<String, Integer> quantities = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return quantities;
         }
-        
-        // Create new cart for user
-        String cartId = "cart_" + userId + "_" + System.currentTimeMillis();
-        Cart newCart = new Cart(cartId, userId);
-        return cartRepository.save(newCart);
+        for (Object[] row : cartItemRepository.findQuantitiesByUserIdAndProductIdIn(userId, productIds)) {
+            Integer quantity = row[1] != null ? ((Number) row[1]).intValue() : 1;
+            quantities.merge((String) row[0], quantity, Integer::sum);
+        }
+        return quantities;
     }
 
     // Add item to cart
+    @RetryOnConflict
     @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> addToCart(String userId, String productId, String productName, 
                                        Double productPrice, String productImage, String productCategory, 
                                        Integer quantity, Double carbonFootprint) {
         try {
-            System.out.println("🛒 DEBUG: Adding to cart - userId: " + userId + ", productId: " + productId + ", price: " + productPrice);
+            log.debug("Adding to cart - userId: {}, productId: {}, price: {}", userId, productId, productPrice);
             
             // Validate inputs first
             if (userId == null || userId.trim().isEmpty()) {
@@ -55,7 +77,7 @@ public class CartService {
             }
             
             Cart cart = getOrCreateCart(userId);
-            System.out.println("🛒 DEBUG: Cart obtained - cartId: " + cart.getCartId());
+            log.debug("Cart obtained - cartId: {}", cart.getCartId());
             
             // Check if item already exists in cart
             Optional<CartItem> existingItem = cartItemRepository.findByUserIdAndProductId(userId, productId);
@@ -68,7 +90,7 @@ public class CartService {
                 item.setQuantity(newQuantity);
                 item.calculateTotalPrice(); // Recalculate total price
                 savedItem = cartItemRepository.save(item);
-                System.out.println("🛒 DEBUG: Updated existing item - new quantity: " + newQuantity);
+                log.debug("Updated existing item - new quantity: {}", newQuantity);
             } else {
                 // Add new item to cart
                 CartItem newItem = new CartItem(
@@ -84,26 +106,28 @@ public class CartService {
                 );
                 newItem.calculateTotalPrice(); // Calculate total price
                 savedItem = cartItemRepository.save(newItem);
-                System.out.println("🛒 DEBUG: Created new item - itemId: " + savedItem.getId());
+                log.debug("Created new item - itemId: {}", savedItem.getId());
             }
             
             // Update cart totals
             updateCartTotals(cart);
-            System.out.println("🛒 DEBUG: Cart totals updated successfully");
+            log.debug("Cart totals updated for cartId: {}", cart.getCartId());
             
             return Map.of(
                 "success", true,
                 "message", "Item added to cart successfully",
                 "itemId", savedItem.getId()
             );
+        } catch (OptimisticLockingFailureException e) {
+            throw e; // retried by OptimisticRetryAspect
         } catch (Exception e) {
-            System.err.println("🛒 ERROR: Failed to add to cart: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to add to cart - userId: {}, productId: {}", userId, productId, e);
             throw new RuntimeException("Failed to add item to cart: " + e.getMessage(), e);
         }
     }
 
     // Remove item from cart
+    @RetryOnConflict
     @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> removeFromCart(String userId, String productId) {
         try {
@@ -132,6 +156,8 @@ public class CartService {
                 "success", true,
                 "message", "Item removed from cart successfully"
             );
+        } catch (OptimisticLockingFailureException e) {
+            throw e; // retried by OptimisticRetryAspect
         } catch (Exception e) {
             return Map.of(
                 "success", false,
@@ -141,6 +167,7 @@ public class CartService {
     }
 
     // Update item quantity in cart
+    @RetryOnConflict
     @Transactional
     public Map<String, Object> updateCartItemQuantity(String userId, String productId, Integer quantity) {
         try {
@@ -173,6 +200,8 @@ public class CartService {
                 "success", true,
                 "message", "Cart updated successfully"
             );
+        } catch (OptimisticLockingFailureException e) {
+            throw e; // retried by OptimisticRetryAspect
         } catch (Exception e) {
             return Map.of(
                 "success", false,
@@ -208,7 +237,7 @@ public class CartService {
                 return itemMap;
             }).collect(Collectors.toList());
         } catch (Exception e) {
-            System.err.println("Error getting user cart: " + e.getMessage());
+            log.warn("Error getting user cart for userId {}: {}", userId, e.getMessage());
             return new ArrayList<>();
         }
     }
@@ -217,7 +246,7 @@ public class CartService {
     @Transactional
     public Map<String, Object> clearCart(String userId) {
         try {
-            cartItemRepository.deleteByUserId(userId);
+            int removedItems = cartItemRepository.deleteByUserId(userId);
             
             // Also clean up the Cart entry if it exists
             Optional<Cart> cart = cartRepository.findByUserId(userId);
@@ -230,7 +259,8 @@ public class CartService {
             
             return Map.of(
                 "success", true,
-                "message", "Cart cleared successfully"
+                "message", "Cart cleared successfully",
+                "removedItems", removedItems
             );
         } catch (Exception e) {
             return Map.of(
@@ -240,6 +270,22 @@ public class CartService {
         }
     }
 
+    // Remove the items an order was placed for, leaving anything added since
+    @Transactional
+    public int removeOrderedItems(String userId, Collection<Long> itemIds) {
+        int removedItems = itemIds.isEmpty() ? 0 : cartItemRepository.deleteByUserIdAndIdIn(userId, itemIds);
+        cartRepository.findByUserId(userId).ifPresent(this::updateCartTotals);
+        return removedItems;
+    }
+
+    // Remove the items added before a point in time (an order placed without an item list)
+    @Transactional
+    public int removeItemsAddedBefore(String userId, LocalDateTime before) {
+        int removedItems = cartItemRepository.deleteByUserIdAddedBefore(userId, before);
+        cartRepository.findByUserId(userId).ifPresent(this::updateCartTotals);
+        return removedItems;
+    }
+
     // Get cart summary
     public Map<String, Object> getCartSummary(String userId) {
         try {
@@ -260,7 +306,7 @@ public class CartService {
             
             return summary;
         } catch (Exception e) {
-            System.err.println("Error getting cart summary: " + e.getMessage());
+            log.warn("Error getting cart summary for userId {}: {}", userId, e.getMessage());
             return new HashMap<>();
         }
     }
@@ -303,7 +349,7 @@ public class CartService {
                 return cartMap;
             }).collect(Collectors.toList());
         } catch (Exception e) {
-            System.err.println("Error getting all carts: " + e.getMessage());
+            log.warn("Error getting all carts: {}", e.getMessage());
             return new ArrayList<>();
         }
     }
@@ -352,7 +398,7 @@ public class CartService {
             
             return "Guest User";
         } catch (Exception e) {
-            System.err.println("Error fetching username for userId: " + userId + ", Error: " + e.getMessage());
+            log.warn("Error fetching username for userId {}: {}", userId, e.getMessage());
             return userId != null ? ("User " + userId) : "Guest User";
         }
     }
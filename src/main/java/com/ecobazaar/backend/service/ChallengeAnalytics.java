@@ -0,0 +1,140 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.repository.EcoChallengeRepository;
+import com.ecobazaar.backend.repository.UserChallengeProgressRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Challenge Analytics
+ *
+ * Per-challenge participation, completion and progress-distribution counters
+ * kept in memory. A challenge's counters are seeded from one grouped query the
+ * first time they are read, then moved incrementally as progress changes
+ * commit, so reads cost a fixed number of counter lookups. Counters are
+ * re-seeded after challenges.analytics.reseed-interval-ms to bound any drift.
+ * Only existing challenges get counters, so the map holds at most one entry
+ * per challenge; an unknown id reads as empty, and a deleted challenge's
+ * counters are dropped.
+ */
+@Component
+public class ChallengeAnalytics {
+
+    // Progress histogram buckets of 10 percentage points; 100% falls in the last one
+    private static final int BUCKETS = 10;
+
+    @Autowired
+    private UserChallengeProgressRepository progressRepository;
+
+    @Autowired
+    private EcoChallengeRepository ecoChallengeRepository;
+
+    @Value("${challenges.analytics.reseed-interval-ms:600000}")
+    private long reseedIntervalMs;
+
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public Map<String, Object> getAnalytics(String challengeId) {
+        Counters current = counters.get(challengeId);
+        if (current == null || current.isOlderThan(reseedIntervalMs)) {
+            if (ecoChallengeRepository.existsByChallengeId(challengeId)) {
+                current = seed(challengeId);
+            } else {
+                counters.remove(challengeId);
+                current = new Counters();
+            }
+        }
+
+        long participants = current.participants.get();
+        long completed = current.completed.get();
+
+        List<Map<String, Object>> distribution = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("range", (i * 10) + "-" + (i == BUCKETS - 1 ? 100 : (i + 1) * 10));
+            bucket.put("count", current.histogram.get(i));
+            distribution.add(bucket);
+        }
+
+        Map<String, Object> analytics = new HashMap<>();
+        analytics.put("totalParticipants", participants);
+        analytics.put("completedUsers", completed);
+        analytics.put("completionRate", participants > 0 ? completed * 100.0 / participants : 0.0);
+        analytics.put("activeParticipants", participants - completed);
+        analytics.put("progressDistribution", distribution);
+        return analytics;
+    }
+
+    /**
+     * Record a change to one user's progress on a challenge. Applied after the
+     * surrounding transaction commits; ignored if the challenge's counters have
+     * not been seeded yet, since seeding will read the committed row.
+     *
+     * @param oldPercentage progress before the change, or null for a new participant
+     */
+    public void recordChange(String challengeId, Double oldPercentage, boolean wasCompleted,
+                             double newPercentage, boolean isCompleted) {
+        Runnable apply = () -> {
+            Counters current = counters.get(challengeId);
+            if (current == null) {
+                return;
+            }
+            if (oldPercentage == null) {
+                current.participants.incrementAndGet();
+            } else {
+                current.histogram.decrementAndGet(bucketOf(oldPercentage));
+            }
+            current.histogram.incrementAndGet(bucketOf(newPercentage));
+            if (isCompleted && !wasCompleted) {
+                current.completed.incrementAndGet();
+            } else if (wasCompleted && !isCompleted) {
+                current.completed.decrementAndGet();
+            }
+        };
+
+        TransactionCallbacks.afterCommit(apply);
+    }
+
+    /**
+     * Drop a challenge's counters so the next read re-seeds them.
+     */
+    public void invalidate(String challengeId) {
+        counters.remove(challengeId);
+    }
+
+    private Counters seed(String challengeId) {
+        Counters seeded = new Counters();
+        for (Object[] row : progressRepository.countProgressBuckets(challengeId)) {
+            long count = ((Number) row[2]).longValue();
+            int bucket = row[1] != null ? Math.min(BUCKETS - 1, Math.max(0, ((Number) row[1]).intValue())) : 0;
+            seeded.participants.addAndGet(count);
+            seeded.histogram.addAndGet(bucket, count);
+            if (Boolean.TRUE.equals(row[0])) {
+                seeded.completed.addAndGet(count);
+            }
+        }
+        counters.put(challengeId, seeded);
+        return seeded;
+    }
+
+    private static int bucketOf(double percentage) {
+        return Math.min(BUCKETS - 1, Math.max(0, (int) (percentage / 10)));
+    }
+
+    private static final class Counters {
+        private final AtomicLong participants = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private final long seededAt = System.currentTimeMillis();
+
+        boolean isOlderThan(long intervalMs) {
+            return System.currentTimeMillis() - seededAt > intervalMs;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.EcoChallenge;
+import com.ecobazaar.backend.repository.EcoChallengeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Challenge Catalog
+ *
+ * In-memory snapshot of active EcoChallenges, indexed by category and
+ * difficulty, with an interval tree over [startDate, endDate] for
+ * "active at time T" lookups and an end-date ordering for "ending within
+ * N days". Reloaded after challenge writes commit, or when older than
+ * challenges.catalog.refresh-interval-ms; a load that overlaps an
+ * invalidation is returned to its caller but not kept. Returned lists are
+ * unmodifiable.
+ */
+@Component
+public class ChallengeCatalog {
+
+    @Autowired
+    private EcoChallengeRepository ecoChallengeRepository;
+
+    @Value("${challenges.catalog.refresh-interval-ms:300000}")
+    private long refreshIntervalMs;
+
+    private static final String SNAPSHOT = "snapshot";
+
+    private final CacheGenerations generations = new CacheGenerations(1);
+
+    private volatile Snapshot snapshot;
+
+    public List<EcoChallenge> getAllActive() {
+        return current().all;
+    }
+
+    public List<EcoChallenge> getByCategory(String category) {
+        return current().byCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    public List<EcoChallenge> getByDifficulty(String difficulty) {
+        return current().byDifficulty.getOrDefault(difficulty, Collections.emptyList());
+    }
+
+    public List<EcoChallenge> getActiveAt(LocalDateTime time) {
+        return current().activeAt(time);
+    }
+
+    public List<EcoChallenge> getEndingBetween(LocalDateTime from, LocalDateTime to) {
+        return current().endingBetween(from, to);
+    }
+
+    /**
+     * Drop the snapshot, deferring until after commit when inside a transaction.
+     */
+    public void invalidate() {
+        TransactionCallbacks.afterCommit(() -> generations.invalidateAll(() -> snapshot = null));
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || current.isOlderThan(refreshIntervalMs)) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.isOlderThan(refreshIntervalMs)) {
+                    long generation = generations.read(SNAPSHOT);
+                    Snapshot loaded = new Snapshot(ecoChallengeRepository.findByIsActiveTrue());
+                    generations.putIfCurrent(SNAPSHOT, generation, () -> snapshot = loaded);
+                    current = loaded;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+        private final List<EcoChallenge> all;
+        private final Map<String, List<EcoChallenge>> byCategory = new HashMap<>();
+        private final Map<String, List<EcoChallenge>> byDifficulty = new HashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        // Dated challenges sorted by start date, viewed as an implicit balanced
+        // BST (root of [lo, hi) is the midpoint) augmented with the max end date
+        private final EcoChallenge[] byStart;
+        private final LocalDateTime[] maxEnd;
+
+        // Dated challenges sorted by end date
+        private final EcoChallenge[] byEnd;
+
+        private Snapshot(List<EcoChallenge> challenges) {
+            this.all = Collections.unmodifiableList(new ArrayList<>(challenges));
+
+            List<EcoChallenge> dated = new ArrayList<>();
+            for (EcoChallenge challenge : challenges) {
+                if (challenge.getCategory() != null) {
+                    byCategory.computeIfAbsent(challenge.getCategory(), k -> new ArrayList<>()).add(challenge);
+                }
+                if (challenge.getDifficulty() != null) {
+                    byDifficulty.computeIfAbsent(challenge.getDifficulty(), k -> new ArrayList<>()).add(challenge);
+                }
+                if (challenge.getStartDate() != null && challenge.getEndDate() != null) {
+                    dated.add(challenge);
+                }
+            }
+
+            byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+            byDifficulty.replaceAll((difficulty, list) -> Collections.unmodifiableList(list));
+
+            byStart = dated.toArray(new EcoChallenge[0]);
+            Arrays.sort(byStart, Comparator.comparing(EcoChallenge::getStartDate));
+            maxEnd = new LocalDateTime[byStart.length];
+            buildMaxEnd(0, byStart.length);
+
+            byEnd = dated.toArray(new EcoChallenge[0]);
+            Arrays.sort(byEnd, Comparator.comparing(EcoChallenge::getEndDate));
+        }
+
+        private LocalDateTime buildMaxEnd(int lo, int hi) {
+            if (lo >= hi) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            LocalDateTime max = byStart[mid].getEndDate();
+            LocalDateTime left = buildMaxEnd(lo, mid);
+            LocalDateTime right = buildMaxEnd(mid + 1, hi);
+            if (left != null && left.isAfter(max)) max = left;
+            if (right != null && right.isAfter(max)) max = right;
+            maxEnd[mid] = max;
+            return max;
+        }
+
+        List<EcoChallenge> activeAt(LocalDateTime time) {
+            List<EcoChallenge> result = new ArrayList<>();
+            collectActive(0, byStart.length, time, result);
+            return Collections.unmodifiableList(result);
+        }
+
+        private void collectActive(int lo, int hi, LocalDateTime time, List<EcoChallenge> result) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid].isBefore(time)) {
+                return; // nothing in this subtree ends at or after time
+            }
+            collectActive(lo, mid, time, result);
+            EcoChallenge challenge = byStart[mid];
+            if (!challenge.getStartDate().isAfter(time)) {
+                if (!challenge.getEndDate().isBefore(time)) {
+                    result.add(challenge);
+                }
+                collectActive(mid + 1, hi, time, result);
+            }
+        }
+
+        List<EcoChallenge> endingBetween(LocalDateTime from, LocalDateTime to) {
+            List<EcoChallenge> result = new ArrayList<>();
+            for (int i = firstEndingAtOrAfter(from); i < byEnd.length && !byEnd[i].getEndDate().isAfter(to); i++) {
+                result.add(byEnd[i]);
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        private int firstEndingAtOrAfter(LocalDateTime time) {
+            int lo = 0;
+            int hi = byEnd.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (byEnd[mid].getEndDate().isBefore(time)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean isOlderThan(long intervalMs) {
+            return System.currentTimeMillis() - loadedAt > intervalMs;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.ecobazaar.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Challenge Progress Pipeline
+ *
+ * Accepts progress deltas from clients, coalesces them per (user, challenge)
+ * in memory and hands them to a single consumer thread that persists each
+ * flush as one batch through {@link EcoChallengeService#applyProgressDeltas}.
+ * Completion detection and eco-point awards happen on that consumer thread.
+ *
+ * If a batch fails, each (user, challenge) delta is retried on its own so one
+ * bad row cannot hold back any other, not even the same user's other
+ * challenges. A delta that still fails is re-queued for the next flush, and
+ * dropped with an error log after challenges.progress.max-attempts failed
+ * flushes.
+ */
+@Component
+public class ChallengeProgressPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ChallengeProgressPipeline.class);
+
+    @Autowired
+    private EcoChallengeService ecoChallengeService;
+
+    @Value("${challenges.progress.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${challenges.progress.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${challenges.progress.max-attempts:5}")
+    private int maxAttempts;
+
+    private final ConcurrentHashMap<ProgressKey, Integer> pending = new ConcurrentHashMap<>();
+    // Failed flushes per key; consumer thread only
+    private final Map<ProgressKey, Integer> failures = new HashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean(false);
+    private ScheduledExecutorService consumer;
+
+    @PostConstruct
+    void start() {
+        consumer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "challenge-progress-consumer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        consumer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        consumer.shutdown();
+        if (consumer.awaitTermination(5, TimeUnit.SECONDS)) {
+            flush();
+        }
+    }
+
+    /**
+     * Queue a progress delta. Deltas for the same user and challenge are summed
+     * until the next flush.
+     *
+     * @return false if the event was rejected because the buffer is full
+     */
+    public boolean submit(String userId, String challengeId, int delta) {
+        ProgressKey key = new ProgressKey(userId, challengeId);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            requestEarlyFlush();
+            return false;
+        }
+        pending.merge(key, delta, Integer::sum);
+        if (pending.size() >= maxPending / 2) {
+            requestEarlyFlush();
+        }
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Number of deltas given up on after max-attempts failed flushes.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void requestEarlyFlush() {
+        if (earlyFlushScheduled.compareAndSet(false, true)) {
+            consumer.execute(() -> {
+                earlyFlushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // Runs only on the consumer thread (or after it has terminated)
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, Integer>> batch = new HashMap<>();
+        for (ProgressKey key : pending.keySet()) {
+            Integer delta = pending.remove(key);
+            if (delta != null && delta != 0) {
+                batch.computeIfAbsent(key.userId, k -> new HashMap<>()).put(key.challengeId, delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            int completed = ecoChallengeService.applyProgressDeltas(batch);
+            log.debug("Flushed challenge progress for {} users, {} challenges completed", batch.size(), completed);
+            clearFailures(batch);
+        } catch (Exception e) {
+            log.warn("Failed to persist challenge progress batch of {} users, retrying per challenge",
+                    batch.size(), e);
+            batch.forEach((userId, deltas) -> deltas.forEach((challengeId, delta) ->
+                    applyOrRequeue(new ProgressKey(userId, challengeId), delta)));
+        }
+    }
+
+    private void applyOrRequeue(ProgressKey key, int delta) {
+        try {
+            ecoChallengeService.applyProgressDeltas(Map.of(key.userId, Map.of(key.challengeId, delta)));
+            failures.remove(key);
+        } catch (Exception e) {
+            log.error("Failed to persist challenge progress for user {} on challenge {}", key.userId, key.challengeId, e);
+            int attempt = failures.merge(key, 1, Integer::sum);
+            if (attempt >= maxAttempts) {
+                failures.remove(key);
+                dropped.incrementAndGet();
+                log.error("Dropping progress delta {} for user {} on challenge {} after {} attempts",
+                        delta, key.userId, key.challengeId, attempt);
+            } else {
+                // Put the delta back so the next flush retries it
+                pending.merge(key, delta, Integer::sum);
+            }
+        }
+    }
+
+    private void clearFailures(Map<String, Map<String, Integer>> batch) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        batch.forEach((userId, deltas) -> deltas.keySet().forEach(challengeId ->
+                failures.remove(new ProgressKey(userId, challengeId))));
+    }
+
+    private static final class ProgressKey {
+        private final String userId;
+        private final String challengeId;
+
+        private ProgressKey(String userId, String challengeId) {
+            this.userId = userId;
+            this.challengeId = challengeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ProgressKey)) return false;
+            ProgressKey that = (ProgressKey) o;
+            return userId.equals(that.userId) && challengeId.equals(that.challengeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, challengeId);
+        }
+    }
+}
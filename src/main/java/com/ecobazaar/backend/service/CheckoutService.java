@@ -0,0 +1,148 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.CartItem;
+import com.ecobazaar.backend.entity.Order;
+import com.ecobazaar.backend.entity.OutboxEvent;
+import com.ecobazaar.backend.repository.CartItemRepository;
+import com.ecobazaar.backend.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for server-side checkout
+ *
+ * Commits the order, its discount redemption, its stock (confirmed reservations
+ * or, without them, a deduction for each cart item) and the
+ * outbox events for its remaining side effects (shopping stats, challenge
+ * progress, cart clearing) in a single transaction; OutboxDispatcher carries the events out afterwards.
+ */
+@Service
+@Transactional
+public class CheckoutService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EcoDiscountService ecoDiscountService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Place an order.
+     *
+     * @param ecoProductsCount  number of eco products in the order, for the user's shopping stats
+     * @param challengeProgress progress deltas earned by the order (challengeId -> delta)
+     * @param clearCart         whether to remove the ordered items from the user's cart once the
+     *                          order is placed
+     * @param reservationIds    the user's inventory reservations to confirm for the order; when
+     *                          null or empty, stock is taken for the items in the user's cart
+     * @throws IllegalStateException    if the order's discount code cannot be redeemed for it, a
+     *                                  reservation has expired or a cart item is out of stock
+     * @throws IllegalArgumentException if there are neither reservations nor cart items, or the
+     *                                  order's discount amount is not the one its code gives
+     */
+    public Order checkout(Order order, Integer ecoProductsCount, Map<String, Integer> challengeProgress,
+                          boolean clearCart, List<String> reservationIds) {
+        Order savedOrder = orderService.createOrder(order);
+        String orderId = savedOrder.getOrderId();
+        String userId = savedOrder.getUserId();
+
+        // The items the order is for; cart clearing removes only these, not ones added later
+        boolean reserved = reservationIds != null && !reservationIds.isEmpty();
+        boolean discounted = savedOrder.getDiscountCode() != null && !savedOrder.getDiscountCode().isEmpty();
+        List<CartItem> cartItems = clearCart || !reserved || discounted
+                ? cartItemRepository.findByUserId(userId) : List.of();
+
+        // Redeem inline: a discount that is no longer available, does not apply to this
+        // order or does not match the amount the client sent must fail the checkout
+        if (discounted) {
+            ecoDiscountService.redeemForOrder(userId, savedOrder.getDiscountCode(), orderId,
+                    savedOrder.getTotalAmount(), savedOrder.getDiscountAmount(), cartItems);
+        }
+
+        // Stock is held by the user's reservations, or else taken for the cart's items here
+        if (reserved) {
+            inventoryService.confirm(reservationIds, orderId, userId);
+        } else {
+            if (cartItems.isEmpty()) {
+                throw new IllegalArgumentException("reservationIds are required when the cart is empty");
+            }
+            for (CartItem item : cartItems) {
+                inventoryService.deduct(productId(item), item.getQuantity() != null ? item.getQuantity() : 1);
+            }
+        }
+
+        List<OutboxEvent> events = new ArrayList<>();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("userId", userId);
+        stats.put("orderAmount", savedOrder.getFinalAmount());
+        stats.put("discountSaved", savedOrder.getDiscountAmount());
+        stats.put("ecoProductsCount", ecoProductsCount != null ? ecoProductsCount : 0);
+        events.add(event(OutboxDispatcher.SHOPPING_STATS, orderId, stats));
+
+        if (challengeProgress != null) {
+            for (Map.Entry<String, Integer> progress : challengeProgress.entrySet()) {
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("userId", userId);
+                payload.put("challengeId", progress.getKey());
+                payload.put("delta", progress.getValue());
+                events.add(event(OutboxDispatcher.CHALLENGE_PROGRESS, orderId, payload));
+            }
+        }
+
+        if (clearCart) {
+            List<Long> cartItemIds = new ArrayList<>(cartItems.size());
+            for (CartItem item : cartItems) {
+                cartItemIds.add(item.getId());
+            }
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("userId", userId);
+            payload.put("cartItemIds", cartItemIds);
+            events.add(event(OutboxDispatcher.CLEAR_CART, orderId, payload));
+        }
+
+        outboxEventRepository.saveAll(events);
+
+        TransactionCallbacks.afterCommit(outboxDispatcher::wakeUp);
+        return savedOrder;
+    }
+
+    private static Long productId(CartItem item) {
+        try {
+            return Long.valueOf(item.getProductId());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cart item has an unknown product id: " + item.getProductId());
+        }
+    }
+
+    private OutboxEvent event(String type, String orderId, Map<String, Object> payload) {
+        try {
+            return new OutboxEvent(type, orderId, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialise " + type + " event", e);
+        }
+    }
+}
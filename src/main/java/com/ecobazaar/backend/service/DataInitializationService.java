@@ -8,7 +8,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Data Initialization Service for creating sample data when database is empty
@@ -36,6 +35,9 @@ public class DataInitializationService {
     @Autowired
     private UserSettingsRepository userSettingsRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     /**
      * Initialize database with sample data if it's empty
      */
@@ -204,7 +206,7 @@ public class DataInitializationService {
             for (User user : users) {
                 if (user.getRole() == UserRole.CUSTOMER) {
                     Wishlist wishlist = new Wishlist();
-                    wishlist.setWishlistId(UUID.randomUUID().toString());
+                    wishlist.setWishlistId(idGenerator.nextId("WL_"));
                     wishlist.setUserId(user.getId().toString());
                     wishlist.setTotalItems(0);
                     wishlistRepository.save(wishlist);
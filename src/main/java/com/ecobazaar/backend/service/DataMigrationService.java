@@ -12,7 +12,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Data Migration Service for migrating data from Firestore to MySQL
@@ -53,6 +52,9 @@ public class DataMigrationService {
     @Autowired
     private UserSettingsRepository userSettingsRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     /**
      * Migrate user data from Firestore to MySQL
      * This method should be called with data extracted from Firestore
@@ -98,7 +100,7 @@ public class DataMigrationService {
      */
     public Wishlist migrateWishlist(String firestoreWishlistId, String userId, Integer totalItems) {
         Wishlist wishlist = new Wishlist();
-        wishlist.setWishlistId(firestoreWishlistId != null && !firestoreWishlistId.isEmpty() ? firestoreWishlistId : UUID.randomUUID().toString());
+        wishlist.setWishlistId(firestoreWishlistId != null && !firestoreWishlistId.isEmpty() ? firestoreWishlistId : idGenerator.nextId("WL_"));
         wishlist.setUserId(userId);
         wishlist.setTotalItems(totalItems != null ? totalItems : 0);
         
@@ -126,7 +128,7 @@ public class DataMigrationService {
      */
     public Cart migrateCart(String firestoreCartId, String userId, Integer totalItems, Double totalAmount) {
         Cart cart = new Cart();
-        cart.setCartId(firestoreCartId != null && !firestoreCartId.isEmpty() ? firestoreCartId : UUID.randomUUID().toString());
+        cart.setCartId(firestoreCartId != null && !firestoreCartId.isEmpty() ? firestoreCartId : idGenerator.nextId("cart_"));
         cart.setUserId(userId);
         cart.setTotalItems(totalItems != null ? totalItems : 0);
         cart.setTotalAmount(totalAmount != null ? totalAmount : 0.0);
@@ -141,7 +143,7 @@ public class DataMigrationService {
     public Store migrateStore(String firestoreStoreId, String storeName, String description, 
                             String ownerId, String ownerEmail, String contactPhone, String address) {
         Store store = new Store();
-        store.setStoreId(firestoreStoreId != null && !firestoreStoreId.isEmpty() ? firestoreStoreId : UUID.randomUUID().toString());
+        store.setStoreId(firestoreStoreId != null && !firestoreStoreId.isEmpty() ? firestoreStoreId : idGenerator.nextId("STORE_"));
         store.setStoreName(storeName);
         store.setDescription(description);
         store.setOwnerId(ownerId);
@@ -161,7 +163,7 @@ public class DataMigrationService {
                                                       String userId, Double amount, String paymentMethod, 
                                                       String status, String gatewayTransactionId) {
         PaymentTransaction transaction = new PaymentTransaction();
-        transaction.setTransactionId(firestoreTransactionId != null && !firestoreTransactionId.isEmpty() ? firestoreTransactionId : UUID.randomUUID().toString());
+        transaction.setTransactionId(firestoreTransactionId != null && !firestoreTransactionId.isEmpty() ? firestoreTransactionId : idGenerator.nextId("TXN_"));
         transaction.setOrderId(orderId);
         transaction.setUserId(userId);
         transaction.setAmount(amount);
@@ -179,7 +181,7 @@ public class DataMigrationService {
                                     String productId, String productName, Double productPrice, 
                                     Integer quantity, String storeId, String storeName) {
         UserOrder userOrder = new UserOrder();
-        userOrder.setUserOrderId(firestoreUserOrderId != null && !firestoreUserOrderId.isEmpty() ? firestoreUserOrderId : UUID.randomUUID().toString());
+        userOrder.setUserOrderId(firestoreUserOrderId != null && !firestoreUserOrderId.isEmpty() ? firestoreUserOrderId : idGenerator.nextId("UO-"));
         userOrder.setUserId(userId);
         userOrder.setOrderId(orderId);
         userOrder.setProductId(productId);
@@ -0,0 +1,354 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.entity.Store;
+import com.ecobazaar.backend.repository.CartItemRepository;
+import com.ecobazaar.backend.repository.CartRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import com.ecobazaar.backend.repository.StoreRepository;
+import com.ecobazaar.backend.repository.UserOrderRepository;
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Denormalization Propagator
+ *
+ * Keeps copied product and store fields in step with their source:
+ * - a product's name, price, image and category on cart items
+ * - a product's name, image and price on wishlist items
+ * - a store's name on its products and order lines
+ * Order lines keep the product name and price they were bought at.
+ *
+ * Changed product and store ids are queued after commit and coalesced, so a
+ * burst of edits to one product costs one refresh. A single worker flushes
+ * the queue every denormalization.flush-interval-ms. For each id it reads the
+ * current source row, then pages through only the copies that differ, using
+ * the product_id or store_id index. It updates them in chunks of
+ * denormalization.chunk-size, one short transaction per chunk, and recomputes
+ * affected cart totals in the same transaction.
+ *
+ * The queue holds at most denormalization.max-pending ids. Past that, it
+ * drops them and schedules a full resync, which walks every product and
+ * store the same way.
+ *
+ * A failure is contained to the id that caused it: the id is queued again
+ * after a backoff of 1, 2, 4... seconds, and given up after
+ * denormalization.max-attempts tries (its next change repairs it). A full
+ * resync that cannot even page through ids is retried with the same
+ * backoff rather than on the next flush.
+ *
+ * On wishlist items the price is only ever raised here; drops are left to
+ * PriceDropWatcher, which alerts the holders before recording the new price.
+ */
+@Component
+public class DenormalizationPropagator {
+
+    private static final Logger log = LoggerFactory.getLogger(DenormalizationPropagator.class);
+
+    private static final int RESYNC_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private WishlistItemRepository wishlistItemRepository;
+
+    @Autowired
+    private UserOrderRepository userOrderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${denormalization.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${denormalization.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${denormalization.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${denormalization.max-attempts:8}")
+    private int maxAttempts;
+
+    private final Set<Long> pendingProducts = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingStores = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean resyncRequested = new AtomicBoolean(false);
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean(false);
+    private final Map<Long, Integer> productFailures = new ConcurrentHashMap<>();
+    private final Map<String, Integer> storeFailures = new ConcurrentHashMap<>();
+    // Worker thread only
+    private int resyncFailures;
+    private long resyncNotBefore;
+    private TransactionTemplate chunkTransaction;
+    private ScheduledExecutorService worker;
+
+    @PostConstruct
+    void start() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "denormalization-propagator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        worker.shutdown();
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue a product whose name, price, image or category may have changed.
+     * Deferred until after commit when inside a transaction.
+     */
+    public void productChanged(Long productId) {
+        TransactionCallbacks.afterCommit(() -> enqueue(pendingProducts, productId));
+    }
+
+    /**
+     * Queue a store whose name may have changed. Deferred until after commit
+     * when inside a transaction.
+     */
+    public void storeChanged(String storeId) {
+        TransactionCallbacks.afterCommit(() -> enqueue(pendingStores, storeId));
+    }
+
+    public int getPendingCount() {
+        return pendingProducts.size() + pendingStores.size();
+    }
+
+    private <K> void enqueue(Set<K> pending, K id) {
+        if (id == null || resyncRequested.get()) {
+            return;
+        }
+        if (getPendingCount() >= maxPending && !pending.contains(id)) {
+            // Too many distinct changes to track one by one: resync everything instead
+            if (resyncRequested.compareAndSet(false, true)) {
+                log.warn("Denormalization queue full ({} ids), scheduling a full resync", maxPending);
+            }
+            requestEarlyFlush();
+            return;
+        }
+        pending.add(id);
+        if (getPendingCount() >= maxPending / 2) {
+            requestEarlyFlush();
+        }
+    }
+
+    private void requestEarlyFlush() {
+        if (earlyFlushScheduled.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                earlyFlushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // Runs only on the worker thread
+    private void flush() {
+        if (resyncRequested.get()) {
+            if (System.currentTimeMillis() < resyncNotBefore) {
+                return;
+            }
+            try {
+                resyncAll();
+                resyncFailures = 0;
+            } catch (Exception e) {
+                // Copies are compared with their source on every pass, so the retry repairs anything missed
+                resyncFailures++;
+                long delayMs = backoffMs(resyncFailures);
+                resyncNotBefore = System.currentTimeMillis() + delayMs;
+                resyncRequested.set(true);
+                log.error("Denormalization resync failed (attempt {}), retrying in {} ms", resyncFailures, delayMs, e);
+            }
+            return;
+        }
+        for (Long productId : pendingProducts) {
+            pendingProducts.remove(productId);
+            propagateOrRetry(pendingProducts, productFailures, productId, this::propagateProduct);
+        }
+        for (String storeId : pendingStores) {
+            pendingStores.remove(storeId);
+            propagateOrRetry(pendingStores, storeFailures, storeId, this::propagateStore);
+        }
+    }
+
+    private <K> void propagateOrRetry(Set<K> pending, Map<K, Integer> failures, K id, Consumer<K> propagate) {
+        try {
+            propagate.accept(id);
+            failures.remove(id);
+        } catch (Exception e) {
+            int attempt = failures.merge(id, 1, Integer::sum);
+            if (attempt >= maxAttempts) {
+                failures.remove(id);
+                log.error("Propagating denormalized fields of {} failed {} times, giving up", id, attempt, e);
+                return;
+            }
+            long delayMs = backoffMs(attempt);
+            log.warn("Propagating denormalized fields of {} failed (attempt {}), retrying in {} ms", id, attempt, delayMs, e);
+            worker.schedule(() -> enqueue(pending, id), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static long backoffMs(int attempt) {
+        return 1000L << Math.min(attempt - 1, 10);
+    }
+
+    private void resyncAll() {
+        // Cleared first: changes queued from here on are covered by this pass or queued normally
+        resyncRequested.set(false);
+        pendingProducts.clear();
+        pendingStores.clear();
+        long started = System.currentTimeMillis();
+
+        long afterStoreId = 0;
+        List<Object[]> stores;
+        do {
+            stores = storeRepository.findStoreIdsAfter(afterStoreId, PageRequest.of(0, RESYNC_PAGE_SIZE));
+            for (Object[] row : stores) {
+                afterStoreId = ((Number) row[0]).longValue();
+                propagateOrRetry(pendingStores, storeFailures, (String) row[1], this::propagateStore);
+            }
+        } while (stores.size() == RESYNC_PAGE_SIZE);
+
+        long afterProductId = 0;
+        List<Long> products;
+        do {
+            products = productRepository.findIdsAfter(afterProductId, PageRequest.of(0, RESYNC_PAGE_SIZE));
+            for (Long productId : products) {
+                afterProductId = productId;
+                propagateOrRetry(pendingProducts, productFailures, productId, this::propagateProduct);
+            }
+        } while (products.size() == RESYNC_PAGE_SIZE);
+
+        log.info("Denormalization resync finished in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private void propagateProduct(Long productId) {
+        Optional<Product> source = productRepository.findById(productId);
+        if (source.isEmpty()) {
+            return;
+        }
+        Product product = source.get();
+        String id = productId.toString();
+        String name = product.getName() != null ? product.getName() : "";
+        String image = product.getImageUrl() != null ? product.getImageUrl() : "";
+        String category = product.getCategory() != null ? product.getCategory() : "";
+        Double price = product.getPrice();
+        if (price == null) {
+            return;
+        }
+
+        int cartRows = 0;
+        int wishlistRows = 0;
+        long afterId = 0;
+        List<Object[]> cartChunk;
+        do {
+            cartChunk = cartItemRepository.findStaleCopiesAfter(id, name, price, image, category, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (!cartChunk.isEmpty()) {
+                afterId = ((Number) cartChunk.get(cartChunk.size() - 1)[0]).longValue();
+                List<Long> ids = new ArrayList<>(cartChunk.size());
+                Set<String> userIds = new LinkedHashSet<>();
+                for (Object[] row : cartChunk) {
+                    ids.add(((Number) row[0]).longValue());
+                    userIds.add((String) row[1]);
+                }
+                cartRows += chunkTransaction.execute(status -> {
+                    int updated = cartItemRepository.refreshProductCopies(ids, name, price, image, category);
+                    cartRepository.refreshTotals(userIds);
+                    return updated;
+                });
+            }
+        } while (cartChunk.size() == chunkSize);
+
+        afterId = 0;
+        List<Long> wishlistChunk;
+        do {
+            wishlistChunk = wishlistItemRepository.findStaleCopiesAfter(id, name, price, image, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (!wishlistChunk.isEmpty()) {
+                afterId = wishlistChunk.get(wishlistChunk.size() - 1);
+                List<Long> ids = wishlistChunk;
+                wishlistRows += chunkTransaction.execute(status ->
+                        wishlistItemRepository.refreshProductCopies(ids, name, price, image));
+            }
+        } while (wishlistChunk.size() == chunkSize);
+
+        if (cartRows > 0 || wishlistRows > 0) {
+            log.debug("Product {} copies refreshed: {} cart items, {} wishlist items", productId, cartRows, wishlistRows);
+        }
+    }
+
+    private void propagateStore(String storeId) {
+        Optional<Store> source = storeRepository.findByStoreId(storeId);
+        if (source.isEmpty()) {
+            return;
+        }
+        String storeName = source.get().getStoreName() != null ? source.get().getStoreName() : "";
+
+        int productRows = 0;
+        long afterId = 0;
+        List<Long> productChunk;
+        do {
+            productChunk = productRepository.findStaleStoreNamesAfter(storeId, storeName, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (!productChunk.isEmpty()) {
+                afterId = productChunk.get(productChunk.size() - 1);
+                List<Long> ids = productChunk;
+                productRows += chunkTransaction.execute(status -> productRepository.refreshStoreNames(ids, storeName));
+            }
+        } while (productChunk.size() == chunkSize);
+
+        int orderRows = 0;
+        afterId = 0;
+        List<Long> orderChunk;
+        do {
+            orderChunk = userOrderRepository.findStaleStoreNamesAfter(storeId, storeName, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (!orderChunk.isEmpty()) {
+                afterId = orderChunk.get(orderChunk.size() - 1);
+                List<Long> ids = orderChunk;
+                orderRows += chunkTransaction.execute(status -> userOrderRepository.refreshStoreNames(ids, storeName));
+            }
+        } while (orderChunk.size() == chunkSize);
+
+        if (productRows > 0 || orderRows > 0) {
+            log.debug("Store {} name refreshed on {} products and {} order lines", storeId, productRows, orderRows);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.CartItem;
+import com.ecobazaar.backend.entity.EcoDiscount;
+import com.ecobazaar.backend.repository.EcoDiscountRepository;
+import com.ecobazaar.backend.repository.UserDiscountUsageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Discount Rule Engine
+ *
+ * Keeps the active EcoDiscount rules in memory, bucketed by
+ * (applicable category, applicable store) and sorted by eco-point threshold
+ * inside each bucket, so eligibility checks need no per-discount queries.
+ * Per-user usage counts are fetched with a single grouped query per evaluation.
+ * Each rule's global usage count is bumped in memory as redemptions commit, so
+ * an exhausted discount stops matching here without waiting for a reload.
+ */
+@Component
+public class DiscountRuleEngine {
+
+    private static final String ANY = "";
+
+    @Autowired
+    private EcoDiscountRepository ecoDiscountRepository;
+
+    @Autowired
+    private UserDiscountUsageRepository usageRepository;
+
+    @Value("${discounts.rules.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private volatile RuleSet ruleSet;
+
+    /**
+     * Find every discount the user can apply to an order.
+     *
+     * @param category order category, or null to match only unrestricted discounts
+     * @param storeId order store, or null to match only unrestricted discounts
+     */
+    public List<EcoDiscount> findApplicable(String userId, Integer userEcoPoints, Double orderAmount,
+                                            String category, String storeId) {
+        List<EcoDiscount> applicable = new ArrayList<>();
+        for (Match match : evaluate(userId, userEcoPoints, orderAmount, category, storeId)) {
+            applicable.add(match.getDiscount());
+        }
+        return applicable;
+    }
+
+    /**
+     * Find the discount giving the largest saving on an order, if any applies.
+     */
+    public Optional<Match> findBest(String userId, Integer userEcoPoints, Double orderAmount,
+                                    String category, String storeId) {
+        Match best = null;
+        for (Match match : evaluate(userId, userEcoPoints, orderAmount, category, storeId)) {
+            if (best == null || match.getDiscountAmount() > best.getDiscountAmount()) {
+                best = match;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Evaluate all rules matching the given category/store against an order.
+     */
+    public List<Match> evaluate(String userId, Integer userEcoPoints, Double orderAmount,
+                                String category, String storeId) {
+        double amount = orderAmount != null ? orderAmount : 0.0;
+        Map<String, Long> userUsage = userId != null ? loadUserUsage(userId) : Collections.emptyMap();
+        LocalDateTime now = LocalDateTime.now();
+        RuleSet rules = currentRules();
+
+        List<Match> matches = new ArrayList<>();
+        for (String bucket : candidateBuckets(category, storeId)) {
+            collectMatches(rules.bucket(bucket), amount, userEcoPoints, userUsage, now, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Evaluate every rule against a cart. The cart is split by product category
+     * and store, and each rule is priced (and its minimum order amount checked)
+     * on the subtotal of the cart lines it covers.
+     *
+     * @param storeByProductId store of each cart product; lines without a store
+     *                         only match rules that are not store-restricted
+     */
+    public List<Match> evaluateCart(String userId, Integer userEcoPoints, List<CartItem> items,
+                                    Map<String, String> storeByProductId) {
+        Map<String, Double> subtotals = new HashMap<>();
+        for (CartItem item : items) {
+            double amount = item.getTotalPrice() != null ? item.getTotalPrice() : 0.0;
+            String category = item.getProductCategory();
+            String storeId = storeByProductId.get(item.getProductId());
+            for (String bucket : candidateBuckets(category, storeId)) {
+                subtotals.merge(bucket, amount, Double::sum);
+            }
+        }
+
+        Map<String, Long> userUsage = userId != null ? loadUserUsage(userId) : Collections.emptyMap();
+        LocalDateTime now = LocalDateTime.now();
+        RuleSet rules = currentRules();
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<String, Double> subtotal : subtotals.entrySet()) {
+            collectMatches(rules.bucket(subtotal.getKey()), subtotal.getValue(), userEcoPoints, userUsage, now, matches);
+        }
+        return matches;
+    }
+
+    private void collectMatches(List<Rule> bucket, double amount, Integer userEcoPoints,
+                                Map<String, Long> userUsage, LocalDateTime now, List<Match> matches) {
+        for (Rule rule : bucket) {
+            if (rule.requiresEcoPoints) {
+                if (userEcoPoints == null) {
+                    continue;
+                }
+                if (rule.requiredEcoPoints > userEcoPoints) {
+                    break; // bucket is sorted by threshold
+                }
+            }
+            if (rule.isApplicable(now, amount, userUsage.getOrDefault(rule.code, 0L))) {
+                matches.add(new Match(rule.discount, amount, calculateDiscountAmount(rule.discount, amount)));
+            }
+        }
+    }
+
+    /**
+     * Drop the in-memory rule set. When called inside a transaction the reload
+     * is deferred until after commit so it sees the new data.
+     */
+    public void invalidate() {
+        TransactionCallbacks.afterCommit(() -> ruleSet = null);
+    }
+
+    /**
+     * Count one redemption of a discount in the in-memory rule set. When called
+     * inside a transaction the count is applied after commit.
+     */
+    public void recordUsage(String discountCode) {
+        TransactionCallbacks.afterCommit(() -> {
+            RuleSet current = ruleSet;
+            if (current != null) {
+                current.recordUsage(discountCode);
+            }
+        });
+    }
+
+    public static Double calculateDiscountAmount(EcoDiscount discount, Double orderAmount) {
+        Double discountAmount = 0.0;
+
+        switch (discount.getDiscountType()) {
+            case "PERCENTAGE":
+                discountAmount = (orderAmount * discount.getDiscountValue()) / 100;
+                break;
+            case "FIXED_AMOUNT":
+                discountAmount = discount.getDiscountValue();
+                break;
+            case "FREE_SHIPPING":
+                // For free shipping, we could have a standard shipping amount
+                discountAmount = 50.0; // Assuming ₹50 shipping
+                break;
+            default:
+                discountAmount = 0.0;
+        }
+
+        // Apply maximum discount limit if specified
+        if (discount.getMaximumDiscountAmount() != null && discountAmount > discount.getMaximumDiscountAmount()) {
+            discountAmount = discount.getMaximumDiscountAmount();
+        }
+
+        // Ensure discount doesn't exceed order amount
+        if (discountAmount > orderAmount) {
+            discountAmount = orderAmount;
+        }
+
+        return discountAmount;
+    }
+
+    private Map<String, Long> loadUserUsage(String userId) {
+        Map<String, Long> usage = new HashMap<>();
+        for (Object[] row : usageRepository.countUsageByDiscountCodeForUser(userId)) {
+            usage.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return usage;
+    }
+
+    private RuleSet currentRules() {
+        RuleSet current = ruleSet;
+        if (current == null || current.isOlderThan(refreshIntervalMs)) {
+            synchronized (this) {
+                current = ruleSet;
+                if (current == null || current.isOlderThan(refreshIntervalMs)) {
+                    current = RuleSet.compile(ecoDiscountRepository.findByIsActiveTrue());
+                    ruleSet = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static List<String> candidateBuckets(String category, String storeId) {
+        List<String> buckets = new ArrayList<>(4);
+        buckets.add(bucketKey(null, null));
+        if (category != null) {
+            buckets.add(bucketKey(category, null));
+        }
+        if (storeId != null) {
+            buckets.add(bucketKey(null, storeId));
+        }
+        if (category != null && storeId != null) {
+            buckets.add(bucketKey(category, storeId));
+        }
+        return buckets;
+    }
+
+    private static String bucketKey(String category, String storeId) {
+        return (category != null ? category : ANY) + '\u0001' + (storeId != null ? storeId : ANY);
+    }
+
+    /**
+     * A discount that applies to an order, with the saving it gives.
+     */
+    public static class Match {
+        private final EcoDiscount discount;
+        private final Double eligibleAmount;
+        private final Double discountAmount;
+
+        Match(EcoDiscount discount, Double eligibleAmount, Double discountAmount) {
+            this.discount = discount;
+            this.eligibleAmount = eligibleAmount;
+            this.discountAmount = discountAmount;
+        }
+
+        public EcoDiscount getDiscount() {
+            return discount;
+        }
+
+        public Double getEligibleAmount() {
+            return eligibleAmount;
+        }
+
+        public Double getDiscountAmount() {
+            return discountAmount;
+        }
+    }
+
+    private static final class Rule {
+        private final EcoDiscount discount;
+        private final String code;
+        private final LocalDateTime validFrom;
+        private final LocalDateTime validUntil;
+        private final Integer usageLimit;
+        private final AtomicInteger currentUsageCount;
+        private final Integer userUsageLimit;
+        private final Double minimumOrderAmount;
+        private final boolean requiresEcoPoints;
+        private final int requiredEcoPoints;
+
+        private Rule(EcoDiscount discount) {
+            this.discount = discount;
+            this.code = discount.getDiscountCode();
+            this.validFrom = discount.getValidFrom();
+            this.validUntil = discount.getValidUntil();
+            this.usageLimit = discount.getUsageLimit();
+            this.currentUsageCount = new AtomicInteger(
+                    discount.getCurrentUsageCount() != null ? discount.getCurrentUsageCount() : 0);
+            this.userUsageLimit = discount.getUserUsageLimit();
+            this.minimumOrderAmount = discount.getMinimumOrderAmount();
+            this.requiresEcoPoints = Boolean.TRUE.equals(discount.getRequiresEcoPoints());
+            this.requiredEcoPoints = requiresEcoPoints && discount.getRequiredEcoPoints() != null
+                    ? discount.getRequiredEcoPoints() : 0;
+        }
+
+        private boolean isApplicable(LocalDateTime now, double orderAmount, long userUsageCount) {
+            if (validFrom != null && validFrom.isAfter(now)) {
+                return false;
+            }
+            if (validUntil != null && validUntil.isBefore(now)) {
+                return false;
+            }
+            if (usageLimit != null && currentUsageCount.get() >= usageLimit) {
+                return false;
+            }
+            if (userUsageLimit != null && userUsageCount >= userUsageLimit) {
+                return false;
+            }
+            return minimumOrderAmount == null || orderAmount >= minimumOrderAmount;
+        }
+    }
+
+    private static final class RuleSet {
+        private final Map<String, List<Rule>> buckets;
+        private final Map<String, Rule> byCode;
+        private final long loadedAt;
+
+        private RuleSet(Map<String, List<Rule>> buckets, Map<String, Rule> byCode) {
+            this.buckets = buckets;
+            this.byCode = byCode;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        static RuleSet compile(List<EcoDiscount> discounts) {
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, List<Rule>> buckets = new HashMap<>();
+            Map<String, Rule> byCode = new HashMap<>();
+            for (EcoDiscount discount : discounts) {
+                if (discount.getValidUntil() != null && discount.getValidUntil().isBefore(now)) {
+                    continue;
+                }
+                Rule rule = new Rule(discount);
+                String key = bucketKey(discount.getApplicableCategory(), discount.getApplicableStoreId());
+                buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+                if (rule.code != null) {
+                    byCode.put(rule.code, rule);
+                }
+            }
+            for (List<Rule> bucket : buckets.values()) {
+                bucket.sort(Comparator.comparingInt(rule -> rule.requiredEcoPoints));
+            }
+            return new RuleSet(buckets, byCode);
+        }
+
+        List<Rule> bucket(String key) {
+            return buckets.getOrDefault(key, Collections.emptyList());
+        }
+
+        void recordUsage(String code) {
+            Rule rule = byCode.get(code);
+            if (rule != null) {
+                rule.currentUsageCount.incrementAndGet();
+            }
+        }
+
+        boolean isOlderThan(long intervalMs) {
+            return System.currentTimeMillis() - loadedAt > intervalMs;
+        }
+    }
+}
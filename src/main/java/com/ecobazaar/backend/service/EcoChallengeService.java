@@ -4,7 +4,12 @@ import com.ecobazaar.backend.entity.EcoChallenge;
 import com.ecobazaar.backend.entity.UserChallengeProgress;
 import com.ecobazaar.backend.repository.EcoChallengeRepository;
 import com.ecobazaar.backend.repository.UserChallengeProgressRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,12 +23,39 @@ import java.util.*;
 @Transactional
 public class EcoChallengeService {
 
+    private static final Logger log = LoggerFactory.getLogger(EcoChallengeService.class);
+
+    private static final int MAX_LEADERBOARD_PAGE_SIZE = 100;
+    // Deeper pages are read from the database every time, which bounds the cache keys
+    private static final int MAX_CACHED_LEADERBOARD_PAGES = 10;
+
     @Autowired
     private EcoChallengeRepository ecoChallengeRepository;
 
     @Autowired
     private UserChallengeProgressRepository progressRepository;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private ChallengeCatalog challengeCatalog;
+
+    @Autowired
+    private ChallengeAnalytics challengeAnalytics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private UpsertSupport upsertSupport;
+
+    // Per-page generations, all bumped by a leaderboard clear; a page read that overlaps one is not cached
+    private final CacheGenerations leaderboardGenerations = new CacheGenerations(64);
+
     // Challenge Management
     public EcoChallenge createChallenge(EcoChallenge challenge) {
         // Generate unique challenge ID if not provided
@@ -39,7 +71,9 @@ public class EcoChallengeService {
             challenge.setEndDate(LocalDateTime.now().plusDays(challenge.getDurationDays()));
         }
         
-        return ecoChallengeRepository.save(challenge);
+        EcoChallenge saved = ecoChallengeRepository.save(challenge);
+        challengeCatalog.invalidate();
+        return saved;
     }
 
     public Optional<EcoChallenge> getChallengeById(Long id) {
@@ -51,19 +85,24 @@ public class EcoChallengeService {
     }
 
     public List<EcoChallenge> getAllActiveChallenges() {
-        return ecoChallengeRepository.findByIsActiveTrue();
+        return challengeCatalog.getAllActive();
     }
 
     public List<EcoChallenge> getCurrentlyActiveChallenges() {
-        return ecoChallengeRepository.findCurrentlyActiveChallenges(LocalDateTime.now());
+        return challengeCatalog.getActiveAt(LocalDateTime.now());
+    }
+
+    public List<EcoChallenge> getChallengesEndingSoon(int days) {
+        LocalDateTime now = LocalDateTime.now();
+        return challengeCatalog.getEndingBetween(now, now.plusDays(days));
     }
 
     public List<EcoChallenge> getChallengesByCategory(String category) {
-        return ecoChallengeRepository.findByCategoryAndIsActiveTrue(category);
+        return challengeCatalog.getByCategory(category);
     }
 
     public List<EcoChallenge> getChallengesByDifficulty(String difficulty) {
-        return ecoChallengeRepository.findByDifficultyAndIsActiveTrue(difficulty);
+        return challengeCatalog.getByDifficulty(difficulty);
     }
 
     public List<EcoChallenge> searchChallenges(String keyword) {
@@ -71,17 +110,22 @@ public class EcoChallengeService {
     }
 
     public EcoChallenge updateChallenge(EcoChallenge challenge) {
-        return ecoChallengeRepository.save(challenge);
+        EcoChallenge saved = ecoChallengeRepository.save(challenge);
+        challengeCatalog.invalidate();
+        return saved;
     }
 
     public void deleteChallenge(Long id) {
+        ecoChallengeRepository.findById(id).ifPresent(challenge -> challengeAnalytics.invalidate(challenge.getChallengeId()));
         ecoChallengeRepository.deleteById(id);
+        challengeCatalog.invalidate();
     }
 
     public void deactivateChallenge(String challengeId) {
         ecoChallengeRepository.findByChallengeId(challengeId).ifPresent(challenge -> {
             challenge.setIsActive(false);
             ecoChallengeRepository.save(challenge);
+            challengeCatalog.invalidate();
         });
     }
 
@@ -95,9 +139,15 @@ public class EcoChallengeService {
             return existingProgress.get();
         }
 
-        // Create new progress entry
-        UserChallengeProgress progress = new UserChallengeProgress(userId, challengeId);
-        return progressRepository.save(progress);
+        // Create it unless a concurrent start got there first (the unique key decides)
+        Optional<EcoChallenge> challenge = ecoChallengeRepository.findByChallengeId(challengeId);
+        UserChallengeProgress saved = upsertSupport.getOrInsert("challenge-progress:" + userId + "|" + challengeId,
+                () -> progressRepository.findByUserIdAndChallengeId(userId, challengeId),
+                () -> progressRepository.findByUserIdAndChallengeIdForShare(userId, challengeId),
+                () -> progressRepository.addProgress(userId, challengeId, challenge.map(EcoChallenge::getId).orElse(null),
+                        0, challenge.map(EcoChallenge::getTargetValue).orElse(1)));
+        challengeAnalytics.recordChange(challengeId, null, false, saved.getProgressPercentage(), saved.getIsCompleted());
+        return saved;
     }
 
     public UserChallengeProgress updateProgress(String userId, String challengeId, Integer newProgress) {
@@ -116,51 +166,179 @@ public class EcoChallengeService {
             throw new RuntimeException("Challenge not found: " + challengeId);
         }
 
-        EcoChallenge challenge = challengeOpt.get();
-        
+        if (applyProgress(progress, challengeOpt.get(), newProgress)) {
+            evictLeaderboard();
+        }
+        return progressRepository.save(progress);
+    }
+
+    /**
+     * Apply a batch of coalesced progress deltas (userId -> challengeId -> delta),
+     * then award eco points for the challenges completed by this batch. Each delta
+     * is added in the database by an upsert on the (user, challenge) unique key, so
+     * concurrent writers cannot lose each other's progress or create duplicate rows,
+     * and completion is claimed by a conditional update, so it is awarded once.
+     *
+     * @return number of challenges completed by this batch
+     */
+    public int applyProgressDeltas(Map<String, Map<String, Integer>> deltasByUser) {
+        Set<String> challengeIds = new HashSet<>();
+        deltasByUser.values().forEach(deltas -> challengeIds.addAll(deltas.keySet()));
+
+        Map<String, EcoChallenge> challenges = new HashMap<>();
+        for (EcoChallenge challenge : ecoChallengeRepository.findByChallengeIdIn(challengeIds)) {
+            challenges.put(challenge.getChallengeId(), challenge);
+        }
+
+        // Previous state, for the analytics counters only
+        Map<String, UserChallengeProgress> existing = new HashMap<>();
+        for (UserChallengeProgress progress :
+                progressRepository.findByUserIdInAndChallengeIdIn(deltasByUser.keySet(), challengeIds)) {
+            existing.put(progress.getUserId() + "|" + progress.getChallengeId(), progress);
+        }
+
+        int completed = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, Map<String, Integer>> userDeltas : deltasByUser.entrySet()) {
+            String userId = userDeltas.getKey();
+            for (Map.Entry<String, Integer> delta : userDeltas.getValue().entrySet()) {
+                EcoChallenge challenge = challenges.get(delta.getKey());
+                if (challenge == null) {
+                    log.warn("Dropping progress for unknown challenge {} (user {})", delta.getKey(), userId);
+                    continue;
+                }
+
+                int target = challenge.getTargetValue();
+                progressRepository.addProgress(userId, challenge.getChallengeId(), challenge.getId(),
+                        delta.getValue(), target);
+
+                UserChallengeProgress previous = existing.get(userId + "|" + delta.getKey());
+                boolean wasCompleted = previous != null && Boolean.TRUE.equals(previous.getIsCompleted());
+                boolean completedNow = !wasCompleted && delta.getValue() > 0
+                        && progressRepository.completeIfReached(userId, challenge.getChallengeId(), target,
+                                challenge.getRewardPoints(), now) == 1;
+                if (completedNow) {
+                    completed++;
+                    leaderboardService.updateChallengeStats(userId, true, challenge.getRewardPoints());
+                }
+
+                int oldProgress = previous != null ? previous.getCurrentProgress() : 0;
+                challengeAnalytics.recordChange(challenge.getChallengeId(),
+                        previous != null ? previous.getProgressPercentage() : null, wasCompleted,
+                        percentage(Math.max(0, oldProgress + delta.getValue()), challenge),
+                        wasCompleted || completedNow);
+            }
+        }
+
+        if (completed > 0) {
+            evictLeaderboard();
+        }
+        return completed;
+    }
+
+    private static double percentage(int progress, EcoChallenge challenge) {
+        return Math.min(100.0, (double) progress / challenge.getTargetValue() * 100);
+    }
+
+    // Sets progress and percentage; returns true if this update completed the challenge
+    private boolean applyProgress(UserChallengeProgress progress, EcoChallenge challenge, int newProgress) {
+        Double oldPercentage = progress.getId() != null ? progress.getProgressPercentage() : null;
+        boolean wasCompleted = Boolean.TRUE.equals(progress.getIsCompleted());
+
+        // Keep the association populated so dashboard reads can fetch-join it
+        if (progress.getEcoChallenge() == null) {
+            progress.setEcoChallenge(challenge);
+        }
+
         // Update progress
         progress.setCurrentProgress(newProgress);
         
         // Calculate progress percentage
-        double percentage = Math.min(100.0, (double) newProgress / challenge.getTargetValue() * 100);
+        double percentage = percentage(newProgress, challenge);
         progress.setProgressPercentage(percentage);
         
         // Check if challenge is completed
+        boolean completedNow = false;
         if (newProgress >= challenge.getTargetValue() && !progress.getIsCompleted()) {
             progress.setIsCompleted(true);
             progress.setCompletedAt(LocalDateTime.now());
             progress.setPointsEarned(challenge.getRewardPoints());
+            completedNow = true;
         }
 
-        return progressRepository.save(progress);
+        challengeAnalytics.recordChange(challenge.getChallengeId(), oldPercentage, wasCompleted,
+                percentage, Boolean.TRUE.equals(progress.getIsCompleted()));
+        return completedNow;
     }
 
+    // The progress lists embed each row's challenge, so it is fetched in the same query
     public List<UserChallengeProgress> getUserProgress(String userId) {
-        return progressRepository.findByUserId(userId);
+        return progressRepository.findByUserIdWithChallenge(userId);
     }
 
     public List<UserChallengeProgress> getUserCompletedChallenges(String userId) {
-        return progressRepository.findByUserIdAndIsCompletedTrue(userId);
+        return progressRepository.findByUserIdAndCompletedWithChallenge(userId, true);
     }
 
     public List<UserChallengeProgress> getUserActiveChallenges(String userId) {
-        return progressRepository.findByUserIdAndIsCompletedFalse(userId);
+        return progressRepository.findByUserIdAndCompletedWithChallenge(userId, false);
     }
 
     // Statistics and Analytics
+    @Transactional(readOnly = true)
     public Map<String, Object> getUserChallengeStats(String userId) {
+        long completedCount = 0;
+        long activeCount = 0;
+        int totalPoints = 0;
+        double progressSum = 0.0;
+
+        for (Object[] row : progressRepository.summarizeUserProgress(userId)) {
+            long count = ((Number) row[1]).longValue();
+            double average = row[3] != null ? ((Number) row[3]).doubleValue() : 0.0;
+            progressSum += average * count;
+            if (Boolean.TRUE.equals(row[0])) {
+                completedCount = count;
+                totalPoints = ((Number) row[2]).intValue();
+            } else {
+                activeCount = count;
+            }
+        }
+
+        long totalChallenges = completedCount + activeCount;
+        double averageProgress = totalChallenges > 0 ? progressSum / totalChallenges : 0.0;
+        return buildUserStats(totalPoints, completedCount, activeCount, averageProgress);
+    }
+
+    /**
+     * Everything the profile page needs in one round trip: the user's progress
+     * rows with their challenges fetch-joined, and the stats derived from them.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUserChallengeDashboard(String userId) {
+        List<UserChallengeProgress> progress = progressRepository.findByUserIdWithChallenge(userId);
+
+        long completedCount = 0;
+        int totalPoints = 0;
+        double progressSum = 0.0;
+        for (UserChallengeProgress entry : progress) {
+            if (Boolean.TRUE.equals(entry.getIsCompleted())) {
+                completedCount++;
+                totalPoints += entry.getPointsEarned() != null ? entry.getPointsEarned() : 0;
+            }
+            progressSum += entry.getProgressPercentage() != null ? entry.getProgressPercentage() : 0.0;
+        }
+        double averageProgress = progress.isEmpty() ? 0.0 : progressSum / progress.size();
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("stats", buildUserStats(totalPoints, completedCount, progress.size() - completedCount, averageProgress));
+        dashboard.put("progress", progress);
+        return dashboard;
+    }
+
+    private Map<String, Object> buildUserStats(int totalPointsValue, long completedCountValue,
+                                               long activeCountValue, double averageProgressValue) {
         Map<String, Object> stats = new HashMap<>();
         
-        Integer totalPoints = progressRepository.getTotalPointsEarnedByUser(userId);
-        Long completedCount = progressRepository.countCompletedChallengesByUser(userId);
-        Long activeCount = progressRepository.countActiveChallengesByUser(userId);
-        Double averageProgress = progressRepository.getAverageProgressByUser(userId);
-        
-        int totalPointsValue = totalPoints != null ? totalPoints : 0;
-        long completedCountValue = completedCount != null ? completedCount : 0;
-        long activeCountValue = activeCount != null ? activeCount : 0;
-        double averageProgressValue = averageProgress != null ? averageProgress : 0.0;
-        
         stats.put("totalPoints", totalPointsValue);
         stats.put("completedChallenges", completedCountValue);
         stats.put("activeChallenges", activeCountValue);
@@ -174,32 +352,75 @@ public class EcoChallengeService {
     }
 
     public Map<String, Object> getChallengeAnalytics(String challengeId) {
-        Map<String, Object> analytics = new HashMap<>();
-        
-        List<String> completedUsers = progressRepository.findUsersWhoCompletedChallenge(challengeId);
-        Double completionRate = progressRepository.getChallengeCompletionRate(challengeId);
-        List<UserChallengeProgress> allProgress = progressRepository.findByChallengeId(challengeId);
-        
-        analytics.put("totalParticipants", allProgress.size());
-        analytics.put("completedUsers", completedUsers.size());
-        analytics.put("completionRate", completionRate != null ? completionRate : 0.0);
-        analytics.put("activeParticipants", allProgress.size() - completedUsers.size());
-        
-        return analytics;
+        return challengeAnalytics.getAnalytics(challengeId);
     }
 
-    public List<Map<String, Object>> getTopUsersByPoints() {
-        List<Object[]> results = progressRepository.findTopUsersByPoints();
-        List<Map<String, Object>> topUsers = new ArrayList<>();
+    /**
+     * One page of users ranked by points earned from completed challenges. The
+     * database sorts and limits the grouped result. The first
+     * MAX_CACHED_LEADERBOARD_PAGES pages are cached, keyed by the clamped page
+     * and size, until the next challenge completion or the cache's TTL. The
+     * page and its entries are unmodifiable, since cached ones are shared.
+     *
+     * @param page page number, clamped by {@link #leaderboardPage}
+     * @param size page size, clamped by {@link #leaderboardPageSize}
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTopUsersByPoints(int page, int size) {
+        int pageSize = leaderboardPageSize(size);
+        int pageNumber = leaderboardPage(page);
+        Cache cache = pageNumber < MAX_CACHED_LEADERBOARD_PAGES ? cacheManager.getCache("challengeLeaderboard") : null;
+        String key = pageNumber + ":" + pageSize;
+        if (cache != null) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> cached = cache.get(key, List.class);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long generation = leaderboardGenerations.read(key);
+        List<Object[]> results = progressRepository.findTopUsersByPoints(PageRequest.of(pageNumber, pageSize));
+        List<Map<String, Object>> topUsers = new ArrayList<>(results.size());
+        int rank = pageNumber * pageSize + 1;
         
         for (Object[] result : results) {
             Map<String, Object> user = new HashMap<>();
+            user.put("rank", rank++);
             user.put("userId", result[0]);
             user.put("totalPoints", result[1]);
-            topUsers.add(user);
+            topUsers.add(Collections.unmodifiableMap(user));
         }
+        List<Map<String, Object>> pageOfUsers = Collections.unmodifiableList(topUsers);
         
-        return topUsers;
+        if (cache != null) {
+            // A page read while a completion cleared the cache may be stale: don't keep it
+            leaderboardGenerations.putIfCurrent(key, generation, () -> cache.put(key, pageOfUsers));
+        }
+        return pageOfUsers;
+    }
+
+    // The leaderboard page number actually served for a requested one
+    public static int leaderboardPage(int page) {
+        return Math.max(0, page);
+    }
+
+    // The leaderboard page size actually served for a requested one
+    public static int leaderboardPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_LEADERBOARD_PAGE_SIZE));
+    }
+
+    // Clear cached leaderboard pages once the completing transaction commits
+    private void evictLeaderboard() {
+        Cache cache = cacheManager.getCache("challengeLeaderboard");
+        if (cache == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> clearLeaderboard(cache));
+    }
+
+    private void clearLeaderboard(Cache cache) {
+        leaderboardGenerations.invalidateAll(cache::clear);
     }
 
     // Sample Data Initialization
@@ -247,6 +468,7 @@ public class EcoChallengeService {
         );
 
         ecoChallengeRepository.saveAll(sampleChallenges);
+        challengeCatalog.invalidate();
     }
 
     private EcoChallenge createSampleChallenge(String title, String description, String category,
@@ -273,10 +495,6 @@ public class EcoChallengeService {
     }
 
     private String generateChallengeId() {
-        LocalDateTime now = LocalDateTime.now();
-        Random random = new Random();
-        return String.format("CHALLENGE_%d%02d%02d_%d",
-            now.getYear(), now.getMonthValue(), now.getDayOfMonth(),
-            random.nextInt(1000));
+        return idGenerator.nextId("CHALLENGE_");
     }
 }
\ No newline at end of file
@@ -1,9 +1,16 @@
 package com.ecobazaar.backend.service;
 
+import com.ecobazaar.backend.config.RetryOnConflict;
+import com.ecobazaar.backend.entity.CartItem;
 import com.ecobazaar.backend.entity.EcoDiscount;
+import com.ecobazaar.backend.entity.Product;
 import com.ecobazaar.backend.entity.UserDiscountUsage;
+import com.ecobazaar.backend.entity.UserEcoProfile;
+import com.ecobazaar.backend.repository.CartItemRepository;
 import com.ecobazaar.backend.repository.EcoDiscountRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
 import com.ecobazaar.backend.repository.UserDiscountUsageRepository;
+import com.ecobazaar.backend.repository.UserEcoProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,12 +25,27 @@ import java.util.*;
 @Transactional
 public class EcoDiscountService {
 
+    // Largest difference between a client's and the computed discount amount that is still a match
+    private static final double AMOUNT_TOLERANCE = 0.01;
+
     @Autowired
     private EcoDiscountRepository ecoDiscountRepository;
 
     @Autowired
     private UserDiscountUsageRepository usageRepository;
 
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserEcoProfileRepository userEcoProfileRepository;
+
+    @Autowired
+    private DiscountRuleEngine discountRuleEngine;
+
     // Discount Management
     public EcoDiscount createDiscount(EcoDiscount discount) {
         // Set default values
@@ -34,7 +56,9 @@ public class EcoDiscountService {
             discount.setValidUntil(LocalDateTime.now().plusDays(30)); // Default 30 days
         }
         
-        return ecoDiscountRepository.save(discount);
+        EcoDiscount saved = ecoDiscountRepository.save(discount);
+        discountRuleEngine.invalidate();
+        return saved;
     }
 
     public Optional<EcoDiscount> getDiscountById(Long id) {
@@ -74,17 +98,22 @@ public class EcoDiscountService {
     }
 
     public EcoDiscount updateDiscount(EcoDiscount discount) {
-        return ecoDiscountRepository.save(discount);
+        EcoDiscount saved = ecoDiscountRepository.save(discount);
+        discountRuleEngine.invalidate();
+        return saved;
     }
 
     public void deleteDiscount(Long id) {
         ecoDiscountRepository.deleteById(id);
+        discountRuleEngine.invalidate();
     }
 
+    @RetryOnConflict
     public void deactivateDiscount(String discountCode) {
         ecoDiscountRepository.findByDiscountCode(discountCode).ifPresent(discount -> {
             discount.setIsActive(false);
             ecoDiscountRepository.save(discount);
+            discountRuleEngine.invalidate();
         });
     }
 
@@ -175,67 +204,155 @@ public class EcoDiscountService {
     }
 
     public Double calculateDiscountAmount(EcoDiscount discount, Double orderAmount) {
-        Double discountAmount = 0.0;
-        
-        switch (discount.getDiscountType()) {
-            case "PERCENTAGE":
-                discountAmount = (orderAmount * discount.getDiscountValue()) / 100;
-                break;
-            case "FIXED_AMOUNT":
-                discountAmount = discount.getDiscountValue();
-                break;
-            case "FREE_SHIPPING":
-                // For free shipping, we could have a standard shipping amount
-                discountAmount = 50.0; // Assuming ₹50 shipping
-                break;
-            default:
-                discountAmount = 0.0;
-        }
+        return DiscountRuleEngine.calculateDiscountAmount(discount, orderAmount);
+    }
 
-        // Apply maximum discount limit if specified
-        if (discount.getMaximumDiscountAmount() != null && discountAmount > discount.getMaximumDiscountAmount()) {
-            discountAmount = discount.getMaximumDiscountAmount();
+    public UserDiscountUsage applyDiscount(String userId, String discountCode, String orderId, 
+                                         Double orderAmount, Double discountAmount) {
+        // Claim a redemption with a single conditional UPDATE so concurrent
+        // requests can never push currentUsageCount past usageLimit
+        if (ecoDiscountRepository.incrementUsageIfAvailable(discountCode) == 0) {
+            throw new IllegalStateException("Discount code is not active or its usage limit has been reached");
         }
+        discountRuleEngine.recordUsage(discountCode);
+
+        // Record the usage (rolls back the increment if it fails)
+        UserDiscountUsage usage = new UserDiscountUsage(userId, discountCode, orderId, discountAmount, orderAmount);
+        return usageRepository.save(usage);
+    }
 
-        // Ensure discount doesn't exceed order amount
-        if (discountAmount > orderAmount) {
-            discountAmount = orderAmount;
+    /**
+     * Redeem a discount code for an order at checkout. The code is checked against the
+     * order here (validity dates, usage limits, minimum order amount, category and store
+     * restrictions, the user's eco points) and the discount amount is computed here too;
+     * the amount the client sent must match it.
+     *
+     * @param items the order's cart items, for the category and store restrictions
+     * @return the recorded usage, whose discount amount is the computed one
+     * @throws IllegalStateException    if the code cannot be redeemed for this order
+     * @throws IllegalArgumentException if the order has no total or claimedDiscountAmount
+     *                                  differs from the computed amount
+     */
+    public UserDiscountUsage redeemForOrder(String userId, String discountCode, String orderId, Double orderAmount,
+                                            Double claimedDiscountAmount, List<CartItem> items) {
+        if (orderAmount == null) {
+            throw new IllegalArgumentException("order totalAmount is required to redeem a discount");
+        }
+        Integer ecoPoints = userEcoProfileRepository.findByUserId(userId)
+                .map(UserEcoProfile::getTotalEcoPoints)
+                .orElse(null);
+        Map<String, Object> validation = validateDiscount(discountCode, userId, orderAmount,
+                commonCategory(items), commonStore(items), ecoPoints);
+        if (!Boolean.TRUE.equals(validation.get("valid"))) {
+            throw new IllegalStateException((String) validation.get("message"));
         }
 
-        return discountAmount;
+        double discountAmount = (Double) validation.get("discountAmount");
+        if (claimedDiscountAmount == null || Math.abs(claimedDiscountAmount - discountAmount) > AMOUNT_TOLERANCE) {
+            throw new IllegalArgumentException("discountAmount does not match discount code " + discountCode
+                    + ": expected " + discountAmount);
+        }
+        return applyDiscount(userId, discountCode, orderId, orderAmount, discountAmount);
     }
 
-    public UserDiscountUsage applyDiscount(String userId, String discountCode, String orderId, 
-                                         Double orderAmount, Double discountAmount) {
-        // Record the usage
-        UserDiscountUsage usage = new UserDiscountUsage(userId, discountCode, orderId, discountAmount, orderAmount);
-        usage = usageRepository.save(usage);
-
-        // Update discount usage count
-        ecoDiscountRepository.findByDiscountCode(discountCode).ifPresent(discount -> {
-            discount.setCurrentUsageCount(discount.getCurrentUsageCount() + 1);
-            ecoDiscountRepository.save(discount);
-        });
+    // The category every item shares, or null if they differ or one is unknown
+    private static String commonCategory(List<CartItem> items) {
+        String category = null;
+        for (CartItem item : items) {
+            if (item.getProductCategory() == null
+                    || (category != null && !category.equals(item.getProductCategory()))) {
+                return null;
+            }
+            category = item.getProductCategory();
+        }
+        return category;
+    }
 
-        return usage;
+    // The store every item comes from, or null if they differ or one is unknown
+    private String commonStore(List<CartItem> items) {
+        Map<String, String> storeByProductId = findStoresForProducts(items);
+        String storeId = null;
+        for (CartItem item : items) {
+            String itemStore = storeByProductId.get(item.getProductId());
+            if (itemStore == null || (storeId != null && !storeId.equals(itemStore))) {
+                return null;
+            }
+            storeId = itemStore;
+        }
+        return storeId;
     }
 
     // User-specific discount methods
     public List<EcoDiscount> getApplicableDiscountsForUser(String userId, Integer userEcoPoints, Double orderAmount) {
-        List<EcoDiscount> allDiscounts = getCurrentlyValidDiscounts();
-        List<EcoDiscount> applicableDiscounts = new ArrayList<>();
-
-        for (EcoDiscount discount : allDiscounts) {
-            Map<String, Object> validation = validateDiscount(
-                discount.getDiscountCode(), userId, orderAmount, null, null, userEcoPoints
-            );
-            
-            if ((Boolean) validation.get("valid")) {
-                applicableDiscounts.add(discount);
+        return discountRuleEngine.findApplicable(userId, userEcoPoints, orderAmount, null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getBestDiscountForCart(String userId, Integer userEcoPoints) {
+        Map<String, Object> result = new HashMap<>();
+
+        List<CartItem> items = cartItemRepository.findByUserId(userId);
+        double cartTotal = items.stream()
+                .mapToDouble(item -> item.getTotalPrice() != null ? item.getTotalPrice() : 0.0)
+                .sum();
+        result.put("cartTotal", cartTotal);
+
+        if (items.isEmpty()) {
+            result.put("found", false);
+            result.put("message", "Cart is empty");
+            return result;
+        }
+
+        List<DiscountRuleEngine.Match> matches = discountRuleEngine.evaluateCart(
+            userId, userEcoPoints, items, findStoresForProducts(items)
+        );
+        matches.sort(Comparator.comparing(DiscountRuleEngine.Match::getDiscountAmount).reversed());
+
+        if (matches.isEmpty()) {
+            result.put("found", false);
+            result.put("message", "No discount applicable to this cart");
+            return result;
+        }
+
+        DiscountRuleEngine.Match best = matches.get(0);
+        result.put("found", true);
+        result.put("discount", best.getDiscount());
+        result.put("eligibleAmount", best.getEligibleAmount());
+        result.put("discountAmount", best.getDiscountAmount());
+        result.put("finalAmount", cartTotal - best.getDiscountAmount());
+
+        List<Map<String, Object>> alternatives = new ArrayList<>();
+        for (DiscountRuleEngine.Match match : matches.subList(1, Math.min(matches.size(), 6))) {
+            Map<String, Object> alternative = new HashMap<>();
+            alternative.put("discountCode", match.getDiscount().getDiscountCode());
+            alternative.put("eligibleAmount", match.getEligibleAmount());
+            alternative.put("discountAmount", match.getDiscountAmount());
+            alternatives.add(alternative);
+        }
+        result.put("alternatives", alternatives);
+        result.put("message", "Best discount found");
+
+        return result;
+    }
+
+    // Cart items only carry the product ID, so resolve stores with one IN query
+    private Map<String, String> findStoresForProducts(List<CartItem> items) {
+        List<Long> productIds = new ArrayList<>();
+        for (CartItem item : items) {
+            try {
+                productIds.add(Long.parseLong(item.getProductId()));
+            } catch (NumberFormatException e) {
+                // Non-numeric product IDs have no Product row to resolve
             }
         }
 
-        return applicableDiscounts;
+        Map<String, String> storeByProductId = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            if (product.getStoreId() != null) {
+                storeByProductId.put(String.valueOf(product.getId()), product.getStoreId());
+            }
+        }
+        return storeByProductId;
     }
 
     // Analytics and Statistics
@@ -308,6 +425,7 @@ public class EcoDiscountService {
         );
 
         ecoDiscountRepository.saveAll(sampleDiscounts);
+        discountRuleEngine.invalidate();
     }
 
     private EcoDiscount createSampleDiscount(String code, String title, String description,
@@ -0,0 +1,104 @@
+package com.ecobazaar.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ID Generator
+ *
+ * Snowflake-style 64-bit IDs (41 bits of milliseconds since 2024-01-01,
+ * 10 bits of node, 12 bits of sequence) rendered as 13 fixed-width Crockford
+ * base32 characters, so string order follows creation order. Generation is a
+ * single CAS on the (timestamp, sequence) pair; a sequence overflow or a clock
+ * step backwards borrows the next millisecond instead of blocking.
+ *
+ * IDs are unique across instances only if every instance has its own node id.
+ * Without ids.node-id one is derived from host and pid, which can collide
+ * (1024 values), so deployments set ids.require-node-id and startup fails
+ * until ids.node-id is set.
+ */
+@Component
+public class IdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGenerator.class);
+
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    @Value("${ids.node-id:-1}")
+    private long configuredNodeId;
+
+    @Value("${ids.require-node-id:false}")
+    private boolean requireNodeId;
+
+    private long nodeId;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (configuredNodeId > MAX_NODE) {
+            throw new IllegalStateException("ids.node-id must be between 0 and " + MAX_NODE + ", got " + configuredNodeId);
+        }
+        if (configuredNodeId >= 0) {
+            nodeId = configuredNodeId;
+        } else if (requireNodeId) {
+            throw new IllegalStateException("ids.node-id is required: set ID_NODE_ID to a value between 0 and "
+                    + MAX_NODE + " that no other instance uses");
+        } else {
+            nodeId = deriveNodeId();
+            log.info("ids.node-id not set, using derived node id {}", nodeId);
+        }
+    }
+
+    /**
+     * Next ID with the given prefix, e.g. {@code nextId("ORD-")}.
+     */
+    public String nextId(String prefix) {
+        return prefix + encode(nextLong());
+    }
+
+    public long nextLong() {
+        while (true) {
+            long previous = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // A new millisecond restarts the sequence; otherwise increment, which
+            // carries into the timestamp bits when the sequence is exhausted
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[13];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static long deriveNodeId() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return (host + ":" + ProcessHandle.current().pid()).hashCode() & MAX_NODE;
+        } catch (Exception e) {
+            return ThreadLocalRandom.current().nextLong(MAX_NODE + 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecobazaar.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency Store
+ *
+ * Bounded, least-recently-used map from idempotency key to the response of
+ * the request that first used it. The first caller for a key claims it and
+ * must complete or abandon it; concurrent duplicates wait for that outcome.
+ * This only covers one instance - callers back it with a unique column so
+ * replays that miss the cache are still caught by the database.
+ */
+@Component
+public class IdempotencyStore {
+
+    @Value("${payments.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${payments.idempotency.wait-ms:10000}")
+    private long waitMs;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            // In-flight keys are kept; the map may briefly exceed its bound
+            return size() > maxEntries && eldest.getValue().response.isDone();
+        }
+    };
+
+    /**
+     * Claim a key, or join the request that already holds it.
+     *
+     * @param fingerprint summary of the request payload, used to reject a key
+     *                    reused for a different request
+     */
+    public synchronized Claim claim(String key, String fingerprint) {
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            return new Claim(existing, false);
+        }
+        Entry entry = new Entry(fingerprint);
+        entries.put(key, entry);
+        return new Claim(entry, true);
+    }
+
+    /**
+     * Record the response for a claimed key and release any waiting duplicates.
+     */
+    public void complete(String key, Map<String, Object> response) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            entry.response.complete(response);
+        }
+    }
+
+    /**
+     * Release a claimed key without a response so that a later retry can run.
+     */
+    public void abandon(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(key);
+        }
+        if (entry != null) {
+            entry.response.completeExceptionally(new IllegalStateException("Request was not completed"));
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public final class Claim {
+        private final Entry entry;
+        private final boolean owner;
+
+        private Claim(Entry entry, boolean owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        /**
+         * True if this caller must process the request and then complete or abandon the key.
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        public boolean matches(String fingerprint) {
+            return Objects.equals(entry.fingerprint, fingerprint);
+        }
+
+        /**
+         * Wait for the owning request's response.
+         *
+         * @throws IllegalStateException if the owner abandoned the key or did not finish in time
+         */
+        public Map<String, Object> awaitResponse() {
+            try {
+                return entry.response.get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request");
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("Original request with this key did not complete");
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.InventoryReservation;
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.repository.InventoryReservationRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for inventory reservations
+ *
+ * Reserving takes stock from Product.quantity straight away with a
+ * conditional decrement (or from InventoryStockPool for hot products), so
+ * stock can never go negative. Held reservations are confirmed by checkout;
+ * the rest are released by the user or expire after
+ * inventory.reservation.ttl-seconds. Expiry is driven by an in-memory timer
+ * wheel, with a periodic database sweep to catch holds from other instances
+ * or from before a restart.
+ */
+@Service
+@Transactional
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SLOTS = 4096;
+    private static final int SWEEP_EVERY_TICKS = 60;
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private InventoryReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryStockPool stockPool;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${inventory.reservation.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${inventory.hot.idle-ms:30000}")
+    private long hotIdleMs;
+
+    private ReservationTimerWheel wheel;
+    private TransactionTemplate reserveTransaction;
+    private TransactionTemplate expiryTransaction;
+    private ScheduledExecutorService timer;
+    private int ticksSinceSweep = SWEEP_EVERY_TICKS; // sweep on the first tick
+
+    @PostConstruct
+    void start() {
+        wheel = new ReservationTimerWheel(TICK_MS, WHEEL_SLOTS, System.currentTimeMillis());
+        reserveTransaction = new TransactionTemplate(transactionManager);
+        expiryTransaction = new TransactionTemplate(transactionManager);
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-reservation-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        timer.shutdown();
+        timer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Hold stock for a user until the reservation is confirmed, released or expires.
+     * Runs outside any caller transaction: pooled stock is taken first, with
+     * no connection held, and the reservation is then saved in a short
+     * transaction of its own.
+     *
+     * @throws IllegalStateException if there is not enough stock
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public InventoryReservation reserve(Long productId, String userId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+
+        boolean fromPool = stockPool.takePooled(productId, quantity);
+        try {
+            return reserveTransaction.execute(status -> {
+                if (!fromPool && productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+                    throw new IllegalStateException("Insufficient stock for product " + productId);
+                }
+                long deadlineMs = System.currentTimeMillis() + ttlSeconds * 1000;
+                InventoryReservation reservation = new InventoryReservation(idGenerator.nextId("RSV_"), productId,
+                        userId, quantity, LocalDateTime.ofInstant(Instant.ofEpochMilli(deadlineMs), ZoneId.systemDefault()));
+                InventoryReservation saved = reservationRepository.save(reservation);
+
+                String reservationId = saved.getReservationId();
+                TransactionCallbacks.afterCompletion(txStatus -> {
+                    if (txStatus == TransactionSynchronization.STATUS_COMMITTED) {
+                        wheel.schedule(reservationId, deadlineMs);
+                    }
+                });
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            if (fromPool) {
+                // Pooled units were taken outside the transaction; put them back
+                stockPool.giveBack(productId, quantity);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Take stock for an order placed without reservations. Joins the caller's
+     * transaction, so the stock comes back if the order fails.
+     *
+     * @throws IllegalStateException if there is not enough stock
+     */
+    public void deduct(Long productId, int quantity) {
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 1) {
+            return;
+        }
+        // A hot product's stock may sit in the pool rather than the row
+        if (!stockPool.takeFromPool(productId, quantity)) {
+            throw new IllegalStateException("Insufficient stock for product " + productId);
+        }
+        TransactionCallbacks.afterCompletion(status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                stockPool.giveBack(productId, quantity);
+            }
+        });
+    }
+
+    /**
+     * Attach a user's held reservations to an order. Joins the caller's
+     * transaction, so the order fails if any reservation has already expired,
+     * been released or belongs to someone else.
+     *
+     * @throws IllegalStateException if a reservation is not held for the user
+     */
+    public void confirm(List<String> reservationIds, String orderId, String userId) {
+        for (String reservationId : reservationIds) {
+            if (reservationRepository.confirm(reservationId, orderId, userId) == 0) {
+                throw new IllegalStateException("Reservation " + reservationId + " is not held for user " + userId);
+            }
+        }
+    }
+
+    /**
+     * Give a held reservation's stock back.
+     *
+     * @return false if the reservation is not held (unknown, confirmed, released or expired)
+     */
+    public boolean release(String reservationId) {
+        return endHold(reservationId, InventoryReservation.RELEASED);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAvailability(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        int pooled = stockPool.pooledQuantity(productId);
+        Map<String, Object> availability = new HashMap<>();
+        availability.put("productId", productId);
+        availability.put("available", (product.getQuantity() != null ? product.getQuantity() : 0) + pooled);
+        availability.put("pooled", pooled);
+        availability.put("held", reservationRepository.sumHeldQuantity(productId));
+        return availability;
+    }
+
+    private boolean endHold(String reservationId, String status) {
+        if (reservationRepository.endHold(reservationId, status) == 0) {
+            return false;
+        }
+        InventoryReservation reservation = reservationRepository.findByReservationId(reservationId).orElseThrow();
+        Long productId = reservation.getProductId();
+        int quantity = reservation.getQuantity();
+        // Hand the units out again only once the status change is durable
+        TransactionCallbacks.afterCompletion(txStatus -> {
+            if (txStatus == TransactionSynchronization.STATUS_COMMITTED) {
+                stockPool.giveBack(productId, quantity);
+            }
+        });
+        return true;
+    }
+
+    // Runs only on the timer thread
+    private void tick() {
+        try {
+            for (String reservationId : wheel.advance(System.currentTimeMillis())) {
+                expire(reservationId);
+            }
+            stockPool.tick(hotIdleMs);
+
+            if (++ticksSinceSweep >= SWEEP_EVERY_TICKS) {
+                ticksSinceSweep = 0;
+                List<InventoryReservation> expired;
+                int failed;
+                do {
+                    expired = reservationRepository.findExpiredHolds(LocalDateTime.now(),
+                            PageRequest.of(0, SWEEP_BATCH_SIZE));
+                    failed = 0;
+                    for (InventoryReservation reservation : expired) {
+                        if (!expire(reservation.getReservationId())) {
+                            failed++;
+                        }
+                    }
+                } while (expired.size() == SWEEP_BATCH_SIZE && failed < expired.size());
+            }
+        } catch (Exception e) {
+            log.error("Inventory reservation tick failed", e);
+        }
+    }
+
+    private boolean expire(String reservationId) {
+        try {
+            expiryTransaction.executeWithoutResult(status -> endHold(reservationId, InventoryReservation.EXPIRED));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to expire reservation {}", reservationId, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inventory Stock Pool
+ *
+ * Striped in-memory stock for hot products. A product becomes hot once it
+ * sees more than inventory.hot.threshold-per-sec reservations in a second;
+ * from then on stock is moved out of Product.quantity in chunks (each chunk
+ * is one conditional decrement that commits on its own) and handed out from
+ * per-stripe counters with CAS, so most reservations never touch the row.
+ * Refills run outside any lock and any caller transaction, one at a time per
+ * product, and are spread over all stripes; a take that no single stripe can
+ * serve gathers the stripes before giving up.
+ * Units are always deducted from the database before they are handed out,
+ * so the pool cannot oversell; units left in a pool go back to the database
+ * when the product cools down or the application stops.
+ */
+@Component
+public class InventoryStockPool {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryStockPool.class);
+
+    private static final int STRIPES = 8;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${inventory.hot.threshold-per-sec:50}")
+    private int hotThresholdPerSec;
+
+    @Value("${inventory.hot.chunk-size:100}")
+    private int chunkSize;
+
+    private final ConcurrentHashMap<Long, Stripes> pools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> hitsThisSecond = new ConcurrentHashMap<>();
+
+    /**
+     * Take stock for a reservation from the pool. Must not be called inside a
+     * transaction: a refill commits a chunk on its own connection, and no
+     * lock is held while it does.
+     *
+     * @return false if the product is not pooled; the caller then decrements
+     *         Product.quantity in its own transaction
+     * @throws IllegalStateException if the product is pooled and there is not enough stock
+     */
+    public boolean takePooled(Long productId, int quantity) {
+        Stripes pool = pools.get(productId);
+        if (pool == null) {
+            if (hitsThisSecond.computeIfAbsent(productId, k -> new AtomicInteger()).incrementAndGet() <= hotThresholdPerSec) {
+                return false;
+            }
+            pool = pools.computeIfAbsent(productId, k -> {
+                log.info("Product {} is hot, serving reservations from in-memory stock", productId);
+                return new Stripes();
+            });
+        }
+
+        pool.lastUsed.set(System.currentTimeMillis());
+        if (pool.tryTake(quantity) || consolidate(pool, quantity)) {
+            return true;
+        }
+        if (pool.detached) {
+            return false; // drained meanwhile; its units are back in the database
+        }
+        // One refill at a time; everyone else takes exactly what they need
+        if (pool.refilling.compareAndSet(false, true)) {
+            try {
+                int chunk = Math.max(quantity, chunkSize);
+                if (productRepository.decrementStockIfAvailableNow(productId, chunk) == 1) {
+                    addToPool(productId, pool, chunk - quantity);
+                    return true;
+                }
+            } finally {
+                pool.refilling.set(false);
+            }
+        }
+        if (productRepository.decrementStockIfAvailableNow(productId, quantity) == 1) {
+            return true;
+        }
+        // A refill or a give-back may have landed while we were at the database
+        if (consolidate(pool, quantity)) {
+            return true;
+        }
+        throw new IllegalStateException("Insufficient stock for product " + productId);
+    }
+
+    /**
+     * Take stock already in the pool, without touching the database. Used by
+     * checkout, which decrements Product.quantity in its own transaction first
+     * and falls back to pooled units when the pool has moved them out.
+     *
+     * @return false if the product is not pooled or its pool is short
+     */
+    public boolean takeFromPool(Long productId, int quantity) {
+        Stripes pool = pools.get(productId);
+        return pool != null && (pool.tryTake(quantity) || consolidate(pool, quantity));
+    }
+
+    /**
+     * Return stock to the pool, or straight to the database (committed on its
+     * own) when the product is not pooled. Call after the transaction that
+     * released the stock has committed.
+     */
+    public void giveBack(Long productId, int quantity) {
+        Stripes pool = pools.get(productId);
+        if (pool != null) {
+            addToPool(productId, pool, quantity);
+        } else {
+            productRepository.incrementStockNow(productId, quantity);
+        }
+    }
+
+    /**
+     * Stop pooling a product and hand its pooled units to the caller instead
+     * of the database. Used when Product.quantity is about to be set outright,
+     * which supersedes whatever the pool was holding; the caller gives the
+     * units back if that update does not commit.
+     *
+     * @return the units that were pooled
+     */
+    public int detach(Long productId) {
+        Stripes pool = pools.remove(productId);
+        if (pool == null) {
+            return 0;
+        }
+        synchronized (pool) {
+            pool.detached = true;
+            return pool.takeAll();
+        }
+    }
+
+    /**
+     * Units of a product currently held in memory (not counted in Product.quantity).
+     */
+    public int pooledQuantity(Long productId) {
+        Stripes pool = pools.get(productId);
+        return pool != null ? pool.total() : 0;
+    }
+
+    /**
+     * Reset the per-second hit counters and return pools idle for longer than
+     * idleMs to the database. Called once a second by the inventory service.
+     */
+    public void tick(long idleMs) {
+        hitsThisSecond.clear();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Stripes> entry : pools.entrySet()) {
+            if (now - entry.getValue().lastUsed.get() > idleMs) {
+                drain(entry.getKey());
+            }
+        }
+    }
+
+    @PreDestroy
+    void drainAll() {
+        for (Long productId : pools.keySet()) {
+            drain(productId);
+        }
+    }
+
+    private void drain(Long productId) {
+        int units = detach(productId);
+        if (units > 0) {
+            try {
+                productRepository.incrementStockNow(productId, units);
+            } catch (RuntimeException e) {
+                log.error("Failed to return {} pooled units of product {} to the database", units, productId, e);
+            }
+        }
+    }
+
+    private void addToPool(Long productId, Stripes pool, int units) {
+        if (units <= 0) {
+            return;
+        }
+        pool.addSpread(units);
+        if (pool.detached) {
+            // Drained while we were adding; hand whatever is left to the database
+            int left = pool.takeAll();
+            if (left > 0) {
+                productRepository.incrementStockNow(productId, left);
+            }
+        }
+    }
+
+    /**
+     * Gather units scattered over the stripes and take quantity from the total
+     * when no single stripe has enough. Memory only, so the lock is brief.
+     */
+    private static boolean consolidate(Stripes pool, int quantity) {
+        synchronized (pool) {
+            if (pool.detached) {
+                return false;
+            }
+            int units = pool.takeAll();
+            if (units >= quantity) {
+                pool.addSpread(units - quantity);
+                return true;
+            }
+            pool.addSpread(units);
+            return false;
+        }
+    }
+
+    private static final class Stripes {
+        private final AtomicInteger[] counters = new AtomicInteger[STRIPES];
+        private final AtomicLong lastUsed = new AtomicLong(System.currentTimeMillis());
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+        private volatile boolean detached;
+
+        private Stripes() {
+            for (int i = 0; i < STRIPES; i++) {
+                counters[i] = new AtomicInteger();
+            }
+        }
+
+        boolean tryTake(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                AtomicInteger counter = counters[(start + i) % STRIPES];
+                int available = counter.get();
+                while (available >= quantity) {
+                    if (counter.compareAndSet(available, available - quantity)) {
+                        return true;
+                    }
+                    available = counter.get();
+                }
+            }
+            return false;
+        }
+
+        // Split units evenly over the stripes, so a later take can be served from any of them
+        void addSpread(int units) {
+            int share = units / STRIPES;
+            int remainder = units % STRIPES;
+            int start = ThreadLocalRandom.current().nextInt(STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                int stripeUnits = share + (i < remainder ? 1 : 0);
+                if (stripeUnits > 0) {
+                    counters[(start + i) % STRIPES].addAndGet(stripeUnits);
+                }
+            }
+        }
+
+        int takeAll() {
+            int total = 0;
+            for (AtomicInteger counter : counters) {
+                total += counter.getAndSet(0);
+            }
+            return total;
+        }
+
+        int total() {
+            int total = 0;
+            for (AtomicInteger counter : counters) {
+                total += counter.get();
+            }
+            return total;
+        }
+    }
+}
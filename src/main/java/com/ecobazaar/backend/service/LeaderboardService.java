@@ -1,5 +1,6 @@
 package com.ecobazaar.backend.service;
 
+import com.ecobazaar.backend.config.RetryOnConflict;
 import com.ecobazaar.backend.entity.UserEcoProfile;
 import com.ecobazaar.backend.repository.UserEcoProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,27 +23,29 @@ public class LeaderboardService {
     @Autowired
     private UserEcoProfileRepository profileRepository;
 
+    @Autowired
+    private UpsertSupport upsertSupport;
+
     // Profile Management
     public UserEcoProfile getOrCreateProfile(String userId, String userName, String userEmail) {
-        Optional<UserEcoProfile> profileOpt = profileRepository.findByUserId(userId);
-        if (profileOpt.isPresent()) {
-            return profileOpt.get();
-        }
-        
-        UserEcoProfile profile = new UserEcoProfile(userId, userName, userEmail);
-        return profileRepository.save(profile);
+        return upsertSupport.getOrInsert("profile:" + userId,
+                () -> profileRepository.findByUserId(userId),
+                () -> profileRepository.findByUserIdForShare(userId),
+                () -> profileRepository.insertIfAbsent(userId, userName, userEmail));
     }
 
     public Optional<UserEcoProfile> getProfile(String userId) {
         return profileRepository.findByUserId(userId);
     }
 
+    @RetryOnConflict
     public UserEcoProfile updateProfile(UserEcoProfile profile) {
         profile.setLastActivityDate(LocalDateTime.now());
         return profileRepository.save(profile);
     }
 
     // Eco Points Management
+    @RetryOnConflict
     public UserEcoProfile addEcoPoints(String userId, Integer points, String reason) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
         profile.addEcoPoints(points);
@@ -57,6 +60,7 @@ public class LeaderboardService {
         return profileRepository.save(profile);
     }
 
+    @RetryOnConflict
     public UserEcoProfile addCarbonSaved(String userId, Double carbon) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
         profile.addCarbonSaved(carbon);
@@ -64,6 +68,7 @@ public class LeaderboardService {
         return profileRepository.save(profile);
     }
 
+    @RetryOnConflict
     public UserEcoProfile updateEnvironmentalImpact(String userId, Double carbonSaved, 
                                                    Double waterSaved, Double energySaved, Double wasteReduced) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
@@ -80,6 +85,7 @@ public class LeaderboardService {
     }
 
     // Challenge Updates
+    @RetryOnConflict
     public UserEcoProfile updateChallengeStats(String userId, boolean challengeCompleted, Integer pointsEarned) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
         
@@ -102,6 +108,7 @@ public class LeaderboardService {
     }
 
     // Streak Management
+    @RetryOnConflict
     public UserEcoProfile updateStreak(String userId, boolean activityToday) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
         
@@ -130,6 +137,7 @@ public class LeaderboardService {
     }
 
     // Shopping Stats Update
+    @RetryOnConflict
     public UserEcoProfile updateShoppingStats(String userId, Double orderAmount, 
                                              Double discountSaved, Integer ecoProductsCount) {
         UserEcoProfile profile = getOrCreateProfile(userId, "User " + userId, null);
@@ -330,6 +338,7 @@ public class LeaderboardService {
     }
 
     // Batch Rank Update (to be called periodically)
+    @RetryOnConflict
     public void updateAllRanks() {
         List<UserEcoProfile> allProfiles = profileRepository.findAll();
         
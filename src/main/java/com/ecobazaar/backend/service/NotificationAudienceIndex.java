@@ -0,0 +1,278 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.UserSettings;
+import com.ecobazaar.backend.repository.UserSettingsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Notification Audience Index
+ *
+ * One bitmap per UserSettings flag, indexed by the settings row id (a dense
+ * ordinal), plus a bitmap of rows that exist. "Users with orderUpdates and
+ * pushNotifications" is then an AND over two bitmaps: about 1.3 MB of bits
+ * per million users, and a few milliseconds per query. Only ids are held in
+ * memory; user ids for a page of results are resolved with one query.
+ *
+ * The index is built at startup and rebuilt every
+ * notifications.audience.rebuild-interval-ms on a background thread, which
+ * picks up rows written elsewhere (other instances, data initialization and
+ * migration); SettingsService applies its own writes here as they happen.
+ * Requests never build it: until the first build finishes they wait for it
+ * for a bounded time, and afterwards they use the latest one.
+ */
+@Component
+public class NotificationAudienceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationAudienceIndex.class);
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+    private static final int FLAG_BITS = 10;
+    private static final long INITIAL_BUILD_WAIT_SECONDS = 30;
+    private static final long INITIAL_BUILD_RETRY_MS = 30000;
+
+    // Flag names accepted in audience queries (the Settings JSON property names)
+    public static final Map<String, Integer> FLAGS;
+    static {
+        Map<String, Integer> flags = new LinkedHashMap<>();
+        flags.put("notificationsEnabled", UserSettings.NOTIFICATIONS_ENABLED);
+        flags.put("emailNotifications", UserSettings.EMAIL_NOTIFICATIONS);
+        flags.put("pushNotifications", UserSettings.PUSH_NOTIFICATIONS);
+        flags.put("smsNotifications", UserSettings.SMS_NOTIFICATIONS);
+        flags.put("ecoTipsEnabled", UserSettings.ECO_TIPS_ENABLED);
+        flags.put("challengeReminders", UserSettings.CHALLENGE_REMINDERS);
+        flags.put("orderUpdates", UserSettings.ORDER_UPDATES);
+        flags.put("promotionalEmails", UserSettings.PROMOTIONAL_EMAILS);
+        flags.put("dataSharing", UserSettings.DATA_SHARING);
+        flags.put("locationTracking", UserSettings.LOCATION_TRACKING);
+        FLAGS = Collections.unmodifiableMap(flags);
+    }
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    @Value("${notifications.audience.rebuild-interval-ms:900000}")
+    private long rebuildIntervalMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CountDownLatch built = new CountDownLatch(1);
+    private volatile Bitmaps bitmaps;
+    // Writes seen while a rebuild is reading the table, replayed onto its result
+    private List<long[]> pendingWrites;
+    private ScheduledExecutorService rebuilder;
+
+    @PostConstruct
+    void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-audience-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.execute(this::rebuildQuietly);
+        rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, rebuildIntervalMs, rebuildIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Parse a comma-separated list of flag names into a bitmask.
+     *
+     * @throws IllegalArgumentException for an unknown flag name
+     */
+    public static int parseFlags(String names) {
+        int mask = 0;
+        if (names == null || names.isBlank()) {
+            return mask;
+        }
+        for (String name : names.split(",")) {
+            Integer flag = FLAGS.get(name.trim());
+            if (flag == null) {
+                throw new IllegalArgumentException("Unknown notification flag: " + name.trim()
+                        + " (expected one of " + FLAGS.keySet() + ")");
+            }
+            mask |= flag;
+        }
+        return mask;
+    }
+
+    /**
+     * Number of users with every flag in allOf set and every flag in noneOf cleared.
+     */
+    public int count(int allOf, int noneOf) {
+        return match(allOf, noneOf).cardinality();
+    }
+
+    /**
+     * One page of matching user ids, in settings row order.
+     */
+    public List<String> userIds(int allOf, int noneOf, int page, int size) {
+        BitSet matches = match(allOf, noneOf);
+        List<Long> ids = new ArrayList<>(size);
+        int bit = matches.nextSetBit(0);
+        for (long skip = (long) page * size; bit >= 0 && skip > 0; skip--) {
+            bit = matches.nextSetBit(bit + 1);
+        }
+        for (; bit >= 0 && ids.size() < size; bit = matches.nextSetBit(bit + 1)) {
+            ids.add((long) bit);
+        }
+        return ids.isEmpty() ? Collections.emptyList() : userSettingsRepository.findUserIdsByIdIn(ids);
+    }
+
+    /**
+     * Apply a saved settings row. Call after the row is committed.
+     */
+    public void update(UserSettings settings) {
+        if (settings.getId() == null) {
+            return;
+        }
+        long[] write = {settings.getId(), settings.getFlags()};
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+            if (bitmaps != null) {
+                bitmaps.set(write[0], (int) write[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private BitSet match(int allOf, int noneOf) {
+        Bitmaps current = current();
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) current.present.clone();
+            for (int i = 0; i < FLAG_BITS; i++) {
+                if ((allOf & (1 << i)) != 0) {
+                    result.and(current.byFlag[i]);
+                } else if ((noneOf & (1 << i)) != 0) {
+                    result.andNot(current.byFlag[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Bitmaps current() {
+        Bitmaps current = bitmaps;
+        if (current != null) {
+            return current;
+        }
+        try {
+            if (built.await(INITIAL_BUILD_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                return bitmaps;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("Notification audience index is still being built");
+    }
+
+    // Runs on the rebuild thread only
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding notification audience index failed, keeping the previous one", e);
+            if (bitmaps == null) {
+                // Nothing to serve yet, so retry well before the next regular rebuild
+                rebuilder.schedule(this::rebuildQuietly, INITIAL_BUILD_RETRY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Bitmaps fresh = new Bitmaps();
+        try {
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = userSettingsRepository.findFlagsAfter(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    afterId = ((Number) row[0]).longValue();
+                    fresh.set(afterId, row[1] != null ? ((Number) row[1]).intValue() : UserSettings.DEFAULT_FLAGS);
+                }
+            } while (rows.size() == LOAD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (long[] write : pendingWrites) {
+                fresh.set(write[0], (int) write[1]);
+            }
+            pendingWrites = null;
+            bitmaps = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        built.countDown();
+
+        log.info("Built notification audience index over {} users in {} ms",
+                fresh.present.cardinality(), System.currentTimeMillis() - started);
+    }
+
+    private static final class Bitmaps {
+        private final BitSet present = new BitSet();
+        private final BitSet[] byFlag = new BitSet[FLAG_BITS];
+
+        private Bitmaps() {
+            for (int i = 0; i < FLAG_BITS; i++) {
+                byFlag[i] = new BitSet();
+            }
+        }
+
+        void set(long id, int flags) {
+            if (id > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Settings id " + id + " exceeds the audience index range");
+            }
+            int ordinal = (int) id;
+            present.set(ordinal);
+            for (int i = 0; i < FLAG_BITS; i++) {
+                byFlag[i].set(ordinal, (flags & (1 << i)) != 0);
+            }
+        }
+
+    }
+}
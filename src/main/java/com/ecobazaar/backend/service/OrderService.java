@@ -11,7 +11,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -20,12 +19,15 @@ public class OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     // Create new order
     public Order createOrder(Order order) {
         try {
             // Generate unique order ID if not provided
             if (order.getOrderId() == null || order.getOrderId().isEmpty()) {
-                order.setOrderId("ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+                order.setOrderId(idGenerator.nextId("ORD-"));
             }
             
             // Set default values if not provided
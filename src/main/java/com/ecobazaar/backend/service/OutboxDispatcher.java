@@ -0,0 +1,223 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.OutboxEvent;
+import com.ecobazaar.backend.entity.ProcessedOutboxEvent;
+import com.ecobazaar.backend.repository.OutboxEventRepository;
+import com.ecobazaar.backend.repository.ProcessedOutboxEventRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Outbox Dispatcher
+ *
+ * Background worker that carries out OutboxEvents written by checkout and
+ * product updates. Events
+ * are claimed with a conditional UPDATE (so several instances can poll the
+ * same table), handled at least once, and retried with exponential backoff up
+ * to checkout.outbox.max-attempts before being parked as FAILED. Effects
+ * that are not safe to repeat (stats and challenge progress) record the
+ * event id in processed_outbox_events in the same transaction, so a
+ * redelivered event applies them only once. Challenge progress is handed to
+ * ChallengeProgressPipeline rather than written here.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    public static final String SHOPPING_STATS = "SHOPPING_STATS";
+    public static final String CHALLENGE_PROGRESS = "CHALLENGE_PROGRESS";
+    public static final String CLEAR_CART = "CLEAR_CART";
+    public static final String PRICE_DROP = "PRICE_DROP";
+
+    private static final int BATCH_SIZE = 100;
+    private static final long LEASE_SECONDS = 300;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ChallengeProgressPipeline challengeProgressPipeline;
+
+    @Autowired
+    private PriceDropWatcher priceDropWatcher;
+
+    @Autowired
+    private ProcessedOutboxEventRepository processedEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${checkout.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${checkout.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    private TransactionTemplate effectTransaction;
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean(false);
+    private ScheduledExecutorService worker;
+
+    @PostConstruct
+    void start() {
+        effectTransaction = new TransactionTemplate(transactionManager);
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::dispatchDue, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        worker.shutdown();
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Process due events now instead of waiting for the next poll. Called after
+     * a checkout commits so side effects usually land within milliseconds.
+     */
+    public void wakeUp() {
+        if (wakeUpScheduled.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                wakeUpScheduled.set(false);
+                dispatchDue();
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "pending", outboxEventRepository.countByStatus(OutboxEvent.PENDING),
+            "processing", outboxEventRepository.countByStatus(OutboxEvent.PROCESSING),
+            "failed", outboxEventRepository.countByStatus(OutboxEvent.FAILED)
+        );
+    }
+
+    // Runs only on the worker thread
+    private void dispatchDue() {
+        try {
+            List<OutboxEvent> due;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                due = outboxEventRepository.findDueEvents(now, PageRequest.of(0, BATCH_SIZE));
+                for (OutboxEvent event : due) {
+                    if (outboxEventRepository.claim(event.getId(), now, now.plusSeconds(LEASE_SECONDS)) == 1) {
+                        dispatch(event);
+                    }
+                }
+            } while (due.size() == BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Outbox poll failed", e);
+        }
+    }
+
+    private void dispatch(OutboxEvent event) {
+        int attempt = event.getAttempts() + 1;
+        try {
+            handle(event, objectMapper.readTree(event.getPayload()));
+            outboxEventRepository.markDone(event.getId(), LocalDateTime.now());
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (attempt >= maxAttempts) {
+                log.error("Outbox event {} ({}) for {} failed permanently after {} attempts",
+                        event.getId(), event.getEventType(), event.getAggregateId(), attempt, e);
+                outboxEventRepository.release(event.getId(), OutboxEvent.FAILED, LocalDateTime.now(), error);
+            } else {
+                long backoffSeconds = 1L << Math.min(attempt, 10);
+                log.warn("Outbox event {} ({}) failed on attempt {}, retrying in {}s: {}",
+                        event.getId(), event.getEventType(), attempt, backoffSeconds, error);
+                outboxEventRepository.release(event.getId(), OutboxEvent.PENDING,
+                        LocalDateTime.now().plusSeconds(backoffSeconds), error);
+            }
+        }
+    }
+
+    private void handle(OutboxEvent event, JsonNode payload) {
+        String eventType = event.getEventType();
+        String userId = payload.path("userId").asText();
+        switch (eventType) {
+            case SHOPPING_STATS:
+                once(event, () -> leaderboardService.updateShoppingStats(userId,
+                        payload.path("orderAmount").asDouble(),
+                        payload.path("discountSaved").asDouble(),
+                        payload.path("ecoProductsCount").asInt()));
+                break;
+            case CHALLENGE_PROGRESS:
+                // Through the pipeline, which is the only writer of progress rows; a full
+                // buffer fails the event so it is retried with backoff
+                once(event, () -> {
+                    if (!challengeProgressPipeline.submit(userId, payload.path("challengeId").asText(),
+                            payload.path("delta").asInt())) {
+                        throw new IllegalStateException("Challenge progress buffer is full");
+                    }
+                });
+                break;
+            case CLEAR_CART:
+                // Deleting known items is safe to repeat; items added after the order are left alone
+                if (payload.has("cartItemIds")) {
+                    List<Long> itemIds = new ArrayList<>();
+                    payload.path("cartItemIds").forEach(id -> itemIds.add(id.asLong()));
+                    cartService.removeOrderedItems(userId, itemIds);
+                } else {
+                    cartService.removeItemsAddedBefore(userId, event.getCreatedAt());
+                }
+                break;
+            case PRICE_DROP:
+                priceDropWatcher.fanOut(payload.path("productId").asText(),
+                        payload.path("productName").asText(null),
+                        payload.path("newPrice").asDouble(),
+                        payload.path("ecoProduct").asBoolean());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown outbox event type: " + eventType);
+        }
+    }
+
+    /**
+     * Apply an effect that is not safe to repeat at most once per event: the
+     * event id is recorded in the same transaction, so a redelivery after the
+     * effect committed finds it and skips.
+     */
+    private void once(OutboxEvent event, Runnable effect) {
+        effectTransaction.executeWithoutResult(status -> {
+            if (processedEventRepository.existsById(event.getId())) {
+                log.info("Outbox event {} ({}) was already applied, skipping", event.getId(), event.getEventType());
+                return;
+            }
+            // Flushed first: a concurrent redelivery blocks on this row and then fails on the key
+            processedEventRepository.saveAndFlush(new ProcessedOutboxEvent(event.getId()));
+            effect.run();
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.PriceAlert;
+import com.ecobazaar.backend.entity.UserSettings;
+import com.ecobazaar.backend.repository.PriceAlertRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import com.ecobazaar.backend.repository.UserSettingsRepository;
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Price Drop Watcher
+ *
+ * Turns a PRICE_DROP outbox event (written by ProductService when a product
+ * gets cheaper) into PriceAlerts for the users who wishlisted the product.
+ * Holders are read by product id in keyset pages through the wishlist_items
+ * product_id index, so a price change never scans the whole table. A user
+ * is alerted only when the new price is below the price on their wishlist
+ * item. Their settings must have notifications on, and promotional emails
+ * on (ecoTipsEnabled also counts for eco products).
+ *
+ * Each page commits its alerts together with the new price on the wishlist
+ * items it covered. A retried event therefore skips holders it has already
+ * handled, and the next drop is measured from this price.
+ *
+ * The product's price is re-read when the event is handled. Events are
+ * delivered late and retried, and alerting on a price the product no longer
+ * has would record a stale price on the wishlist items; the current price is
+ * used instead, and a deleted product is skipped.
+ */
+@Component
+public class PriceDropWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceDropWatcher.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private WishlistItemRepository wishlistItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    @Autowired
+    private PriceAlertRepository priceAlertRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate pageTransaction;
+
+    @PostConstruct
+    void init() {
+        pageTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Alert the holders of a product whose price dropped to newPrice, or to
+     * whatever it costs now if it has changed again since.
+     *
+     * @return the number of alerts created
+     */
+    public int fanOut(String productId, String productName, double newPrice, boolean ecoProduct) {
+        Optional<Double> currentPrice = productRepository.findPriceById(Long.valueOf(productId));
+        if (currentPrice.isEmpty()) {
+            log.info("Price drop on product {} skipped: product no longer exists or has no price", productId);
+            return 0;
+        }
+        double price = currentPrice.get();
+        if (price != newPrice) {
+            // Changed again since the event was written; holders are compared with what it costs now
+            log.info("Price drop on product {} to {}: price is now {}", productId, newPrice, price);
+        }
+
+        int alerts = 0;
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = wishlistItemRepository.findPriceDropHoldersAfter(productId, price, afterId,
+                    PageRequest.of(0, BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            List<Object[]> page = rows;
+            alerts += pageTransaction.execute(status -> alertPage(page, productId, productName, price, ecoProduct));
+        } while (rows.size() == BATCH_SIZE);
+
+        log.info("Price drop on product {} to {}: {} alerts", productId, price, alerts);
+        return alerts;
+    }
+
+    private int alertPage(List<Object[]> rows, String productId, String productName, double newPrice,
+                          boolean ecoProduct) {
+        Set<String> userIds = new LinkedHashSet<>();
+        for (Object[] row : rows) {
+            userIds.add((String) row[1]);
+        }
+        Map<String, Integer> flagsByUser = new HashMap<>();
+        for (Object[] row : userSettingsRepository.findFlagsByUserIdIn(userIds)) {
+            flagsByUser.put((String) row[0], row[1] != null ? ((Number) row[1]).intValue() : UserSettings.DEFAULT_FLAGS);
+        }
+
+        List<Long> itemIds = new ArrayList<>(rows.size());
+        List<PriceAlert> alerts = new ArrayList<>();
+        Set<String> alerted = new LinkedHashSet<>();
+        for (Object[] row : rows) {
+            itemIds.add(((Number) row[0]).longValue());
+            String userId = (String) row[1];
+            int flags = flagsByUser.getOrDefault(userId, UserSettings.DEFAULT_FLAGS);
+            if (wantsAlert(flags, ecoProduct) && alerted.add(userId)) {
+                Double previousPrice = row[2] != null ? ((Number) row[2]).doubleValue() : null;
+                alerts.add(new PriceAlert(userId, productId, productName, previousPrice, newPrice, ecoProduct));
+            }
+        }
+
+        priceAlertRepository.saveAll(alerts);
+        wishlistItemRepository.updateProductPrice(itemIds, newPrice);
+        return alerts.size();
+    }
+
+    private static boolean wantsAlert(int flags, boolean ecoProduct) {
+        if ((flags & UserSettings.NOTIFICATIONS_ENABLED) == 0) {
+            return false;
+        }
+        return (flags & UserSettings.PROMOTIONAL_EMAILS) != 0
+                || (ecoProduct && (flags & UserSettings.ECO_TIPS_ENABLED) != 0);
+    }
+}
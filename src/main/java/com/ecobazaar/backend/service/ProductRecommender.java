@@ -0,0 +1,458 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.model.ProductSummary;
+import com.ecobazaar.backend.repository.CartItemRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import com.ecobazaar.backend.repository.UserOrderRepository;
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Product Recommender
+ *
+ * Item-to-item recommendations from co-occurrence: two products are
+ * neighbours when the same users wishlisted, carted or ordered both. A
+ * background job rebuilds the model every recommendations.rebuild-interval-ms.
+ * It reads each user's products from wishlist items, cart items and
+ * non-cancelled order lines, with an order counting more than a cart and a
+ * cart more than a wishlist. It scores every product pair by cosine
+ * similarity, in parallel over products, and keeps the top
+ * recommendations.neighbors-per-product neighbours of each product. The
+ * result is a few flat arrays held in memory, together with the list fields
+ * of each active product. Serving a request merges the neighbour lists of
+ * its seed products, with no database access. Product updates and deletes
+ * patch the held fields as they commit, so inactive or deleted products and
+ * old prices are not served until the next build.
+ */
+@Component
+public class ProductRecommender {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductRecommender.class);
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+    private static final int POPULAR_SIZE = 50;
+
+    // Interaction weights; a user's weight for a product is the strongest interaction
+    private static final float WISHLIST_WEIGHT = 1f;
+    private static final float CART_WEIGHT = 2f;
+    private static final float ORDER_WEIGHT = 3f;
+
+    @Autowired
+    private WishlistItemRepository wishlistItemRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserOrderRepository userOrderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${recommendations.rebuild-interval-ms:3600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${recommendations.initial-delay-ms:30000}")
+    private long initialDelayMs;
+
+    @Value("${recommendations.neighbors-per-product:20}")
+    private int neighborsPerProduct;
+
+    // Users with more products than this are skipped when pairing (their pairs are mostly noise)
+    @Value("${recommendations.max-basket-size:200}")
+    private int maxBasketSize;
+
+    // 0 uses every available processor
+    @Value("${recommendations.build-parallelism:0}")
+    private int buildParallelism;
+
+    private volatile Model model = Model.EMPTY;
+    private ScheduledExecutorService worker;
+
+    // Product changes made while a build runs, applied to the new model once it is published
+    private final Map<String, ProductSummary> changedDuringBuild = new ConcurrentHashMap<>();
+    private volatile boolean building;
+
+    @PostConstruct
+    void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-recommender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::rebuild, initialDelayMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        worker.shutdownNow();
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Active products most related to the seed products, best first. Seeds are
+     * never recommended. With no neighbours for any seed (a new user, or before
+     * the first build finishes) the most popular products are returned
+     * instead, scored 0.
+     */
+    public List<Recommendation> recommend(Collection<String> seedProductIds, int limit) {
+        Model current = model;
+        Map<Integer, Float> scores = new HashMap<>();
+        boolean[] isSeed = new boolean[current.productIds.length];
+        for (String productId : seedProductIds) {
+            Integer ordinal = current.ordinals.get(productId);
+            if (ordinal != null) {
+                isSeed[ordinal] = true;
+            }
+        }
+        for (String productId : seedProductIds) {
+            Integer ordinal = current.ordinals.get(productId);
+            if (ordinal == null) {
+                continue;
+            }
+            for (int k = current.offsets[ordinal]; k < current.offsets[ordinal + 1]; k++) {
+                int neighbor = current.neighbors[k];
+                if (!isSeed[neighbor] && current.products[neighbor] != null) {
+                    scores.merge(neighbor, current.scores[k], Float::sum);
+                }
+            }
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        if (!scores.isEmpty()) {
+            List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Integer, Float>comparingByValue().reversed());
+            for (Map.Entry<Integer, Float> entry : ranked) {
+                if (recommendations.size() >= limit) {
+                    break;
+                }
+                // Read once: an update may clear it concurrently
+                ProductSummary product = current.products[entry.getKey()];
+                if (product != null) {
+                    recommendations.add(new Recommendation(product, entry.getValue()));
+                }
+            }
+            return recommendations;
+        }
+        for (int ordinal : current.popular) {
+            if (recommendations.size() >= limit) {
+                break;
+            }
+            ProductSummary product = current.products[ordinal];
+            if (!isSeed[ordinal] && product != null) {
+                recommendations.add(new Recommendation(product, 0.0));
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * Refresh the held fields of an updated product, once the update commits.
+     */
+    public void productChanged(Product product) {
+        ProductSummary summary = Boolean.FALSE.equals(product.getIsActive()) ? Model.REMOVED
+                : new ProductSummary(product.getId(), product.getName(), product.getPrice(), product.getQuantity(),
+                        product.getCategory(), product.getIcon(), product.getColor(), product.getImageUrl(),
+                        product.getStoreId(), product.getStoreName(), product.getIsActive(),
+                        product.getCarbonFootprint(), product.getEcoPoints());
+        applyAfterCommit(product.getId().toString(), summary);
+    }
+
+    /**
+     * Stop recommending a deleted product, once the delete commits.
+     */
+    public void productRemoved(Long productId) {
+        applyAfterCommit(productId.toString(), Model.REMOVED);
+    }
+
+    private void applyAfterCommit(String productId, ProductSummary summary) {
+        Runnable apply = () -> {
+            if (building) {
+                changedDuringBuild.put(productId, summary);
+            }
+            model.setProduct(productId, summary);
+        };
+        TransactionCallbacks.afterCommit(apply);
+    }
+
+    // Runs only on the worker thread
+    private void rebuild() {
+        building = true;
+        changedDuringBuild.clear();
+        try {
+            long started = System.currentTimeMillis();
+            Model fresh = build();
+            model = fresh;
+            changedDuringBuild.forEach(fresh::setProduct);
+            log.info("Built recommendations for {} products ({} neighbour pairs) in {} ms",
+                    fresh.productIds.length, fresh.neighbors.length, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Building recommendations failed, keeping the previous model", e);
+        } finally {
+            building = false;
+            changedDuringBuild.clear();
+        }
+    }
+
+    private Model build() throws InterruptedException, ExecutionException {
+        Map<String, Integer> ordinals = new HashMap<>();
+        List<String> productIds = new ArrayList<>();
+        Map<String, Map<Integer, Float>> baskets = new HashMap<>();
+        load(wishlistItemRepository::findUserProductPairsAfter, WISHLIST_WEIGHT, ordinals, productIds, baskets);
+        load(cartItemRepository::findUserProductPairsAfter, CART_WEIGHT, ordinals, productIds, baskets);
+        load(userOrderRepository::findUserProductPairsAfter, ORDER_WEIGHT, ordinals, productIds, baskets);
+
+        int productCount = productIds.size();
+        float[] popularity = new float[productCount];
+        float[] norms = new float[productCount];
+        List<int[]> basketItems = new ArrayList<>();
+        List<float[]> basketWeights = new ArrayList<>();
+        int[] postingCounts = new int[productCount];
+        for (Map<Integer, Float> basket : baskets.values()) {
+            int[] items = new int[basket.size()];
+            float[] weights = new float[basket.size()];
+            int n = 0;
+            for (Map.Entry<Integer, Float> entry : basket.entrySet()) {
+                items[n] = entry.getKey();
+                weights[n] = entry.getValue();
+                popularity[items[n]] += weights[n];
+                n++;
+            }
+            if (n < 2 || n > maxBasketSize) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                norms[items[i]] += weights[i] * weights[i];
+                postingCounts[items[i]]++;
+            }
+            basketItems.add(items);
+            basketWeights.add(weights);
+        }
+        baskets = null;
+
+        // Product -> baskets containing it, with the product's weight in each
+        int[][] postings = new int[productCount][];
+        float[][] postingWeights = new float[productCount][];
+        for (int p = 0; p < productCount; p++) {
+            postings[p] = new int[postingCounts[p]];
+            postingWeights[p] = new float[postingCounts[p]];
+            postingCounts[p] = 0;
+        }
+        for (int b = 0; b < basketItems.size(); b++) {
+            int[] items = basketItems.get(b);
+            float[] weights = basketWeights.get(b);
+            for (int i = 0; i < items.length; i++) {
+                int p = items[i];
+                postings[p][postingCounts[p]] = b;
+                postingWeights[p][postingCounts[p]] = weights[i];
+                postingCounts[p]++;
+            }
+        }
+
+        int[][] topNeighbors = new int[productCount][];
+        float[][] topScores = new float[productCount][];
+        int parallelism = buildParallelism > 0 ? buildParallelism : Runtime.getRuntime().availableProcessors();
+        ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(() -> new Accumulator(productCount));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, productCount).parallel().forEach(p -> {
+                Accumulator accumulator = accumulators.get();
+                for (int k = 0; k < postings[p].length; k++) {
+                    int[] items = basketItems.get(postings[p][k]);
+                    float[] weights = basketWeights.get(postings[p][k]);
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i] != p) {
+                            accumulator.add(items[i], postingWeights[p][k] * weights[i]);
+                        }
+                    }
+                }
+                accumulator.drainTop(p, norms, neighborsPerProduct, topNeighbors, topScores);
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        int[] offsets = new int[productCount + 1];
+        for (int p = 0; p < productCount; p++) {
+            offsets[p + 1] = offsets[p] + topNeighbors[p].length;
+        }
+        int[] neighbors = new int[offsets[productCount]];
+        float[] scores = new float[offsets[productCount]];
+        for (int p = 0; p < productCount; p++) {
+            System.arraycopy(topNeighbors[p], 0, neighbors, offsets[p], topNeighbors[p].length);
+            System.arraycopy(topScores[p], 0, scores, offsets[p], topScores[p].length);
+        }
+
+        int[] popular = IntStream.range(0, productCount).boxed()
+            .sorted((a, b) -> Float.compare(popularity[b], popularity[a]))
+            .limit(POPULAR_SIZE)
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+        return new Model(productIds.toArray(new String[0]), ordinals, offsets, neighbors, scores, popular,
+                loadProducts(ordinals, productCount));
+    }
+
+    // List fields of the model's active products, by ordinal; null for inactive or deleted ones
+    private ProductSummary[] loadProducts(Map<String, Integer> ordinals, int productCount) {
+        ProductSummary[] products = new ProductSummary[productCount];
+        long afterId = 0;
+        List<ProductSummary> page;
+        do {
+            page = productRepository.findActiveSummariesAfter(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (ProductSummary product : page) {
+                afterId = product.id();
+                Integer ordinal = ordinals.get(product.id().toString());
+                if (ordinal != null) {
+                    products[ordinal] = product;
+                }
+            }
+        } while (page.size() == LOAD_BATCH_SIZE);
+        return products;
+    }
+
+    // Reads (id, userId, productId) pages and records each user's strongest interaction per product
+    private void load(BiFunction<Long, Pageable, List<Object[]>> pageAfter, float weight,
+                      Map<String, Integer> ordinals, List<String> productIds,
+                      Map<String, Map<Integer, Float>> baskets) {
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Interrupted while loading interactions");
+            }
+            rows = pageAfter.apply(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                afterId = ((Number) row[0]).longValue();
+                String userId = (String) row[1];
+                String productId = (String) row[2];
+                if (userId == null || productId == null) {
+                    continue;
+                }
+                Integer ordinal = ordinals.get(productId);
+                if (ordinal == null) {
+                    ordinal = productIds.size();
+                    ordinals.put(productId, ordinal);
+                    productIds.add(productId);
+                }
+                baskets.computeIfAbsent(userId, id -> new HashMap<>()).merge(ordinal, weight, Math::max);
+            }
+        } while (rows.size() == LOAD_BATCH_SIZE);
+    }
+
+    // Per-thread scratch space for one product's co-occurrence scores
+    private static final class Accumulator {
+        private final float[] dot;
+        private int[] touched = new int[64];
+        private int touchedCount;
+
+        Accumulator(int productCount) {
+            dot = new float[productCount];
+        }
+
+        void add(int product, float value) {
+            if (dot[product] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = product;
+            }
+            dot[product] += value;
+        }
+
+        // Keep the n best cosine scores for product p, best first, and reset
+        void drainTop(int p, float[] norms, int n, int[][] topNeighbors, float[][] topScores) {
+            int[] best = new int[Math.min(n, touchedCount)];
+            float[] bestScores = new float[best.length];
+            int size = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int q = touched[t];
+                float score = (float) (dot[q] / Math.sqrt((double) norms[p] * norms[q]));
+                dot[q] = 0f;
+                if (size < best.length) {
+                    size++;
+                } else if (score <= bestScores[size - 1]) {
+                    continue;
+                }
+                // Insertion into the sorted top list
+                int i = size - 1;
+                while (i > 0 && bestScores[i - 1] < score) {
+                    best[i] = best[i - 1];
+                    bestScores[i] = bestScores[i - 1];
+                    i--;
+                }
+                best[i] = q;
+                bestScores[i] = score;
+            }
+            touchedCount = 0;
+            topNeighbors[p] = best;
+            topScores[p] = bestScores;
+        }
+    }
+
+    /**
+     * A recommended product with its list fields and score.
+     */
+    public record Recommendation(ProductSummary product, double score) {
+    }
+
+    private static final class Model {
+        static final Model EMPTY = new Model(new String[0], Map.of(), new int[1], new int[0], new float[0], new int[0],
+                new ProductSummary[0]);
+        // Marks a product that must no longer be recommended
+        static final ProductSummary REMOVED = new ProductSummary(null, null, null, null, null, null, null, null,
+                null, null, false, null, null);
+
+        private final String[] productIds;
+        private final Map<String, Integer> ordinals;
+        // Neighbours of product p are neighbors[offsets[p]] .. neighbors[offsets[p + 1] - 1]
+        private final int[] offsets;
+        private final int[] neighbors;
+        private final float[] scores;
+        private final int[] popular;
+        // List fields by ordinal, null when the product is inactive or deleted; patched in place
+        private final ProductSummary[] products;
+
+        Model(String[] productIds, Map<String, Integer> ordinals, int[] offsets, int[] neighbors,
+              float[] scores, int[] popular, ProductSummary[] products) {
+            this.productIds = productIds;
+            this.ordinals = ordinals;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.scores = scores;
+            this.popular = popular;
+            this.products = products;
+        }
+
+        void setProduct(String productId, ProductSummary product) {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal != null) {
+                products[ordinal] = product == REMOVED ? null : product;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.config.RetryOnConflict;
+import com.ecobazaar.backend.entity.OutboxEvent;
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.repository.OutboxEventRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service class for product changes
+ *
+ * Saves a product update and, in the same transaction, the outbox events for
+ * what it changed (a price drop); OutboxDispatcher carries them out afterwards.
+ * Copies of the product's fields are refreshed by DenormalizationPropagator.
+ */
+@Service
+@Transactional
+public class ProductService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private DenormalizationPropagator denormalizationPropagator;
+
+    @Autowired
+    private InventoryStockPool stockPool;
+
+    @Autowired
+    private ProductRecommender productRecommender;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Apply productDetails to an existing product. An update that loses a race with
+     * a concurrent stock change is retried from a fresh read.
+     *
+     * @return the updated product, or empty if there is no product with that id
+     */
+    @RetryOnConflict
+    public Optional<Product> updateProduct(Long productId, Product productDetails) {
+        Optional<Product> productOptional = productRepository.findById(productId);
+        if (productOptional.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Product product = productOptional.get();
+        Double oldPrice = product.getPrice();
+
+        // The new quantity is the whole stock, so units pooled for hot-product reservations
+        // are dropped rather than added back later. A refill after the read above bumps the
+        // version, so this save then fails instead of overselling; the rollback gives the
+        // pooled units back and the retry reads and detaches again.
+        int pooled = stockPool.detach(productId);
+        if (pooled > 0) {
+            TransactionCallbacks.afterCompletion(status -> {
+                if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                    stockPool.giveBack(productId, pooled);
+                }
+            });
+        }
+
+        product.setName(productDetails.getName());
+        product.setDescription(productDetails.getDescription());
+        product.setPrice(productDetails.getPrice());
+        product.setQuantity(productDetails.getQuantity());
+        product.setCategory(productDetails.getCategory());
+        product.setImageUrl(productDetails.getImageUrl());
+        product.setStoreId(productDetails.getStoreId());
+        product.setStoreName(productDetails.getStoreName());
+        Product updatedProduct = productRepository.save(product);
+        denormalizationPropagator.productChanged(productId);
+        productRecommender.productChanged(updatedProduct);
+
+        Double newPrice = updatedProduct.getPrice();
+        if (oldPrice != null && newPrice != null && newPrice < oldPrice) {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("productId", productId.toString());
+            payload.put("productName", updatedProduct.getName());
+            payload.put("oldPrice", oldPrice);
+            payload.put("newPrice", newPrice);
+            payload.put("ecoProduct", updatedProduct.getEcoPoints() != null && updatedProduct.getEcoPoints() > 0);
+            outboxEventRepository.save(event(OutboxDispatcher.PRICE_DROP, productId.toString(), payload));
+            TransactionCallbacks.afterCommit(outboxDispatcher::wakeUp);
+        }
+        return Optional.of(updatedProduct);
+    }
+
+    private OutboxEvent event(String type, String productId, Map<String, Object> payload) {
+        try {
+            return new OutboxEvent(type, productId, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialise " + type + " event", e);
+        }
+    }
+}
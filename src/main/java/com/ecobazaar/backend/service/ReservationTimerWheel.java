@@ -0,0 +1,76 @@
+package com.ecobazaar.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timer wheel for reservation expiry. Scheduling is O(1) (append to
+ * the slot the deadline hashes to); each tick drains one slot and returns the
+ * keys that are due, re-queueing entries whose deadline is a later lap.
+ * Cancellation is left to the caller (check the key's state when it fires).
+ *
+ * Not a bean; owned and ticked by {@link InventoryService}.
+ */
+public class ReservationTimerWheel {
+
+    private final long tickMs;
+    private final Queue<Entry>[] slots;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public ReservationTimerWheel(long tickMs, int slotCount, long startMs) {
+        this.tickMs = tickMs;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * Fire key at (or within one tick after) deadlineMs. Safe to call from any thread.
+     */
+    public void schedule(String key, long deadlineMs) {
+        long tick = Math.max(deadlineMs / tickMs, currentTick + 1);
+        slots[(int) (tick % slots.length)].add(new Entry(key, tick));
+    }
+
+    /**
+     * Advance the wheel to nowMs and return the keys that are due. Must only be
+     * called from one thread.
+     */
+    public List<String> advance(long nowMs) {
+        List<String> due = new ArrayList<>();
+        long targetTick = nowMs / tickMs;
+        // After a long pause, one full lap visits every slot
+        long firstTick = Math.max(currentTick + 1, targetTick - slots.length + 1);
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            Queue<Entry> slot = slots[(int) (tick % slots.length)];
+            for (int pending = slot.size(); pending > 0; pending--) {
+                Entry entry = slot.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.tick <= targetTick) {
+                    due.add(entry.key);
+                } else {
+                    slot.add(entry);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return due;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final long tick;
+
+        private Entry(String key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
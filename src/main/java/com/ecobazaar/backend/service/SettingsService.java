@@ -3,15 +3,19 @@ package com.ecobazaar.backend.service;
 import com.ecobazaar.backend.model.*;
 import com.ecobazaar.backend.entity.UserSettings;
 import com.ecobazaar.backend.repository.UserSettingsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Settings Service Class
@@ -22,40 +26,78 @@ import java.util.Optional;
 @Service
 public class SettingsService {
 
+    private static final Logger log = LoggerFactory.getLogger(SettingsService.class);
+
     @Autowired
     private UserSettingsRepository userSettingsRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private NotificationAudienceIndex audienceIndex;
+
+    @Autowired
+    private UpsertSupport upsertSupport;
+
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // Per-user write generations; a read that overlaps a write to the same user does not cache its result
+    private final CacheGenerations settingsWrites = new CacheGenerations(1024);
+
+    /**
+     * Get user settings as JSON, read through the "settings" cache. The cache
+     * holds the serialized response, so repeated reads skip both the query and
+     * building and serializing the Settings model. Every write evicts the
+     * user's entry, and a read that overlapped a write to the same user is
+     * not cached, so a read that loaded the row before an update cannot put
+     * the old settings back after the eviction.
+     * 
+     * @param userId User ID
+     * @return Settings JSON
+     */
+    public String getUserSettingsJson(String userId) throws Exception {
+        Cache cache = cacheManager.getCache("settings");
+        String json = cache != null ? cache.get(userId, String.class) : null;
+        if (json != null) {
+            return json;
+        }
+
+        long generation = settingsWrites.read(userId);
+
+        UserSettings userSettings;
+        try {
+            userSettings = getOrCreateSettings(userId);
+        } catch (Exception e) {
+            // Serve defaults without caching them, so the next read retries the database
+            log.error("Error getting user settings for user {}, returning defaults without saving", userId, e);
+            return objectMapper.writeValueAsString(createDefaultSettings(userId));
+        }
+
+        String loaded = objectMapper.writeValueAsString(mapToSettings(userId, userSettings));
+        if (cache != null) {
+            settingsWrites.putIfCurrent(userId, generation, () -> cache.put(userId, loaded));
+        }
+        return loaded;
+    }
+
     /**
      * Get user settings from MySQL
      * 
      * @param userId User ID
      * @return Settings object or null if not found
      */
-    @Cacheable(value = "settings", key = "#userId")
     public Settings getUserSettings(String userId) {
         try {
-            Optional<UserSettings> userSettingsOpt = userSettingsRepository.findByUserId(userId);
-            
-            if (userSettingsOpt.isPresent()) {
-                UserSettings userSettings = userSettingsOpt.get();
-                System.out.println("Found existing settings for user " + userId);
-                return mapToSettings(userId, userSettings);
-            }
-
-            // User doesn't have settings, create default settings in database
-            System.out.println("No settings found for user " + userId + ", creating default settings");
-            UserSettings defaultUserSettings = new UserSettings(userId);
-            defaultUserSettings = userSettingsRepository.save(defaultUserSettings);
-            return mapToSettings(userId, defaultUserSettings);
+            // Creates default settings in the database if the user has none
+            return mapToSettings(userId, getOrCreateSettings(userId));
 
         } catch (Exception e) {
-            System.err.println("Error getting user settings: " + e.getMessage());
-            e.printStackTrace();
-            
             // If database operation fails, return default settings without saving
-            System.out.println("Database error, returning default settings without saving for user " + userId);
+            log.error("Error getting user settings for user {}, returning defaults without saving", userId, e);
             return createDefaultSettings(userId);
         }
     }
@@ -67,27 +109,21 @@ public class SettingsService {
      * @param settings Settings object to update
      * @return Updated Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings updateUserSettings(String userId, Settings settings) {
         try {
-            Optional<UserSettings> userSettingsOpt = userSettingsRepository.findByUserId(userId);
-            UserSettings userSettings;
-            
-            if (userSettingsOpt.isPresent()) {
-                userSettings = userSettingsOpt.get();
-            } else {
-                userSettings = new UserSettings(userId);
-            }
+            UserSettings userSettings = getOrCreateSettings(userId);
             
             // Update settings
             updateUserSettingsFromModel(userSettings, settings);
-            userSettings = userSettingsRepository.save(userSettings);
+            userSettings = saveSettings(userSettings);
             
             return mapToSettings(userId, userSettings);
             
+        } catch (IllegalArgumentException e) {
+            // Unsupported theme, language or privacy level
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error updating user settings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating user settings for user {}", userId, e);
             throw new RuntimeException("Failed to update user settings", e);
         }
     }
@@ -99,17 +135,9 @@ public class SettingsService {
      * @param preferences AppPreferences object
      * @return Updated Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings updateAppPreferences(String userId, AppPreferences preferences) {
         try {
-            Optional<UserSettings> userSettingsOpt = userSettingsRepository.findByUserId(userId);
-            UserSettings userSettings;
-            
-            if (userSettingsOpt.isPresent()) {
-                userSettings = userSettingsOpt.get();
-            } else {
-                userSettings = new UserSettings(userId);
-            }
+            UserSettings userSettings = getOrCreateSettings(userId);
             
             // Update app preferences
             if (preferences.getTheme() != null) {
@@ -119,12 +147,14 @@ public class SettingsService {
                 userSettings.setLanguage(preferences.getLanguage());
             }
             
-            userSettings = userSettingsRepository.save(userSettings);
+            userSettings = saveSettings(userSettings);
             return mapToSettings(userId, userSettings);
             
+        } catch (IllegalArgumentException e) {
+            // Unsupported theme, language or privacy level
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error updating app preferences: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating app preferences for user {}", userId, e);
             throw new RuntimeException("Failed to update app preferences", e);
         }
     }
@@ -136,17 +166,9 @@ public class SettingsService {
      * @param notificationSettings NotificationSettings object
      * @return Updated Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings updateNotificationSettings(String userId, NotificationSettings notificationSettings) {
         try {
-            Optional<UserSettings> userSettingsOpt = userSettingsRepository.findByUserId(userId);
-            UserSettings userSettings;
-            
-            if (userSettingsOpt.isPresent()) {
-                userSettings = userSettingsOpt.get();
-            } else {
-                userSettings = new UserSettings(userId);
-            }
+            UserSettings userSettings = getOrCreateSettings(userId);
             
             // Update notification settings
             if (notificationSettings.getNotificationsEnabled() != null) {
@@ -174,12 +196,14 @@ public class SettingsService {
                 userSettings.setPromotionalEmails(notificationSettings.getPromotionalEmails());
             }
             
-            userSettings = userSettingsRepository.save(userSettings);
+            userSettings = saveSettings(userSettings);
             return mapToSettings(userId, userSettings);
             
+        } catch (IllegalArgumentException e) {
+            // Unsupported theme, language or privacy level
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error updating notification settings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating notification settings for user {}", userId, e);
             throw new RuntimeException("Failed to update notification settings", e);
         }
     }
@@ -191,17 +215,9 @@ public class SettingsService {
      * @param privacySettings PrivacySettings object
      * @return Updated Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings updatePrivacySettings(String userId, PrivacySettings privacySettings) {
         try {
-            Optional<UserSettings> userSettingsOpt = userSettingsRepository.findByUserId(userId);
-            UserSettings userSettings;
-            
-            if (userSettingsOpt.isPresent()) {
-                userSettings = userSettingsOpt.get();
-            } else {
-                userSettings = new UserSettings(userId);
-            }
+            UserSettings userSettings = getOrCreateSettings(userId);
             
             // Update privacy settings
             if (privacySettings.getPrivacyLevel() != null) {
@@ -214,12 +230,14 @@ public class SettingsService {
                 userSettings.setLocationTracking(privacySettings.getLocationTracking());
             }
             
-            userSettings = userSettingsRepository.save(userSettings);
+            userSettings = saveSettings(userSettings);
             return mapToSettings(userId, userSettings);
             
+        } catch (IllegalArgumentException e) {
+            // Unsupported theme, language or privacy level
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error updating privacy settings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating privacy settings for user {}", userId, e);
             throw new RuntimeException("Failed to update privacy settings", e);
         }
     }
@@ -231,7 +249,6 @@ public class SettingsService {
      * @param syncSettings SyncSettings object
      * @return Updated Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings updateSyncSettings(String userId, SyncSettings syncSettings) {
         try {
             // For now, sync settings are handled at the app level
@@ -239,8 +256,7 @@ public class SettingsService {
             return getUserSettings(userId);
             
         } catch (Exception e) {
-            System.err.println("Error updating sync settings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating sync settings for user {}", userId, e);
             throw new RuntimeException("Failed to update sync settings", e);
         }
     }
@@ -249,9 +265,12 @@ public class SettingsService {
      * Map UserSettings entity to Settings model
      */
     private Settings mapToSettings(String userId, UserSettings userSettings) {
+        LocalDateTime updatedAt = userSettings.getUpdatedAt() != null ? userSettings.getUpdatedAt() : LocalDateTime.now();
+        String lastUpdated = updatedAt.format(formatter);
+
         Settings settings = new Settings();
         settings.setUserId(userId);
-        settings.setLastUpdated(LocalDateTime.now().format(formatter));
+        settings.setLastUpdated(lastUpdated);
         
         // App Preferences
         AppPreferences appPreferences = new AppPreferences();
@@ -282,12 +301,46 @@ public class SettingsService {
         SyncSettings syncSettings = new SyncSettings();
         syncSettings.setAutoSync(true);
         syncSettings.setSyncFrequency("daily");
-        syncSettings.setLastSync(LocalDateTime.now().format(formatter));
+        syncSettings.setLastSync(lastUpdated);
         settings.setSyncSettings(syncSettings);
         
         return settings;
     }
 
+    /**
+     * Get the user's settings row, creating it with default values if missing
+     */
+    private UserSettings getOrCreateSettings(String userId) {
+        return getOrCreateSettings(userId, () -> new UserSettings(userId));
+    }
+
+    private UserSettings getOrCreateSettings(String userId, Supplier<UserSettings> newSettings) {
+        // Settings are never read or written inside a transaction, so the row is saved on its own
+        return upsertSupport.getOrCreate("settings:" + userId,
+                () -> userSettingsRepository.findByUserId(userId),
+                () -> saveSettings(newSettings.get()));
+    }
+
+    /**
+     * Save settings, apply them to the notification audience index and evict
+     * the cached JSON
+     */
+    private UserSettings saveSettings(UserSettings userSettings) {
+        UserSettings saved = userSettingsRepository.save(userSettings);
+        audienceIndex.update(saved);
+        evictCachedSettings(saved.getUserId());
+        return saved;
+    }
+
+    private void evictCachedSettings(String userId) {
+        Cache cache = cacheManager.getCache("settings");
+        settingsWrites.invalidate(userId, () -> {
+            if (cache != null) {
+                cache.evict(userId);
+            }
+        });
+    }
+
     /**
      * Update UserSettings entity from Settings model
      */
@@ -351,80 +404,61 @@ public class SettingsService {
      * @param settingsMap Map of settings to initialize
      * @return Initialized Settings object
      */
-    @CacheEvict(value = "settings", key = "#userId")
     public Settings initializeUserSettings(String userId, Map<String, Object> settingsMap) {
         try {
-            // Check if user already has settings
-            Optional<UserSettings> existingSettings = userSettingsRepository.findByUserId(userId);
-            if (existingSettings.isPresent()) {
-                // User already has settings, return them
-                System.out.println("User " + userId + " already has settings, returning existing settings");
-                return mapToSettings(userId, existingSettings.get());
-            }
-            
-            // Create new user settings with provided values
-            UserSettings userSettings = new UserSettings(userId);
-            
-            // Set default values from the provided map
-            if (settingsMap.containsKey("notifications")) {
-                userSettings.setNotificationsEnabled((Boolean) settingsMap.get("notifications"));
-            }
-            if (settingsMap.containsKey("darkMode")) {
-                userSettings.setTheme((Boolean) settingsMap.get("darkMode") ? "dark" : "light");
-            }
-            if (settingsMap.containsKey("language")) {
-                userSettings.setLanguage((String) settingsMap.get("language"));
-            }
-            if (settingsMap.containsKey("pushNotifications")) {
-                userSettings.setPushNotifications((Boolean) settingsMap.get("pushNotifications"));
-            }
-            if (settingsMap.containsKey("emailNotifications")) {
-                userSettings.setEmailNotifications((Boolean) settingsMap.get("emailNotifications"));
-            }
-            if (settingsMap.containsKey("orderUpdates")) {
-                userSettings.setOrderUpdates((Boolean) settingsMap.get("orderUpdates"));
-            }
-            if (settingsMap.containsKey("promotionalOffers")) {
-                userSettings.setPromotionalEmails((Boolean) settingsMap.get("promotionalOffers"));
-            }
-            if (settingsMap.containsKey("priceAlerts")) {
-                userSettings.setEcoTipsEnabled((Boolean) settingsMap.get("priceAlerts"));
-            }
-            
-            // Try to save the initialized settings
-            try {
-                userSettings = userSettingsRepository.save(userSettings);
-                System.out.println("Successfully initialized settings for user " + userId);
-                return mapToSettings(userId, userSettings);
-            } catch (Exception saveException) {
-                // If save fails due to duplicate entry, try to fetch existing settings
-                if (saveException.getMessage().contains("Duplicate entry") || 
-                    saveException.getMessage().contains("UK_4bos7satl9xeqd18frfeqg6tt")) {
-                    System.out.println("Duplicate entry detected for user " + userId + ", fetching existing settings");
-                    Optional<UserSettings> existingSettingsRetry = userSettingsRepository.findByUserId(userId);
-                    if (existingSettingsRetry.isPresent()) {
-                        return mapToSettings(userId, existingSettingsRetry.get());
-                    }
+            // Create with the provided values, unless the user already has settings
+            UserSettings userSettings = getOrCreateSettings(userId, () -> {
+                UserSettings created = new UserSettings(userId);
+                
+                // Set default values from the provided map
+                if (settingsMap.containsKey("notifications")) {
+                    created.setNotificationsEnabled((Boolean) settingsMap.get("notifications"));
                 }
-                throw saveException;
-            }
+                if (settingsMap.containsKey("darkMode")) {
+                    created.setTheme((Boolean) settingsMap.get("darkMode") ? "dark" : "light");
+                }
+                if (settingsMap.containsKey("language")) {
+                    created.setLanguage((String) settingsMap.get("language"));
+                }
+                if (settingsMap.containsKey("pushNotifications")) {
+                    created.setPushNotifications((Boolean) settingsMap.get("pushNotifications"));
+                }
+                if (settingsMap.containsKey("emailNotifications")) {
+                    created.setEmailNotifications((Boolean) settingsMap.get("emailNotifications"));
+                }
+                if (settingsMap.containsKey("orderUpdates")) {
+                    created.setOrderUpdates((Boolean) settingsMap.get("orderUpdates"));
+                }
+                if (settingsMap.containsKey("promotionalOffers")) {
+                    created.setPromotionalEmails((Boolean) settingsMap.get("promotionalOffers"));
+                }
+                if (settingsMap.containsKey("priceAlerts")) {
+                    created.setEcoTipsEnabled((Boolean) settingsMap.get("priceAlerts"));
+                }
+                
+                log.info("Initializing settings for user {}", userId);
+                return created;
+            });
+            return mapToSettings(userId, userSettings);
             
+        } catch (IllegalArgumentException e) {
+            // Unsupported theme, language or privacy level
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error initializing user settings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error initializing user settings for user {}", userId, e);
             
             // If initialization fails, try to return existing settings or default settings
             try {
                 Optional<UserSettings> fallbackSettings = userSettingsRepository.findByUserId(userId);
                 if (fallbackSettings.isPresent()) {
-                    System.out.println("Returning existing settings as fallback for user " + userId);
+                    log.debug("Returning existing settings as fallback for user {}", userId);
                     return mapToSettings(userId, fallbackSettings.get());
                 } else {
-                    System.out.println("Returning default settings as fallback for user " + userId);
+                    log.debug("Returning default settings as fallback for user {}", userId);
                     return createDefaultSettings(userId);
                 }
             } catch (Exception fallbackException) {
-                System.err.println("Fallback also failed: " + fallbackException.getMessage());
+                log.error("Settings fallback also failed for user {}: {}", userId, fallbackException.getMessage());
                 throw new RuntimeException("Failed to initialize user settings", e);
             }
         }
@@ -0,0 +1,58 @@
+package com.ecobazaar.backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Transaction Callbacks
+ *
+ * Defers in-memory side effects of a database change (cache evictions, queue
+ * wake-ups, pooled stock hand-backs) until the surrounding transaction ends,
+ * so other threads never see them before the change is visible or after it
+ * was rolled back. Outside a transaction the change is already durable, so
+ * callbacks run straight away as if committed.
+ */
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Run action once the current transaction commits, or now when there is
+     * none. A rollback drops it.
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Run callback with the current transaction's outcome, one of
+     * {@link TransactionSynchronization#STATUS_COMMITTED},
+     * {@link TransactionSynchronization#STATUS_ROLLED_BACK} or
+     * {@link TransactionSynchronization#STATUS_UNKNOWN}; or now with
+     * STATUS_COMMITTED when there is no transaction.
+     */
+    static void afterCompletion(IntConsumer callback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    callback.accept(status);
+                }
+            });
+        } else {
+            callback.accept(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+}
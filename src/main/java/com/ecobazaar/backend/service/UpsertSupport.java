@@ -0,0 +1,93 @@
+package com.ecobazaar.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Upsert Support
+ *
+ * Race-free get-or-create for per-user rows (settings, carts, wishlists, eco
+ * profiles) that rely on a unique key. No lock is held and no second
+ * transaction is opened while the caller's transaction holds a connection,
+ * so first requests cannot starve the connection pool:
+ * - inside a transaction, the row is created by an insert that does nothing
+ *   when the key exists, in the caller's transaction; a concurrent insert
+ *   of the same key waits for it and then does nothing. The row is then
+ *   read with a read that sees rows committed after that transaction started.
+ * - outside one, the row is saved in a short transaction of its own, and a
+ *   duplicate-key error from a concurrent insert counts as "already created".
+ */
+@Component
+public class UpsertSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(UpsertSupport.class);
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate insertTransaction;
+
+    @PostConstruct
+    void init() {
+        insertTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Return the row for key, creating it if it does not exist. Joins the
+     * caller's transaction, if any.
+     *
+     * @param key            the unique key, e.g. "cart:" + userId
+     * @param find           plain lookup by the unique key
+     * @param findLatest     lookup that sees rows committed after the caller's transaction
+     *                       started (a locking read); used only when a transaction is active
+     * @param insertIfAbsent inserts the new row unless the unique key already exists
+     */
+    public <T> T getOrInsert(String key, Supplier<Optional<T>> find, Supplier<Optional<T>> findLatest,
+                             Runnable insertIfAbsent) {
+        Optional<T> existing = find.get();
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        insertTransaction.executeWithoutResult(status -> insertIfAbsent.run());
+
+        Supplier<Optional<T>> reread = TransactionSynchronizationManager.isActualTransactionActive() ? findLatest : find;
+        return reread.get().orElseThrow(() -> new IllegalStateException("Could not get or create " + key));
+    }
+
+    /**
+     * Return the row for key, creating it if it does not exist. Must be called
+     * outside a transaction: the insert commits on its own.
+     *
+     * @param key    the unique key, e.g. "settings:" + userId
+     * @param find   plain lookup by the unique key
+     * @param create builds and saves the new row
+     */
+    public <T> T getOrCreate(String key, Supplier<Optional<T>> find, Supplier<T> create) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("getOrCreate for " + key + " must not run inside a transaction");
+        }
+        Optional<T> existing = find.get();
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        try {
+            return insertTransaction.execute(status -> create.get());
+        } catch (DataIntegrityViolationException e) {
+            // Another request inserted it first
+            log.debug("Concurrent insert for {}, using the existing row", key);
+        }
+        return find.get().orElseThrow(() -> new IllegalStateException("Could not get or create " + key));
+    }
+}
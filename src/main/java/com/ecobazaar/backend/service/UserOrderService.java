@@ -8,7 +8,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -17,12 +16,15 @@ public class UserOrderService {
     @Autowired
     private UserOrderRepository userOrderRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     // Create new user order (order item)
     public UserOrder createUserOrder(UserOrder userOrder) {
         try {
             // Generate unique user order ID if not provided
             if (userOrder.getUserOrderId() == null || userOrder.getUserOrderId().isEmpty()) {
-                userOrder.setUserOrderId("UO-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+                userOrder.setUserOrderId(idGenerator.nextId("UO-"));
             }
             
             // Set default values if not provided
@@ -196,7 +198,7 @@ public class UserOrderService {
             for (UserOrder userOrder : userOrders) {
                 // Generate unique ID for each
                 if (userOrder.getUserOrderId() == null || userOrder.getUserOrderId().isEmpty()) {
-                    userOrder.setUserOrderId("UO-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+                    userOrder.setUserOrderId(idGenerator.nextId("UO-"));
                 }
                 
                 // Set defaults
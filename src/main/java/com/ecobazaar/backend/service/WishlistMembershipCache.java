@@ -0,0 +1,165 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wishlist Membership Cache
+ *
+ * Per-user set of wishlisted product ids for the product-card heart and
+ * wishlist badge count. Each set is loaded with a single query, which never
+ * creates a wishlist. It is held as a sorted long[] (numeric ids) plus a
+ * sorted String[] (anything else), and checked with a binary search. The
+ * Caffeine cache keeps at most wishlist.membership.max-users users; entries
+ * are dropped when the wishlist changes, or once they are older than
+ * wishlist.membership.ttl-ms, to pick up writes made on other instances. A
+ * load that overlaps a change to the same user's wishlist is not cached.
+ */
+@Component
+public class WishlistMembershipCache {
+
+    @Autowired
+    private WishlistItemRepository wishlistItemRepository;
+
+    @Value("${wishlist.membership.max-users:50000}")
+    private int maxUsers;
+
+    @Value("${wishlist.membership.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final CacheGenerations generations = new CacheGenerations(1024);
+    private Cache<String, Membership> memberships;
+
+    @PostConstruct
+    void init() {
+        memberships = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public boolean contains(String userId, String productId) {
+        return membership(userId).contains(productId);
+    }
+
+    public int count(String userId) {
+        return membership(userId).size();
+    }
+
+    /**
+     * The user's wishlisted product ids, in no particular order.
+     */
+    public List<String> productIds(String userId) {
+        return membership(userId).productIds();
+    }
+
+    /**
+     * The subset of productIds that are in the user's wishlist, in request order.
+     */
+    public Set<String> filterWishlisted(String userId, Collection<String> productIds) {
+        Membership membership = membership(userId);
+        Set<String> wishlisted = new LinkedHashSet<>();
+        for (String productId : productIds) {
+            if (membership.contains(productId)) {
+                wishlisted.add(productId);
+            }
+        }
+        return wishlisted;
+    }
+
+    /**
+     * Drop a user's cached set, deferring until after commit when inside a transaction.
+     */
+    public void invalidate(String userId) {
+        TransactionCallbacks.afterCommit(() -> evict(userId));
+    }
+
+    private void evict(String userId) {
+        generations.invalidate(userId, () -> memberships.invalidate(userId));
+    }
+
+    private Membership membership(String userId) {
+        Membership membership = memberships.getIfPresent(userId);
+        if (membership != null) {
+            return membership;
+        }
+
+        long generation = generations.read(userId);
+        Membership loaded = new Membership(wishlistItemRepository.findProductIdsByUserId(userId));
+        generations.putIfCurrent(userId, generation, () -> memberships.put(userId, loaded));
+        return loaded;
+    }
+
+    private static final class Membership {
+        private final long[] numericIds;
+        private final String[] otherIds;
+
+        private Membership(List<String> productIds) {
+            long[] numeric = new long[productIds.size()];
+            int numericCount = 0;
+            List<String> other = new ArrayList<>();
+            for (String productId : productIds) {
+                Long id = asNumericId(productId);
+                if (id != null) {
+                    numeric[numericCount++] = id;
+                } else if (productId != null) {
+                    other.add(productId);
+                }
+            }
+            numericIds = Arrays.copyOf(numeric, numericCount);
+            Arrays.sort(numericIds);
+            otherIds = other.toArray(new String[0]);
+            Arrays.sort(otherIds);
+        }
+
+        boolean contains(String productId) {
+            if (productId == null) {
+                return false;
+            }
+            Long id = asNumericId(productId);
+            return id != null
+                    ? Arrays.binarySearch(numericIds, id) >= 0
+                    : Arrays.binarySearch(otherIds, productId) >= 0;
+        }
+
+        int size() {
+            return numericIds.length + otherIds.length;
+        }
+
+        List<String> productIds() {
+            List<String> productIds = new ArrayList<>(size());
+            for (long id : numericIds) {
+                productIds.add(Long.toString(id));
+            }
+            productIds.addAll(Arrays.asList(otherIds));
+            return productIds;
+        }
+
+        // Only ids that round-trip exactly ("42", not "042" or "+42") are stored as numbers
+        private static Long asNumericId(String productId) {
+            if (productId == null || productId.isEmpty() || productId.length() > 18) {
+                return null;
+            }
+            for (int i = 0; i < productId.length(); i++) {
+                if (!Character.isDigit(productId.charAt(i))) {
+                    return null;
+                }
+            }
+            long id = Long.parseLong(productId);
+            return Long.toString(id).equals(productId) ? id : null;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.ecobazaar.backend.service;
 
+import com.ecobazaar.backend.entity.PriceAlert;
 import com.ecobazaar.backend.entity.Wishlist;
 import com.ecobazaar.backend.entity.WishlistItem;
+import com.ecobazaar.backend.model.ProductSummary;
+import com.ecobazaar.backend.repository.PriceAlertRepository;
 import com.ecobazaar.backend.repository.WishlistRepository;
 import com.ecobazaar.backend.repository.WishlistItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,25 +18,42 @@ import java.util.stream.Collectors;
 @Service
 public class WishlistService {
 
+    private static final int RECOMMENDATION_LIMIT = 10;
+
     @Autowired
     private WishlistRepository wishlistRepository;
 
     @Autowired
     private WishlistItemRepository wishlistItemRepository;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private UpsertSupport upsertSupport;
+
+    @Autowired
+    private WishlistMembershipCache membershipCache;
+
+    @Autowired
+    private ProductRecommender productRecommender;
+
+    @Autowired
+    private PriceAlertRepository priceAlertRepository;
+
     // Get or create wishlist for user
     public Wishlist getOrCreateWishlist(String userId) {
-        Optional<Wishlist> existingWishlist = wishlistRepository.findByUserId(userId);
-        if (existingWishlist.isPresent()) {
-            return existingWishlist.get();
-        }
-        
-        // Create new wishlist
-        Wishlist wishlist = new Wishlist();
-        wishlist.setWishlistId(UUID.randomUUID().toString());
-        wishlist.setUserId(userId);
-        wishlist.setTotalItems(0);
-        return wishlistRepository.save(wishlist);
+        return upsertSupport.getOrInsert("wishlist:" + userId,
+                () -> wishlistRepository.findByUserId(userId),
+                () -> wishlistRepository.findByUserIdForShare(userId),
+                () -> wishlistRepository.insertIfAbsent(idGenerator.nextId("WL_"), userId));
+    }
+
+    // Items of the user's wishlist, without creating one
+    private List<WishlistItem> findItems(String userId) {
+        return wishlistRepository.findByUserId(userId)
+            .map(wishlist -> wishlistItemRepository.findByWishlistId(wishlist.getWishlistId()))
+            .orElse(Collections.emptyList());
     }
 
     // Add item to wishlist
@@ -59,6 +80,7 @@ public class WishlistService {
             item.setQuantity(1);
             
             wishlistItemRepository.save(item);
+            membershipCache.invalidate(userId);
             
             // Update wishlist total items
             wishlist.setTotalItems((int) wishlistItemRepository.countByWishlistId(wishlist.getWishlistId()));
@@ -80,9 +102,10 @@ public class WishlistService {
     @Transactional
     public Map<String, Object> removeFromWishlist(String userId, String productId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
+            Wishlist wishlist = wishlistRepository.findByUserId(userId).orElse(null);
             
-            if (!wishlistItemRepository.existsByWishlistIdAndProductId(wishlist.getWishlistId(), productId)) {
+            if (wishlist == null
+                    || !wishlistItemRepository.existsByWishlistIdAndProductId(wishlist.getWishlistId(), productId)) {
                 return Map.of(
                     "success", false,
                     "message", "Item not found in wishlist"
@@ -90,6 +113,7 @@ public class WishlistService {
             }
             
             wishlistItemRepository.deleteByWishlistIdAndProductId(wishlist.getWishlistId(), productId);
+            membershipCache.invalidate(userId);
             
             // Update wishlist total items
             wishlist.setTotalItems((int) wishlistItemRepository.countByWishlistId(wishlist.getWishlistId()));
@@ -110,8 +134,7 @@ public class WishlistService {
     // Get user wishlist items
     public List<Map<String, Object>> getUserWishlist(String userId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            List<WishlistItem> items = wishlistItemRepository.findByWishlistId(wishlist.getWishlistId());
+            List<WishlistItem> items = findItems(userId);
             
             return items.stream().map(item -> {
                 Map<String, Object> itemMap = new HashMap<>();
@@ -130,39 +153,48 @@ public class WishlistService {
         }
     }
 
-    // Check if item is in wishlist
+    // Check if item is in wishlist (membership cache; never creates a wishlist)
     public boolean isInWishlist(String userId, String productId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            return wishlistItemRepository.existsByWishlistIdAndProductId(wishlist.getWishlistId(), productId);
+            return membershipCache.contains(userId, productId);
         } catch (Exception e) {
             return false;
         }
     }
 
+    // Which of the given products are in the user's wishlist (for listing pages)
+    public Set<String> getWishlistedProductIds(String userId, Collection<String> productIds) {
+        return membershipCache.filterWishlisted(userId, productIds);
+    }
+
     // Get wishlist count
     public int getWishlistCount(String userId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            return (int) wishlistItemRepository.countByWishlistId(wishlist.getWishlistId());
+            return membershipCache.count(userId);
         } catch (Exception e) {
             return 0;
         }
     }
 
     // Clear wishlist
+    @Transactional
     public Map<String, Object> clearWishlist(String userId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            wishlistItemRepository.findByWishlistId(wishlist.getWishlistId())
-                .forEach(item -> wishlistItemRepository.delete(item));
-            
-            wishlist.setTotalItems(0);
-            wishlistRepository.save(wishlist);
+            int removedItems = 0;
+            Optional<Wishlist> wishlistOpt = wishlistRepository.findByUserId(userId);
+            if (wishlistOpt.isPresent()) {
+                Wishlist wishlist = wishlistOpt.get();
+                removedItems = wishlistItemRepository.deleteByWishlistId(wishlist.getWishlistId());
+                membershipCache.invalidate(userId);
+                
+                wishlist.setTotalItems(0);
+                wishlistRepository.save(wishlist);
+            }
             
             return Map.of(
                 "success", true,
-                "message", "Wishlist cleared successfully"
+                "message", "Wishlist cleared successfully",
+                "removedItems", removedItems
             );
         } catch (Exception e) {
             return Map.of(
@@ -175,8 +207,7 @@ public class WishlistService {
     // Get wishlist statistics
     public Map<String, Object> getWishlistStatistics(String userId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            List<WishlistItem> items = wishlistItemRepository.findByWishlistId(wishlist.getWishlistId());
+            List<WishlistItem> items = findItems(userId);
             
             int totalItems = items.size();
             double totalValue = items.stream()
@@ -230,17 +261,64 @@ public class WishlistService {
         return getUserWishlist(userId);
     }
 
-    // Get wishlist recommendations (placeholder)
+    // Get wishlist recommendations: products related to the wishlist, from the in-memory model
     public List<Map<String, Object>> getWishlistRecommendations(String userId) {
-        // TODO: Implement recommendation logic
-        return new ArrayList<>();
+        try {
+            List<String> wishlisted = membershipCache.productIds(userId);
+            List<Map<String, Object>> recommendations = new ArrayList<>();
+            for (ProductRecommender.Recommendation entry : productRecommender.recommend(wishlisted, RECOMMENDATION_LIMIT)) {
+                ProductSummary product = entry.product();
+                Map<String, Object> recommendation = new HashMap<>();
+                recommendation.put("productId", product.id().toString());
+                recommendation.put("productName", product.name() != null ? product.name() : "");
+                recommendation.put("productPrice", product.price() != null ? product.price() : 0.0);
+                recommendation.put("productImage", product.imageUrl() != null ? product.imageUrl() : "");
+                recommendation.put("category", product.category() != null ? product.category() : "");
+                recommendation.put("storeName", product.storeName() != null ? product.storeName() : "");
+                recommendation.put("score", entry.score());
+                recommendations.add(recommendation);
+            }
+            return recommendations;
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    // Get price-drop alerts for wishlisted products, newest first
+    public Map<String, Object> getPriceAlerts(String userId, int page, int size) {
+        List<Map<String, Object>> alerts = new ArrayList<>();
+        for (PriceAlert alert : priceAlertRepository.findByUserIdOrderByIdDesc(userId, PageRequest.of(page, size))) {
+            Map<String, Object> alertMap = new HashMap<>();
+            alertMap.put("id", alert.getId());
+            alertMap.put("productId", alert.getProductId());
+            alertMap.put("productName", alert.getProductName() != null ? alert.getProductName() : "");
+            alertMap.put("previousPrice", alert.getPreviousPrice());
+            alertMap.put("newPrice", alert.getNewPrice());
+            alertMap.put("ecoProduct", Boolean.TRUE.equals(alert.getEcoProduct()));
+            alertMap.put("read", Boolean.TRUE.equals(alert.getIsRead()));
+            alertMap.put("createdAt", alert.getCreatedAt() != null ? alert.getCreatedAt().toString() : "");
+            alerts.add(alertMap);
+        }
+        return Map.of(
+            "alerts", alerts,
+            "unreadCount", priceAlertRepository.countByUserIdAndIsReadFalse(userId)
+        );
+    }
+
+    // Mark all of a user's price-drop alerts as read
+    public Map<String, Object> markPriceAlertsRead(String userId) {
+        int updated = priceAlertRepository.markAllRead(userId);
+        return Map.of(
+            "success", true,
+            "message", "Price alerts marked as read",
+            "updated", updated
+        );
     }
 
     // Get wishlist analytics
     public Map<String, Object> getWishlistAnalytics(String userId) {
         try {
-            Wishlist wishlist = getOrCreateWishlist(userId);
-            List<WishlistItem> items = wishlistItemRepository.findByWishlistId(wishlist.getWishlistId());
+            List<WishlistItem> items = findItems(userId);
             
             int totalItems = items.size();
             double totalValue = items.stream()
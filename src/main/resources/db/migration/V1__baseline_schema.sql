@@ -0,0 +1,417 @@
+-- Baseline schema, matching the entity mappings (checked at startup by ddl-auto=validate).
+--
+-- Databases created earlier by ddl-auto=update are baselined at version 1 and skip this
+-- script; V4 adds the columns and indexes they are missing.
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigint NOT NULL AUTO_INCREMENT,
+    email varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    name varchar(255) NOT NULL,
+    phone varchar(255),
+    role enum('CUSTOMER','SHOPKEEPER','ADMIN') NOT NULL,
+    is_active bit,
+    eco_points integer,
+    total_carbon_saved float(53),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_settings (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_id varchar(255) NOT NULL,
+    flags integer,
+    theme_code tinyint NOT NULL DEFAULT 0,
+    language_code tinyint NOT NULL DEFAULT 0,
+    privacy_code tinyint NOT NULL DEFAULT 1,
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_settings_user_id UNIQUE (user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS stores (
+    id bigint NOT NULL AUTO_INCREMENT,
+    store_id varchar(255) NOT NULL,
+    store_name varchar(255) NOT NULL,
+    description text,
+    owner_id varchar(255) NOT NULL,
+    owner_email varchar(255),
+    contact_phone varchar(255),
+    address text,
+    city varchar(255),
+    state varchar(255),
+    pincode varchar(255),
+    latitude float(53),
+    longitude float(53),
+    is_verified bit,
+    is_active bit,
+    eco_rating float(53),
+    total_products integer,
+    logo_url varchar(255),
+    banner_url varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_stores_store_id UNIQUE (store_id),
+    INDEX idx_stores_owner_id (owner_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS products (
+    id bigint NOT NULL AUTO_INCREMENT,
+    version bigint NOT NULL DEFAULT 0,
+    name varchar(255) NOT NULL,
+    description text,
+    price float(53) NOT NULL,
+    quantity integer NOT NULL,
+    category varchar(255),
+    icon varchar(255),
+    color varchar(255),
+    image_url varchar(255),
+    store_id varchar(255),
+    store_name varchar(255),
+    is_active bit,
+    carbon_footprint float(53),
+    eco_points integer,
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_products_store_active (store_id, is_active),
+    INDEX idx_products_category (category)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS carts (
+    id bigint NOT NULL AUTO_INCREMENT,
+    cart_id varchar(255) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    total_items integer,
+    total_amount float(53),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_carts_cart_id UNIQUE (cart_id),
+    CONSTRAINT uk_carts_user_id UNIQUE (user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS cart_items (
+    id bigint NOT NULL AUTO_INCREMENT,
+    version bigint NOT NULL DEFAULT 0,
+    user_id varchar(255) NOT NULL,
+    customer_username varchar(255),
+    product_id varchar(255) NOT NULL,
+    product_name varchar(255),
+    product_price float(53) NOT NULL,
+    price float(53),
+    product_image varchar(255),
+    product_category varchar(255),
+    quantity integer NOT NULL,
+    total_price float(53),
+    carbon_footprint float(53),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_cart_items_user_product (user_id, product_id),
+    INDEX idx_cart_items_product (product_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS wishlists (
+    id bigint NOT NULL AUTO_INCREMENT,
+    wishlist_id varchar(255) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    total_items integer,
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_wishlists_wishlist_id UNIQUE (wishlist_id),
+    CONSTRAINT uk_wishlists_user_id UNIQUE (user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS wishlist_items (
+    id bigint NOT NULL AUTO_INCREMENT,
+    wishlist_id varchar(255) NOT NULL,
+    product_id varchar(255) NOT NULL,
+    product_name varchar(255),
+    product_price float(53),
+    product_image varchar(255),
+    quantity integer,
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_wishlist_items_wishlist_product (wishlist_id, product_id),
+    INDEX idx_wishlist_items_product (product_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS orders (
+    id bigint NOT NULL AUTO_INCREMENT,
+    order_id varchar(255) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    user_email varchar(255) NOT NULL,
+    user_name varchar(255) NOT NULL,
+    user_phone varchar(255),
+    total_amount float(53) NOT NULL,
+    tax_amount float(53),
+    shipping_amount float(53),
+    discount_amount float(53),
+    discount_code varchar(255),
+    final_amount float(53) NOT NULL,
+    order_status enum('PENDING','CONFIRMED','SHIPPED','DELIVERED','COMPLETED','CANCELLED') NOT NULL,
+    payment_status enum('PENDING','COMPLETED','FAILED','REFUNDED'),
+    payment_method varchar(255),
+    payment_id varchar(255),
+    shipping_address text,
+    billing_address text,
+    delivery_notes text,
+    estimated_delivery datetime(6),
+    tracking_number varchar(255),
+    carbon_footprint float(53),
+    eco_points_earned integer,
+    currency varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_orders_order_id UNIQUE (order_id),
+    INDEX idx_orders_user_created (user_id, created_at),
+    INDEX idx_orders_status_created (order_status, created_at),
+    INDEX idx_orders_created_at (created_at),
+    INDEX idx_orders_user_email (user_email)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_orders (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_order_id varchar(255) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    order_id varchar(255) NOT NULL,
+    product_id varchar(255) NOT NULL,
+    product_name varchar(255) NOT NULL,
+    product_price float(53) NOT NULL,
+    quantity integer NOT NULL,
+    total_amount float(53) NOT NULL,
+    store_id varchar(255),
+    store_name varchar(255),
+    order_status varchar(255),
+    delivery_date datetime(6),
+    tracking_number varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_orders_user_order_id UNIQUE (user_order_id),
+    INDEX idx_user_orders_user_id (user_id),
+    INDEX idx_user_orders_order_id (order_id),
+    INDEX idx_user_orders_store_id (store_id),
+    INDEX idx_user_orders_product_id (product_id),
+    INDEX idx_user_orders_status (order_status)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS payment_transactions (
+    id bigint NOT NULL AUTO_INCREMENT,
+    transaction_id varchar(255) NOT NULL,
+    order_id varchar(255) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    amount float(53) NOT NULL,
+    currency varchar(255),
+    payment_method varchar(255),
+    payment_gateway varchar(255),
+    gateway_transaction_id varchar(255),
+    status varchar(255),
+    failure_reason varchar(255),
+    gateway_response text,
+    idempotency_key varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_payment_tx_transaction_id UNIQUE (transaction_id),
+    CONSTRAINT uk_payment_tx_idempotency_key UNIQUE (idempotency_key),
+    INDEX idx_payment_tx_order_id (order_id),
+    INDEX idx_payment_tx_user_id (user_id),
+    INDEX idx_payment_tx_status (status)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS eco_discounts (
+    id bigint NOT NULL AUTO_INCREMENT,
+    version bigint NOT NULL DEFAULT 0,
+    discount_code varchar(255) NOT NULL,
+    title varchar(255) NOT NULL,
+    description text,
+    discount_type varchar(255) NOT NULL,
+    discount_value float(53) NOT NULL,
+    minimum_order_amount float(53),
+    maximum_discount_amount float(53),
+    is_active bit NOT NULL,
+    applicable_category varchar(255),
+    applicable_store_id varchar(255),
+    usage_limit integer,
+    current_usage_count integer,
+    user_usage_limit integer,
+    requires_eco_points bit,
+    required_eco_points integer,
+    valid_from datetime(6),
+    valid_until datetime(6),
+    created_by varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_eco_discounts_discount_code UNIQUE (discount_code),
+    INDEX idx_eco_discounts_active_validity (is_active, valid_from, valid_until)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_discount_usage (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_id varchar(255) NOT NULL,
+    discount_code varchar(255) NOT NULL,
+    order_id varchar(255) NOT NULL,
+    discount_amount float(53) NOT NULL,
+    order_amount float(53) NOT NULL,
+    used_at datetime(6),
+    eco_discount_id bigint,
+    PRIMARY KEY (id),
+    INDEX idx_discount_usage_user_code (user_id, discount_code),
+    INDEX idx_discount_usage_code (discount_code),
+    INDEX idx_discount_usage_used_at (used_at),
+    CONSTRAINT fk_discount_usage_eco_discount FOREIGN KEY (eco_discount_id) REFERENCES eco_discounts (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS eco_challenges (
+    id bigint NOT NULL AUTO_INCREMENT,
+    challenge_id varchar(255) NOT NULL,
+    title varchar(255) NOT NULL,
+    description text,
+    category varchar(255) NOT NULL,
+    target_value integer NOT NULL,
+    target_unit varchar(255) NOT NULL,
+    duration_days integer NOT NULL,
+    reward varchar(255) NOT NULL,
+    reward_points integer NOT NULL,
+    icon_name varchar(255),
+    color_hex varchar(255),
+    is_active bit NOT NULL,
+    difficulty varchar(255) NOT NULL,
+    created_by varchar(255),
+    start_date datetime(6),
+    end_date datetime(6),
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_eco_challenges_challenge_id UNIQUE (challenge_id),
+    INDEX idx_eco_challenges_active_dates (is_active, start_date, end_date),
+    INDEX idx_eco_challenges_category (category, is_active)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_challenge_progress (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_id varchar(255) NOT NULL,
+    challenge_id varchar(255) NOT NULL,
+    current_progress integer NOT NULL,
+    progress_percentage float(53) NOT NULL,
+    is_completed bit NOT NULL,
+    completed_at datetime(6),
+    started_at datetime(6),
+    points_earned integer,
+    notes text,
+    created_at datetime(6),
+    updated_at datetime(6),
+    eco_challenge_id bigint,
+    PRIMARY KEY (id),
+    INDEX idx_challenge_progress_user_challenge (user_id, challenge_id),
+    INDEX idx_challenge_progress_user_completed (user_id, is_completed),
+    INDEX idx_challenge_progress_challenge_completed (challenge_id, is_completed),
+    CONSTRAINT fk_challenge_progress_eco_challenge FOREIGN KEY (eco_challenge_id) REFERENCES eco_challenges (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_eco_profiles (
+    id bigint NOT NULL AUTO_INCREMENT,
+    version bigint NOT NULL DEFAULT 0,
+    user_id varchar(255) NOT NULL,
+    user_name varchar(255) NOT NULL,
+    user_email varchar(255),
+    total_eco_points integer NOT NULL,
+    current_rank integer,
+    previous_rank integer,
+    eco_level integer,
+    level_name varchar(255),
+    total_carbon_saved float(53) NOT NULL,
+    total_water_saved float(53),
+    total_energy_saved float(53),
+    total_waste_reduced float(53),
+    trees_equivalent float(53),
+    total_challenges_completed integer,
+    active_challenges integer,
+    challenge_completion_rate float(53),
+    current_streak_days integer,
+    longest_streak_days integer,
+    last_activity_date datetime(6),
+    total_orders integer,
+    total_spent float(53),
+    total_savings_from_discounts float(53),
+    eco_products_purchased integer,
+    total_badges integer,
+    badges text,
+    achievements text,
+    total_referrals integer,
+    community_contributions integer,
+    is_public_profile bit,
+    show_on_leaderboard bit,
+    profile_image_url varchar(255),
+    bio text,
+    created_at datetime(6),
+    updated_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_eco_profiles_user_id UNIQUE (user_id),
+    INDEX idx_eco_points (total_eco_points),
+    INDEX idx_carbon_saved (total_carbon_saved),
+    INDEX idx_level (eco_level)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS inventory_reservations (
+    id bigint NOT NULL AUTO_INCREMENT,
+    reservation_id varchar(255) NOT NULL,
+    product_id bigint NOT NULL,
+    user_id varchar(255) NOT NULL,
+    order_id varchar(255),
+    quantity integer NOT NULL,
+    status varchar(255) NOT NULL,
+    expires_at datetime(6) NOT NULL,
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_inventory_res_reservation_id UNIQUE (reservation_id),
+    INDEX idx_inventory_res_status_expires (status, expires_at),
+    INDEX idx_inventory_res_product (product_id),
+    INDEX idx_inventory_res_order (order_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id bigint NOT NULL AUTO_INCREMENT,
+    event_type varchar(255) NOT NULL,
+    aggregate_id varchar(255) NOT NULL,
+    payload text NOT NULL,
+    status varchar(255) NOT NULL,
+    attempts integer NOT NULL,
+    last_error text,
+    available_at datetime(6) NOT NULL,
+    processed_at datetime(6),
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_outbox_status_available (status, available_at)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS processed_outbox_events (
+    event_id bigint NOT NULL,
+    processed_at datetime(6),
+    PRIMARY KEY (event_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS price_alerts (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_id varchar(255) NOT NULL,
+    product_id varchar(255) NOT NULL,
+    product_name varchar(255),
+    previous_price float(53),
+    new_price float(53) NOT NULL,
+    eco_product bit,
+    is_read bit NOT NULL,
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_price_alerts_user_read (user_id, is_read),
+    INDEX idx_price_alerts_product (product_id)
+) ENGINE=InnoDB;
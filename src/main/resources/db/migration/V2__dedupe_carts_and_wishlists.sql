@@ -0,0 +1,48 @@
+-- One cart and one wishlist per user: merge duplicates left by the old get-or-create
+-- race, then add the unique indexes uk_carts_user_id and uk_wishlists_user_id where
+-- they are missing (ddl-auto=update could not create them while duplicates existed).
+
+-- Carts: keep each user's oldest cart. Cart items belong to the user rather than to a
+-- cart row, so nothing needs moving; totals are recomputed below.
+DELETE c FROM carts c
+JOIN (SELECT user_id, MIN(id) AS keep_id FROM carts GROUP BY user_id HAVING COUNT(*) > 1) k
+    ON c.user_id = k.user_id AND c.id <> k.keep_id;
+
+UPDATE carts c SET
+    total_items = (SELECT COUNT(*) FROM cart_items i WHERE i.user_id = c.user_id),
+    total_amount = (SELECT COALESCE(SUM(i.total_price), 0) FROM cart_items i WHERE i.user_id = c.user_id);
+
+-- Wishlists: keep each user's oldest wishlist and move the others' items onto it
+UPDATE wishlist_items wi
+JOIN wishlists w ON wi.wishlist_id = w.wishlist_id
+JOIN (SELECT user_id, MIN(id) AS keep_id FROM wishlists GROUP BY user_id HAVING COUNT(*) > 1) k
+    ON w.user_id = k.user_id AND w.id <> k.keep_id
+JOIN wishlists kept ON kept.id = k.keep_id
+SET wi.wishlist_id = kept.wishlist_id;
+
+DELETE w FROM wishlists w
+JOIN (SELECT user_id, MIN(id) AS keep_id FROM wishlists GROUP BY user_id HAVING COUNT(*) > 1) k
+    ON w.user_id = k.user_id AND w.id <> k.keep_id;
+
+-- A product listed twice in one wishlist (e.g. by two merged ones) keeps its oldest item
+DELETE wi FROM wishlist_items wi
+JOIN (SELECT wishlist_id, product_id, MIN(id) AS keep_id FROM wishlist_items
+      GROUP BY wishlist_id, product_id HAVING COUNT(*) > 1) k
+    ON wi.wishlist_id = k.wishlist_id AND wi.product_id = k.product_id AND wi.id <> k.keep_id;
+
+UPDATE wishlists w SET total_items = (SELECT COUNT(*) FROM wishlist_items i WHERE i.wishlist_id = w.wishlist_id);
+
+-- Unique indexes, unless an earlier ddl-auto=update run already created them
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'carts' AND index_name = 'uk_carts_user_id');
+SET @ddl = IF(@missing, 'ALTER TABLE carts ADD CONSTRAINT uk_carts_user_id UNIQUE (user_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'wishlists' AND index_name = 'uk_wishlists_user_id');
+SET @ddl = IF(@missing, 'ALTER TABLE wishlists ADD CONSTRAINT uk_wishlists_user_id UNIQUE (user_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
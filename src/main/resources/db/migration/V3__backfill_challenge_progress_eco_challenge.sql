@@ -0,0 +1,6 @@
+-- Link progress rows to their challenge. Rows written before the eco_challenge_id
+-- column was set on insert left it NULL, so the dashboard's fetch join returned them
+-- without a challenge and the category query skipped them.
+UPDATE user_challenge_progress p
+SET eco_challenge_id = (SELECT c.id FROM eco_challenges c WHERE c.challenge_id = p.challenge_id)
+WHERE p.eco_challenge_id IS NULL;
@@ -0,0 +1,326 @@
+-- Bring databases created by ddl-auto=update up to the V1 schema. Those databases are
+-- baselined at version 1, so V1 never runs against them; this script adds what the
+-- entities gained since then. Every step checks information_schema first, so it is a
+-- no-op on databases that V1 created.
+
+-- Tables introduced after the baseline
+CREATE TABLE IF NOT EXISTS inventory_reservations (
+    id bigint NOT NULL AUTO_INCREMENT,
+    reservation_id varchar(255) NOT NULL,
+    product_id bigint NOT NULL,
+    user_id varchar(255) NOT NULL,
+    order_id varchar(255),
+    quantity integer NOT NULL,
+    status varchar(255) NOT NULL,
+    expires_at datetime(6) NOT NULL,
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_inventory_res_reservation_id UNIQUE (reservation_id),
+    INDEX idx_inventory_res_status_expires (status, expires_at),
+    INDEX idx_inventory_res_product (product_id),
+    INDEX idx_inventory_res_order (order_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id bigint NOT NULL AUTO_INCREMENT,
+    event_type varchar(255) NOT NULL,
+    aggregate_id varchar(255) NOT NULL,
+    payload text NOT NULL,
+    status varchar(255) NOT NULL,
+    attempts integer NOT NULL,
+    last_error text,
+    available_at datetime(6) NOT NULL,
+    processed_at datetime(6),
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_outbox_status_available (status, available_at)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS processed_outbox_events (
+    event_id bigint NOT NULL,
+    processed_at datetime(6),
+    PRIMARY KEY (event_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS price_alerts (
+    id bigint NOT NULL AUTO_INCREMENT,
+    user_id varchar(255) NOT NULL,
+    product_id varchar(255) NOT NULL,
+    product_name varchar(255),
+    previous_price float(53),
+    new_price float(53) NOT NULL,
+    eco_product bit,
+    is_read bit NOT NULL,
+    created_at datetime(6),
+    PRIMARY KEY (id),
+    INDEX idx_price_alerts_user_read (user_id, is_read),
+    INDEX idx_price_alerts_product (product_id)
+) ENGINE=InnoDB;
+
+-- Columns: optimistic-lock versions, payment idempotency keys and packed user settings
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'products' AND column_name = 'version');
+SET @ddl = IF(@missing, 'ALTER TABLE products ADD COLUMN version bigint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'cart_items' AND column_name = 'version');
+SET @ddl = IF(@missing, 'ALTER TABLE cart_items ADD COLUMN version bigint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'eco_discounts' AND column_name = 'version');
+SET @ddl = IF(@missing, 'ALTER TABLE eco_discounts ADD COLUMN version bigint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_eco_profiles' AND column_name = 'version');
+SET @ddl = IF(@missing, 'ALTER TABLE user_eco_profiles ADD COLUMN version bigint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'payment_transactions' AND column_name = 'idempotency_key');
+SET @ddl = IF(@missing, 'ALTER TABLE payment_transactions ADD COLUMN idempotency_key varchar(255)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'flags');
+SET @ddl = IF(@missing, 'ALTER TABLE user_settings ADD COLUMN flags integer', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'theme_code');
+SET @ddl = IF(@missing, 'ALTER TABLE user_settings ADD COLUMN theme_code tinyint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'language_code');
+SET @ddl = IF(@missing, 'ALTER TABLE user_settings ADD COLUMN language_code tinyint NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'privacy_code');
+SET @ddl = IF(@missing, 'ALTER TABLE user_settings ADD COLUMN privacy_code tinyint NOT NULL DEFAULT 1', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Indexes backing the repository queries
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stores' AND index_name = 'idx_stores_owner_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_stores_owner_id ON stores (owner_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'products' AND index_name = 'idx_products_store_active');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_products_store_active ON products (store_id, is_active)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'products' AND index_name = 'idx_products_category');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_products_category ON products (category)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'cart_items' AND index_name = 'idx_cart_items_user_product');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_cart_items_user_product ON cart_items (user_id, product_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'cart_items' AND index_name = 'idx_cart_items_product');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_cart_items_product ON cart_items (product_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'wishlist_items' AND index_name = 'idx_wishlist_items_wishlist_product');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_wishlist_items_wishlist_product ON wishlist_items (wishlist_id, product_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'wishlist_items' AND index_name = 'idx_wishlist_items_product');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_wishlist_items_product ON wishlist_items (product_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'orders' AND index_name = 'idx_orders_user_created');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_orders_user_created ON orders (user_id, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'orders' AND index_name = 'idx_orders_status_created');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_orders_status_created ON orders (order_status, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'orders' AND index_name = 'idx_orders_created_at');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_orders_created_at ON orders (created_at)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'orders' AND index_name = 'idx_orders_user_email');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_orders_user_email ON orders (user_email)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_orders' AND index_name = 'idx_user_orders_user_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_user_orders_user_id ON user_orders (user_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_orders' AND index_name = 'idx_user_orders_order_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_user_orders_order_id ON user_orders (order_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_orders' AND index_name = 'idx_user_orders_store_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_user_orders_store_id ON user_orders (store_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_orders' AND index_name = 'idx_user_orders_product_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_user_orders_product_id ON user_orders (product_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_orders' AND index_name = 'idx_user_orders_status');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_user_orders_status ON user_orders (order_status)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'payment_transactions' AND index_name = 'uk_payment_tx_idempotency_key');
+SET @ddl = IF(@missing, 'ALTER TABLE payment_transactions ADD CONSTRAINT uk_payment_tx_idempotency_key UNIQUE (idempotency_key)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'payment_transactions' AND index_name = 'idx_payment_tx_order_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_payment_tx_order_id ON payment_transactions (order_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'payment_transactions' AND index_name = 'idx_payment_tx_user_id');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_payment_tx_user_id ON payment_transactions (user_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'payment_transactions' AND index_name = 'idx_payment_tx_status');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_payment_tx_status ON payment_transactions (status)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'eco_discounts' AND index_name = 'idx_eco_discounts_active_validity');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_eco_discounts_active_validity ON eco_discounts (is_active, valid_from, valid_until)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_discount_usage' AND index_name = 'idx_discount_usage_user_code');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_discount_usage_user_code ON user_discount_usage (user_id, discount_code)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_discount_usage' AND index_name = 'idx_discount_usage_code');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_discount_usage_code ON user_discount_usage (discount_code)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_discount_usage' AND index_name = 'idx_discount_usage_used_at');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_discount_usage_used_at ON user_discount_usage (used_at)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'eco_challenges' AND index_name = 'idx_eco_challenges_active_dates');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_eco_challenges_active_dates ON eco_challenges (is_active, start_date, end_date)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'eco_challenges' AND index_name = 'idx_eco_challenges_category');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_eco_challenges_category ON eco_challenges (category, is_active)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_challenge_progress' AND index_name = 'idx_challenge_progress_user_challenge');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_challenge_progress_user_challenge ON user_challenge_progress (user_id, challenge_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_challenge_progress' AND index_name = 'idx_challenge_progress_user_completed');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_challenge_progress_user_completed ON user_challenge_progress (user_id, is_completed)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_challenge_progress' AND index_name = 'idx_challenge_progress_challenge_completed');
+SET @ddl = IF(@missing, 'CREATE INDEX idx_challenge_progress_challenge_completed ON user_challenge_progress (challenge_id, is_completed)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
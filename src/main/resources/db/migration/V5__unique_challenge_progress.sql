@@ -0,0 +1,27 @@
+-- One progress row per user and challenge: drop duplicates left by concurrent
+-- first writes, then replace the plain (user_id, challenge_id) index with the unique
+-- key uk_challenge_progress_user_challenge that progress upserts rely on.
+
+-- Keep the furthest row of each pair: completed first, then the most progress, then the oldest
+DELETE p FROM user_challenge_progress p
+JOIN user_challenge_progress keep
+    ON keep.user_id = p.user_id AND keep.challenge_id = p.challenge_id
+   AND (keep.is_completed > p.is_completed
+        OR (keep.is_completed = p.is_completed AND keep.current_progress > p.current_progress)
+        OR (keep.is_completed = p.is_completed AND keep.current_progress = p.current_progress AND keep.id < p.id));
+
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_challenge_progress'
+                  AND index_name = 'uk_challenge_progress_user_challenge');
+SET @ddl = IF(@missing, 'ALTER TABLE user_challenge_progress ADD CONSTRAINT uk_challenge_progress_user_challenge UNIQUE (user_id, challenge_id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @present = (SELECT COUNT(*) > 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'user_challenge_progress'
+                  AND index_name = 'idx_challenge_progress_user_challenge');
+SET @ddl = IF(@present, 'DROP INDEX idx_challenge_progress_user_challenge ON user_challenge_progress', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
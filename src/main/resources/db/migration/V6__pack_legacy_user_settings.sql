@@ -0,0 +1,35 @@
+-- Languages outside the UserSettings code table are kept in language_other (with
+-- language_code -1) instead of being mapped to a known code.
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'language_other');
+SET @ddl = IF(@missing, 'ALTER TABLE user_settings ADD COLUMN language_other varchar(35)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Pack settings rows written before the bitmask into flags and codes (bit order and
+-- code tables as in UserSettings). Only databases created by ddl-auto=update still
+-- have the old per-preference columns; elsewhere this is a no-op.
+SET @legacy = (SELECT COUNT(*) > 0 FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'user_settings' AND column_name = 'notifications_enabled');
+SET @ddl = IF(@legacy, 'UPDATE user_settings SET flags =
+        IF(COALESCE(notifications_enabled, 1), 1, 0) | IF(COALESCE(email_notifications, 1), 2, 0)
+        | IF(COALESCE(push_notifications, 1), 4, 0) | IF(COALESCE(sms_notifications, 0), 8, 0)
+        | IF(COALESCE(eco_tips_enabled, 1), 16, 0) | IF(COALESCE(challenge_reminders, 1), 32, 0)
+        | IF(COALESCE(order_updates, 1), 64, 0) | IF(COALESCE(promotional_emails, 0), 128, 0)
+        | IF(COALESCE(data_sharing, 0), 256, 0) | IF(COALESCE(location_tracking, 0), 512, 0),
+    theme_code = GREATEST(FIELD(LOWER(theme), ''light'', ''dark'', ''system'') - 1, 0),
+    language_code = CASE
+        WHEN language IS NULL OR TRIM(language) = '''' THEN 0
+        WHEN FIELD(LOWER(TRIM(language)), ''en'', ''hi'', ''mr'', ''ta'', ''te'', ''bn'', ''gu'', ''kn'', ''ml'', ''pa'', ''es'', ''fr'', ''de'') > 0
+            THEN FIELD(LOWER(TRIM(language)), ''en'', ''hi'', ''mr'', ''ta'', ''te'', ''bn'', ''gu'', ''kn'', ''ml'', ''pa'', ''es'', ''fr'', ''de'') - 1
+        ELSE -1 END,
+    language_other = CASE
+        WHEN language IS NULL OR TRIM(language) = '''' THEN NULL
+        WHEN FIELD(LOWER(TRIM(language)), ''en'', ''hi'', ''mr'', ''ta'', ''te'', ''bn'', ''gu'', ''kn'', ''ml'', ''pa'', ''es'', ''fr'', ''de'') > 0 THEN NULL
+        ELSE LEFT(LOWER(TRIM(language)), 35) END,
+    privacy_code = COALESCE(NULLIF(FIELD(LOWER(privacy_level), ''low'', ''medium'', ''high''), 0) - 1, 1)
+    WHERE flags IS NULL', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
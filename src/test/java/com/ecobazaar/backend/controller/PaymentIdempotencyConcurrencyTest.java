@@ -0,0 +1,181 @@
+package com.ecobazaar.backend.controller;
+
+import com.ecobazaar.backend.entity.PaymentTransaction;
+import com.ecobazaar.backend.repository.PaymentTransactionRepository;
+import com.ecobazaar.backend.service.IdGenerator;
+import com.ecobazaar.backend.service.IdempotencyStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Payment idempotency concurrency test
+ *
+ * Sends the same payment request in parallel under one Idempotency-Key, with
+ * the amount spelled several ways, and checks that a single transaction is
+ * stored and every caller gets its response. A second instance, with its
+ * own idempotency store, must fall back on the unique key column: it replays
+ * the payment the first instance stored, even when its own lookup missed it.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PaymentController.class, IdGenerator.class, IdempotencyStore.class})
+class PaymentIdempotencyConcurrencyTest {
+
+    private static final String USER_ID = "user-42";
+    // One key per test: the idempotency store outlives a test
+    private static final String KEY = "pay-once";
+    private static final String REUSED_KEY = "pay-reused";
+    private static final String SHARED_KEY = "pay-shared";
+    private static final String RACED_KEY = "pay-raced";
+    private static final int REQUESTS = 50;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PaymentController paymentController;
+
+    @Autowired
+    private PaymentTransactionRepository paymentTransactionRepository;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @AfterEach
+    void cleanUp() {
+        for (String key : List.of(KEY, REUSED_KEY, SHARED_KEY, RACED_KEY)) {
+            paymentTransactionRepository.findByIdempotencyKey(USER_ID + ":" + key)
+                    .ifPresent(paymentTransactionRepository::delete);
+        }
+    }
+
+    @Test
+    void parallelDuplicatesCreateOnePayment() throws Exception {
+        assertOnePayment(KEY, sendInParallel(KEY, paymentController));
+    }
+
+    @Test
+    void parallelDuplicatesAcrossInstancesCreateOnePayment() throws Exception {
+        PaymentController otherInstance = otherInstance(paymentTransactionRepository);
+        assertOnePayment(SHARED_KEY, sendInParallel(SHARED_KEY, paymentController, otherInstance));
+    }
+
+    @Test
+    void instanceThatMissesTheStoredPaymentReplaysItAfterTheDuplicateKey() {
+        ResponseEntity<Map<String, Object>> first = paymentController.processPayment(request("100"), RACED_KEY);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // Its lookup ran just before the first instance committed, so only the insert finds the key taken
+        PaymentTransactionRepository staleRepository =
+                mock(PaymentTransactionRepository.class, delegatesTo(paymentTransactionRepository));
+        doReturn(Optional.empty())
+                .doAnswer(invocation -> paymentTransactionRepository.findByIdempotencyKey(invocation.getArgument(0)))
+                .when(staleRepository).findByIdempotencyKey(any());
+        ResponseEntity<Map<String, Object>> retry = otherInstance(staleRepository)
+                .processPayment(request(100.0), RACED_KEY);
+
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertOnePayment(RACED_KEY, List.of(first, retry));
+    }
+
+    @Test
+    void sameKeyWithDifferentAmountIsRejected() {
+        assertThat(paymentController.processPayment(request("100"), REUSED_KEY).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(paymentController.processPayment(request("250"), REUSED_KEY).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    // REQUESTS copies of the payment, the amount spelled several ways, spread over the instances
+    private List<ResponseEntity<Map<String, Object>>> sendInParallel(String key, PaymentController... instances)
+            throws Exception {
+        Object[] amounts = {"100", 100.0, "100.00", 100};
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<ResponseEntity<Map<String, Object>>> responses = new ArrayList<>();
+        try {
+            List<Future<ResponseEntity<Map<String, Object>>>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                Map<String, Object> request = request(amounts[i % amounts.length]);
+                PaymentController instance = instances[i % instances.length];
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return instance.processPayment(request, key);
+                }));
+            }
+            start.countDown();
+            for (Future<ResponseEntity<Map<String, Object>>> future : futures) {
+                responses.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return responses;
+    }
+
+    private void assertOnePayment(String key, List<ResponseEntity<Map<String, Object>>> responses) {
+        Set<Object> paymentIds = new HashSet<>();
+        for (ResponseEntity<Map<String, Object>> response : responses) {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            paymentIds.add(response.getBody().get("paymentId"));
+        }
+        assertThat(paymentIds).hasSize(1);
+        assertThat(paymentTransactionRepository.findAll().stream()
+                .filter(tx -> (USER_ID + ":" + key).equals(tx.getIdempotencyKey()))
+                .map(PaymentTransaction::getTransactionId))
+                .containsExactly((String) paymentIds.iterator().next());
+    }
+
+    // Another application instance: same database, its own idempotency store
+    private PaymentController otherInstance(PaymentTransactionRepository repository) {
+        IdempotencyStore store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "maxEntries", 10_000);
+        ReflectionTestUtils.setField(store, "waitMs", 10_000L);
+        PaymentController instance = new PaymentController();
+        ReflectionTestUtils.setField(instance, "paymentTransactionRepository", repository);
+        ReflectionTestUtils.setField(instance, "idGenerator", idGenerator);
+        ReflectionTestUtils.setField(instance, "idempotencyStore", store);
+        return instance;
+    }
+
+    private static Map<String, Object> request(Object amount) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("orderId", "ORD_42");
+        request.put("userId", USER_ID);
+        request.put("amount", amount);
+        request.put("paymentMethod", "card");
+        request.put("gatewayResponse", Map.of("success", true));
+        return request;
+    }
+}
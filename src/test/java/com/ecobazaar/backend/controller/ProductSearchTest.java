@@ -0,0 +1,67 @@
+package com.ecobazaar.backend.controller;
+
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.model.ProductSummary;
+import com.ecobazaar.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Product search test
+ *
+ * The search text must match product names literally: %, _ and the escape
+ * character ! in it are not LIKE wildcards, while case is still ignored.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSearchTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Long> productIds = new ArrayList<>();
+    private ProductController productController;
+
+    @BeforeEach
+    void createProducts() {
+        for (String name : List.of("100% Bamboo Brush", "1000 Bamboo Straws", "Eco_Bag", "EcoXBag", "Wow! Wrap",
+                "Wow!! Wrap")) {
+            productIds.add(productRepository.save(new Product(name, null, 5.0, 10, "Home")).getId());
+        }
+        productController = new ProductController();
+        ReflectionTestUtils.setField(productController, "productRepository", productRepository);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllById(productIds);
+    }
+
+    @Test
+    void wildcardsInTheQueryMatchLiterally() {
+        assertThat(search("0%")).containsExactly("100% Bamboo Brush");
+        assertThat(search("o_b")).containsExactly("Eco_Bag");
+        assertThat(search("w! w")).containsExactly("Wow! Wrap");
+        assertThat(search("!!")).containsExactly("Wow!! Wrap");
+        assertThat(search("bamboo")).containsExactlyInAnyOrder("100% Bamboo Brush", "1000 Bamboo Straws");
+    }
+
+    private List<String> search(String query) {
+        return productController.searchProducts(query).getBody().stream().map(ProductSummary::name).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.UserChallengeProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Challenge progress upsert test
+ *
+ * Concurrent progress deltas for the same user and challenge, each in its own
+ * transaction, must land in a single row with every delta counted, and the
+ * completion they reach together must be claimed exactly once.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChallengeProgressUpsertTest {
+
+    private static final String USER_ID = "progress-user";
+    private static final String CHALLENGE_ID = "progress-challenge";
+    private static final int DELTAS = 200;
+    private static final int THREADS = 8;
+    private static final int TARGET = 150;
+
+    @Autowired
+    private UserChallengeProgressRepository progressRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        progressRepository.findByUserIdAndChallengeId(USER_ID, CHALLENGE_ID).ifPresent(progressRepository::delete);
+    }
+
+    @Test
+    void concurrentDeltasAreAllCountedInOneRowAndCompleteOnce() throws Exception {
+        TransactionTemplate flush = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        int completions = 0;
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < DELTAS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return flush.execute(status -> {
+                        progressRepository.addProgress(USER_ID, CHALLENGE_ID, null, 1, TARGET);
+                        return progressRepository.completeIfReached(USER_ID, CHALLENGE_ID, TARGET, 50,
+                                LocalDateTime.now());
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                completions += future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        UserChallengeProgress progress = progressRepository.findByUserIdAndChallengeId(USER_ID, CHALLENGE_ID)
+                .orElseThrow();
+        assertThat(progressRepository.findByChallengeId(CHALLENGE_ID)).hasSize(1);
+        assertThat(progress.getCurrentProgress()).isEqualTo(DELTAS);
+        assertThat(progress.getProgressPercentage()).isEqualTo(100.0);
+        assertThat(progress.getIsCompleted()).isTrue();
+        assertThat(completions).isEqualTo(1);
+    }
+
+    @Test
+    void negativeDeltaNeverTakesProgressBelowZero() {
+        TransactionTemplate flush = new TransactionTemplate(transactionManager);
+        flush.executeWithoutResult(status -> progressRepository.addProgress(USER_ID, CHALLENGE_ID, null, 30, TARGET));
+        flush.executeWithoutResult(status -> progressRepository.addProgress(USER_ID, CHALLENGE_ID, null, -50, TARGET));
+
+        UserChallengeProgress progress = progressRepository.findByUserIdAndChallengeId(USER_ID, CHALLENGE_ID)
+                .orElseThrow();
+        assertThat(progress.getCurrentProgress()).isZero();
+        assertThat(progress.getProgressPercentage()).isZero();
+    }
+}
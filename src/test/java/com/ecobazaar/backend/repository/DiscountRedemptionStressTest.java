@@ -0,0 +1,91 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.EcoDiscount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Discount redemption stress test
+ *
+ * Fires many more parallel redemptions than a discount's usage limit at
+ * incrementUsageIfAvailable, each in its own transaction, and checks that
+ * exactly usageLimit of them succeed and the stored count never overshoots.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DiscountRedemptionStressTest {
+
+    private static final String CODE = "STRESS100";
+    private static final int USAGE_LIMIT = 100;
+    private static final int REDEMPTIONS = 1000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private EcoDiscountRepository ecoDiscountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        ecoDiscountRepository.findByDiscountCode(CODE).ifPresent(ecoDiscountRepository::delete);
+    }
+
+    @Test
+    void parallelRedemptionsNeverExceedUsageLimit() throws Exception {
+        EcoDiscount discount = new EcoDiscount(CODE, "Stress test", null, "PERCENTAGE", 10.0);
+        discount.setIsActive(true);
+        discount.setUsageLimit(USAGE_LIMIT);
+        discount.setCurrentUsageCount(0);
+        ecoDiscountRepository.save(discount);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        AtomicInteger redeemed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < REDEMPTIONS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    Integer updated = transaction.execute(status -> ecoDiscountRepository.incrementUsageIfAvailable(CODE));
+                    if (updated != null && updated == 1) {
+                        redeemed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(redeemed.get()).isEqualTo(USAGE_LIMIT);
+        assertThat(ecoDiscountRepository.findByDiscountCode(CODE).orElseThrow().getCurrentUsageCount())
+                .isEqualTo(USAGE_LIMIT);
+    }
+}
@@ -0,0 +1,258 @@
+package com.ecobazaar.backend.repository;
+
+import com.ecobazaar.backend.entity.UserSettings;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrated schema test
+ *
+ * Builds the schema on MySQL with the Flyway scripts and starts Hibernate with
+ * ddl-auto=validate against it, so a mapping the scripts do not create fails
+ * here. The SQL Hibernate generates for the hot repository queries is then
+ * EXPLAINed to check it is served by the intended index, and a database in the
+ * shape ddl-auto=update left behind is upgraded from a version 1 baseline.
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class MigratedSchemaTest {
+
+    private static final int ROWS = 2000;
+    private static final int USERS = 200;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withUsername("root")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.datasource.driver-class-name", MYSQL::getDriverClassName);
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.MySQLDialect");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", SqlCapture.class::getName);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    /**
+     * Records the SQL Hibernate prepares, so tests can EXPLAIN exactly what a
+     * repository method sends.
+     */
+    public static class SqlCapture implements StatementInspector {
+
+        private static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+
+        static void clear() {
+            synchronized (statements) {
+                statements.clear();
+            }
+        }
+
+        static String last() {
+            synchronized (statements) {
+                assertThat(statements).as("captured SQL").isNotEmpty();
+                return statements.get(statements.size() - 1);
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserChallengeProgressRepository progressRepository;
+
+    @Autowired
+    private PaymentTransactionRepository paymentTransactionRepository;
+
+    @Autowired
+    private UserDiscountUsageRepository discountUsageRepository;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> cartItems = new ArrayList<>();
+        List<Object[]> progress = new ArrayList<>();
+        List<Object[]> payments = new ArrayList<>();
+        List<Object[]> usages = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String userId = "user-" + (i % USERS);
+            orders.add(new Object[]{"ORD_" + i, userId, userId + "@example.com", "User " + i});
+            cartItems.add(new Object[]{userId, "" + (i % 97)});
+            progress.add(new Object[]{userId, "challenge-" + (i % 13)});
+            payments.add(new Object[]{"TXN_" + i, "ORD_" + i, userId, "key-" + i});
+            usages.add(new Object[]{userId, "CODE" + (i % 17), "ORD_" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (order_id, user_id, user_email, user_name, total_amount, "
+                + "final_amount, order_status, created_at) VALUES (?, ?, ?, ?, 100, 100, 'PENDING', CURRENT_TIMESTAMP)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO cart_items (user_id, product_id, product_price, quantity) "
+                + "VALUES (?, ?, 10, 1)", cartItems);
+        jdbcTemplate.batchUpdate("INSERT INTO user_challenge_progress (user_id, challenge_id, current_progress, "
+                + "progress_percentage, is_completed) VALUES (?, ?, 0, 0, false)", progress);
+        jdbcTemplate.batchUpdate("INSERT INTO payment_transactions (transaction_id, order_id, user_id, amount, "
+                + "idempotency_key) VALUES (?, ?, ?, 100, ?)", payments);
+        jdbcTemplate.batchUpdate("INSERT INTO user_discount_usage (user_id, discount_code, order_id, discount_amount, "
+                + "order_amount) VALUES (?, ?, ?, 5, 100)", usages);
+        SqlCapture.clear();
+    }
+
+    @Test
+    void userOrderSummariesUseUserCreatedIndex() {
+        orderRepository.findSummariesByUserId("user-7");
+        assertPlanUses("idx_orders_user_created", "user-7");
+    }
+
+    @Test
+    void cartLineLookupUsesUserProductIndex() {
+        cartItemRepository.findByUserIdAndProductId("user-7", "7");
+        assertPlanUses("idx_cart_items_user_product", "user-7", "7");
+    }
+
+    @Test
+    void challengeProgressLookupUsesUserChallengeIndex() {
+        progressRepository.findByUserIdAndChallengeId("user-7", "challenge-7");
+        assertPlanUses("uk_challenge_progress_user_challenge", "user-7", "challenge-7");
+    }
+
+    @Test
+    void paymentsByOrderUseOrderIdIndex() {
+        paymentTransactionRepository.findByOrderId("ORD_7");
+        assertPlanUses("idx_payment_tx_order_id", "ORD_7");
+    }
+
+    @Test
+    void idempotentReplayUsesIdempotencyKeyIndex() {
+        paymentTransactionRepository.findByIdempotencyKey("key-7");
+        assertPlanUses("uk_payment_tx_idempotency_key", "key-7");
+    }
+
+    @Test
+    void perUserDiscountUsageUsesUserCodeIndex() {
+        discountUsageRepository.countUserDiscountUsage("user-7", "CODE7");
+        assertPlanUses("idx_discount_usage_user_code", "user-7", "CODE7");
+    }
+
+    @Test
+    void schemaLeftByDdlAutoUpdateIsUpgradedFromVersionOneBaseline() throws Exception {
+        // DDL commits implicitly in MySQL, so it runs on its own connection rather than
+        // the test transaction that holds the seeded rows
+        try (Connection connection = dataSource.getConnection()) {
+            JdbcTemplate ddl = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            String schema = "ecobazaar_legacy";
+            ddl.execute("DROP DATABASE IF EXISTS " + schema);
+
+            // Build the current schema, then strip what the entities gained after the
+            // ddl-auto=update era and forget the migration history
+            flyway(schema).target("1").load().migrate();
+            ddl.execute("DROP TABLE " + schema + ".price_alerts");
+            ddl.execute("ALTER TABLE " + schema + ".products DROP COLUMN version");
+            ddl.execute("ALTER TABLE " + schema + ".payment_transactions DROP COLUMN idempotency_key");
+            ddl.execute("ALTER TABLE " + schema + ".user_settings DROP COLUMN flags, DROP COLUMN theme_code, "
+                    + "DROP COLUMN language_code, DROP COLUMN privacy_code, ADD COLUMN theme varchar(255), "
+                    + "ADD COLUMN language varchar(255), ADD COLUMN notifications_enabled bit, "
+                    + "ADD COLUMN email_notifications bit, ADD COLUMN push_notifications bit, "
+                    + "ADD COLUMN sms_notifications bit, ADD COLUMN eco_tips_enabled bit, "
+                    + "ADD COLUMN challenge_reminders bit, ADD COLUMN order_updates bit, "
+                    + "ADD COLUMN promotional_emails bit, ADD COLUMN privacy_level varchar(255), "
+                    + "ADD COLUMN data_sharing bit, ADD COLUMN location_tracking bit");
+            ddl.update("INSERT INTO " + schema + ".user_settings (user_id, theme, language, notifications_enabled, "
+                    + "sms_notifications, privacy_level) VALUES ('known', 'Dark', 'hi', 0, 1, 'high'), "
+                    + "('other', 'light', 'pt-BR', NULL, NULL, NULL)");
+            ddl.execute("ALTER TABLE " + schema + ".orders DROP INDEX idx_orders_user_created");
+            ddl.execute("DROP TABLE " + schema + ".flyway_schema_history");
+
+            flyway(schema).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+            assertThat(count(ddl, "information_schema.tables", schema, "table_name = 'price_alerts'")).isEqualTo(1);
+            assertThat(count(ddl, "information_schema.columns", schema,
+                    "table_name = 'products' AND column_name = 'version'")).isEqualTo(1);
+            assertThat(count(ddl, "information_schema.columns", schema, "table_name = 'user_settings' "
+                    + "AND column_name IN ('flags', 'theme_code', 'language_code', 'privacy_code')")).isEqualTo(4);
+            assertThat(ddl.queryForMap("SELECT flags, theme_code, language_code, language_other, privacy_code FROM "
+                    + schema + ".user_settings WHERE user_id = 'known'"))
+                    .containsEntry("flags", UserSettings.DEFAULT_FLAGS & ~UserSettings.NOTIFICATIONS_ENABLED
+                            | UserSettings.SMS_NOTIFICATIONS)
+                    .containsEntry("theme_code", 1)
+                    .containsEntry("language_code", 1)
+                    .containsEntry("language_other", null)
+                    .containsEntry("privacy_code", 2);
+            // A language outside the code table keeps its value instead of becoming "en"
+            assertThat(ddl.queryForMap("SELECT flags, language_code, language_other, privacy_code FROM "
+                    + schema + ".user_settings WHERE user_id = 'other'"))
+                    .containsEntry("flags", UserSettings.DEFAULT_FLAGS)
+                    .containsEntry("language_code", (int) UserSettings.OTHER_LANGUAGE)
+                    .containsEntry("language_other", "pt-br")
+                    .containsEntry("privacy_code", 1);
+            assertThat(count(ddl, "information_schema.statistics", schema,
+                    "table_name = 'payment_transactions' AND index_name = 'uk_payment_tx_idempotency_key'")).isEqualTo(1);
+            assertThat(count(ddl, "information_schema.statistics", schema,
+                    "table_name = 'orders' AND index_name = 'idx_orders_user_created' AND seq_in_index = 1")).isEqualTo(1);
+
+            // Running again against an up-to-date schema changes nothing
+            assertThat(flyway(schema).load().migrate().migrationsExecuted).isZero();
+            ddl.execute("DROP DATABASE " + schema);
+        }
+    }
+
+    private FluentConfiguration flyway(String schema) {
+        return Flyway.configure().dataSource(dataSource).schemas(schema).locations("classpath:db/migration");
+    }
+
+    private int count(JdbcTemplate jdbc, String view, String schema, String condition) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + view + " WHERE table_schema = ? AND " + condition,
+                Integer.class, schema);
+    }
+
+    private void assertPlanUses(String index, Object... parameters) {
+        String sql = SqlCapture.last();
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        assertThat(plan).as(sql).anySatisfy(row ->
+                assertThat(String.valueOf(row.get("key")).toLowerCase(Locale.ROOT)).isEqualTo(index));
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecobazaar.backend.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan regression test
+ *
+ * Runs EXPLAIN on the SQL shapes behind the hot repository queries and checks
+ * that each is served by the index declared for it on the entity, so dropping
+ * or reordering an index (or changing a query so it no longer matches one)
+ * fails here rather than as a full scan in production.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    private static final int ROWS = 2000;
+    private static final int USERS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> cartItems = new ArrayList<>();
+        List<Object[]> progress = new ArrayList<>();
+        List<Object[]> payments = new ArrayList<>();
+        List<Object[]> wishlistItems = new ArrayList<>();
+        List<Object[]> usages = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String userId = "user-" + (i % USERS);
+            orders.add(new Object[]{"ORD_" + i, userId, userId + "@example.com", "User " + i});
+            cartItems.add(new Object[]{userId, "" + (i % 97)});
+            progress.add(new Object[]{userId, "challenge-" + (i % 13)});
+            payments.add(new Object[]{"TXN_" + i, "ORD_" + i, userId});
+            wishlistItems.add(new Object[]{"wishlist-" + (i % USERS), "" + (i % 97)});
+            usages.add(new Object[]{userId, "CODE" + (i % 17), "ORD_" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (order_id, user_id, user_email, user_name, total_amount, "
+                + "final_amount, order_status, created_at) VALUES (?, ?, ?, ?, 100, 100, 'PENDING', CURRENT_TIMESTAMP)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO cart_items (version, user_id, product_id, product_price, quantity) "
+                + "VALUES (0, ?, ?, 10, 1)", cartItems);
+        jdbcTemplate.batchUpdate("INSERT INTO user_challenge_progress (user_id, challenge_id, current_progress, "
+                + "progress_percentage, is_completed) VALUES (?, ?, 0, 0, false)", progress);
+        jdbcTemplate.batchUpdate("INSERT INTO payment_transactions (transaction_id, order_id, user_id, amount) "
+                + "VALUES (?, ?, ?, 100)", payments);
+        jdbcTemplate.batchUpdate("INSERT INTO wishlist_items (wishlist_id, product_id) VALUES (?, ?)", wishlistItems);
+        jdbcTemplate.batchUpdate("INSERT INTO user_discount_usage (user_id, discount_code, order_id, discount_amount, "
+                + "order_amount) VALUES (?, ?, ?, 5, 100)", usages);
+    }
+
+    @Test
+    void userOrderHistoryUsesUserCreatedIndex() {
+        assertUsesIndex("SELECT * FROM orders WHERE user_id = 'user-7' ORDER BY created_at DESC",
+                "idx_orders_user_created");
+    }
+
+    @Test
+    void cartLineLookupUsesUserProductIndex() {
+        assertUsesIndex("SELECT * FROM cart_items WHERE user_id = 'user-7' AND product_id = '7'",
+                "idx_cart_items_user_product");
+    }
+
+    @Test
+    void challengeProgressLookupUsesUserChallengeIndex() {
+        assertUsesIndex("SELECT * FROM user_challenge_progress WHERE user_id = 'user-7' AND challenge_id = 'challenge-7'",
+                "uk_challenge_progress_user_challenge");
+    }
+
+    @Test
+    void paymentsByOrderUseOrderIdIndex() {
+        assertUsesIndex("SELECT * FROM payment_transactions WHERE order_id = 'ORD_7'", "idx_payment_tx_order_id");
+    }
+
+    @Test
+    void productHolderPagesUseProductIndex() {
+        assertUsesIndex("SELECT id FROM wishlist_items WHERE product_id = '7' AND id > 0 ORDER BY id",
+                "idx_wishlist_items_product");
+    }
+
+    @Test
+    void perUserDiscountUsageUsesUserCodeIndex() {
+        assertUsesIndex("SELECT COUNT(*) FROM user_discount_usage WHERE user_id = 'user-7' AND discount_code = 'CODE7'",
+                "idx_discount_usage_user_code");
+    }
+
+    private void assertUsesIndex(String sql, String index) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertThat(plan.toLowerCase(Locale.ROOT)).as(plan).contains(index);
+    }
+}
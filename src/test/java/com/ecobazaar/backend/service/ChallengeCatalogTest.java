@@ -0,0 +1,152 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.EcoChallenge;
+import com.ecobazaar.backend.repository.EcoChallengeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Challenge catalog test
+ *
+ * The interval tree and end-date ordering must return exactly the active
+ * challenges a scan of every one would, boundaries included, for random
+ * and overlapping date ranges, as lists callers cannot change. A load that
+ * overlaps an invalidation must not be kept as the snapshot.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ChallengeCatalog.class)
+class ChallengeCatalogTest {
+
+    private static final String PREFIX = "catalog-";
+    private static final int CHALLENGES = 400;
+    private static final int QUERIES = 300;
+    // Whole hours, so times survive the round trip through the database unchanged
+    private static final LocalDateTime BASE = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+    @Autowired
+    private ChallengeCatalog catalog;
+
+    @Autowired
+    private EcoChallengeRepository ecoChallengeRepository;
+
+    @AfterEach
+    void cleanUp() {
+        ecoChallengeRepository.deleteAll(ecoChallengeRepository.findAll().stream()
+                .filter(challenge -> challenge.getChallengeId().startsWith(PREFIX)).toList());
+        catalog.invalidate();
+    }
+
+    @Test
+    void lookupsMatchScanningEveryChallenge() {
+        Random random = new Random(7);
+        List<EcoChallenge> challenges = new ArrayList<>();
+        for (int i = 0; i < CHALLENGES; i++) {
+            EcoChallenge challenge = new EcoChallenge(PREFIX + i, "Challenge " + i, null,
+                    random.nextBoolean() ? "Energy" : "Waste", 10, "actions", 7, "Badge", 50);
+            challenge.setIsActive(random.nextInt(10) > 0);
+            if (random.nextInt(10) == 0) {
+                challenge.setStartDate(null); // undated challenges never match a date lookup
+            } else {
+                challenge.setStartDate(BASE.plusHours(random.nextInt(24 * 60)));
+            }
+            challenge.setEndDate(BASE.plusHours(random.nextInt(24 * 60)).plusHours(random.nextInt(24 * 30)));
+            challenges.add(challenge);
+        }
+        ecoChallengeRepository.saveAll(challenges);
+        catalog.invalidate();
+
+        List<EcoChallenge> active = challenges.stream().filter(EcoChallenge::getIsActive).toList();
+        assertThat(codes(catalog.getAllActive())).containsExactlyInAnyOrderElementsOf(codes(active));
+        assertThatThrownBy(() -> catalog.getByCategory("Energy").clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> catalog.getActiveAt(BASE.plusDays(30)).clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        for (int i = 0; i < QUERIES; i++) {
+            LocalDateTime time = BASE.plusHours(random.nextInt(24 * 100) - 24 * 5);
+            List<String> expectedActive = codes(active.stream()
+                    .filter(challenge -> challenge.getStartDate() != null
+                            && !challenge.getStartDate().isAfter(time) && !challenge.getEndDate().isBefore(time))
+                    .toList());
+            assertThat(codes(catalog.getActiveAt(time))).as("active at %s", time)
+                    .containsExactlyInAnyOrderElementsOf(expectedActive);
+
+            LocalDateTime to = time.plusHours(random.nextInt(24 * 10));
+            List<String> expectedEnding = codes(active.stream()
+                    .filter(challenge -> challenge.getStartDate() != null
+                            && !challenge.getEndDate().isBefore(time) && !challenge.getEndDate().isAfter(to))
+                    .toList());
+            assertThat(codes(catalog.getEndingBetween(time, to))).as("ending between %s and %s", time, to)
+                    .containsExactlyInAnyOrderElementsOf(expectedEnding);
+        }
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotKept() throws Exception {
+        AtomicReference<List<EcoChallenge>> stored = new AtomicReference<>(List.of(challenge("old")));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        EcoChallengeRepository repository = mock(EcoChallengeRepository.class);
+        doAnswer(invocation -> {
+            List<EcoChallenge> loaded = stored.get();
+            loading.countDown();
+            resume.await(10, TimeUnit.SECONDS);
+            return loaded;
+        }).when(repository).findByIsActiveTrue();
+        ChallengeCatalog racingCatalog = new ChallengeCatalog();
+        ReflectionTestUtils.setField(racingCatalog, "ecoChallengeRepository", repository);
+        ReflectionTestUtils.setField(racingCatalog, "refreshIntervalMs", 60_000L);
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<EcoChallenge>> staleRead = reader.submit(racingCatalog::getAllActive);
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            // A challenge is added and invalidated while the read above is still loading
+            stored.set(List.of(challenge("old"), challenge("new")));
+            racingCatalog.invalidate();
+            resume.countDown();
+            assertThat(codes(staleRead.get(10, TimeUnit.SECONDS))).containsExactly(PREFIX + "old");
+        } finally {
+            reader.shutdownNow();
+        }
+
+        doAnswer(invocation -> stored.get()).when(repository).findByIsActiveTrue();
+        assertThat(codes(racingCatalog.getAllActive())).containsExactly(PREFIX + "old", PREFIX + "new");
+    }
+
+    private static EcoChallenge challenge(String code) {
+        return new EcoChallenge(PREFIX + code, "Challenge " + code, null, "Energy", 10, "actions", 7, "Badge", 50);
+    }
+
+    private static List<String> codes(List<EcoChallenge> challenges) {
+        return challenges.stream().map(EcoChallenge::getChallengeId).toList();
+    }
+}
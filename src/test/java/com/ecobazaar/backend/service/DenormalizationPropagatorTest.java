@@ -0,0 +1,201 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.Cart;
+import com.ecobazaar.backend.entity.CartItem;
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.repository.CartItemRepository;
+import com.ecobazaar.backend.repository.CartRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Denormalization propagator test
+ *
+ * Product edits committed from several threads while the worker flushes
+ * (every 20 ms, in chunks of 7 rows) must leave every cart item copying the
+ * product's final fields and every cart total matching its items; so must
+ * a burst of distinct edits that overflows the queue into a full resync.
+ */
+@DataJpaTest(properties = {
+        "denormalization.flush-interval-ms=20",
+        "denormalization.chunk-size=7",
+        "denormalization.max-pending=8"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(DenormalizationPropagator.class)
+class DenormalizationPropagatorTest {
+
+    private static final String PREFIX = "denorm-";
+    private static final int USERS = 40;
+    private static final int THREADS = 3;
+    private static final int EDITS_PER_THREAD = 30;
+
+    @Autowired
+    private DenormalizationPropagator propagator;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (int user = 0; user < USERS; user++) {
+            cartItemRepository.deleteAll(cartItemRepository.findByUserId(PREFIX + user));
+            cartRepository.findByUserId(PREFIX + user).ifPresent(cartRepository::delete);
+        }
+        productRepository.deleteAllById(productIds);
+    }
+
+    @Test
+    void concurrentEditsEndWithCopiesOfTheLastOne() throws Exception {
+        Long productId = createProductInCarts("Jute bag");
+        TransactionTemplate edit = new TransactionTemplate(transactionManager);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < EDITS_PER_THREAD; i++) {
+                        String name = "Jute bag " + thread + "-" + i;
+                        double price = 5 + thread + i / 10.0;
+                        while (true) {
+                            try {
+                                edit.executeWithoutResult(status -> {
+                                    Product product = productRepository.findById(productId).orElseThrow();
+                                    product.setName(name);
+                                    product.setPrice(price);
+                                    productRepository.save(product);
+                                    propagator.productChanged(productId);
+                                });
+                                break;
+                            } catch (OptimisticLockingFailureException e) {
+                                // Another writer got there first; edit on top of theirs
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        awaitCopiesMatch(List.of(productId));
+    }
+
+    @Test
+    void queueOverflowFallsBackToAFullResync() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(createProductInCarts("Beeswax wrap " + i));
+        }
+        for (Long productId : ids) {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setName(product.getName() + " (large)");
+            product.setPrice(product.getPrice() + 1);
+            productRepository.save(product);
+            propagator.productChanged(productId);
+        }
+
+        awaitCopiesMatch(ids);
+    }
+
+    // A product whose copy sits in every test user's cart, two of each
+    private Long createProductInCarts(String name) {
+        Product product = productRepository.save(new Product(name, null, 4.0, 100, "Home"));
+        productIds.add(product.getId());
+        List<CartItem> items = new ArrayList<>();
+        for (int user = 0; user < USERS; user++) {
+            String userId = PREFIX + user;
+            if (cartRepository.findByUserId(userId).isEmpty()) {
+                cartRepository.save(new Cart(PREFIX + "cart-" + user, userId));
+            }
+            items.add(new CartItem(userId, null, product.getId().toString(), name, 4.0, null, "Home", 2, 0.0));
+        }
+        cartItemRepository.saveAll(items);
+        return product.getId();
+    }
+
+    private void awaitCopiesMatch(List<Long> ids) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!copiesMatch(ids) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        for (Long productId : ids) {
+            Product product = productRepository.findById(productId).orElseThrow();
+            for (int user = 0; user < USERS; user++) {
+                for (CartItem item : cartItemRepository.findByUserId(PREFIX + user)) {
+                    if (item.getProductId().equals(productId.toString())) {
+                        assertThat(item.getProductName()).isEqualTo(product.getName());
+                        assertThat(item.getProductPrice()).isEqualTo(product.getPrice());
+                        assertThat(item.getTotalPrice()).isEqualTo(product.getPrice() * item.getQuantity());
+                    }
+                }
+            }
+        }
+        for (int user = 0; user < USERS; user++) {
+            double itemTotal = cartItemRepository.findByUserId(PREFIX + user).stream()
+                    .mapToDouble(CartItem::getTotalPrice).sum();
+            assertThat(cartRepository.findByUserId(PREFIX + user).orElseThrow().getTotalAmount())
+                    .isCloseTo(itemTotal, within(1e-6));
+        }
+    }
+
+    private boolean copiesMatch(List<Long> ids) {
+        for (Long productId : ids) {
+            Product product = productRepository.findById(productId).orElseThrow();
+            for (int user = 0; user < USERS; user++) {
+                for (CartItem item : cartItemRepository.findByUserId(PREFIX + user)) {
+                    if (item.getProductId().equals(productId.toString())
+                            && (!product.getName().equals(item.getProductName())
+                            || !product.getPrice().equals(item.getProductPrice()))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,175 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.EcoDiscount;
+import com.ecobazaar.backend.repository.EcoDiscountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Discount rule engine test
+ *
+ * The bucketed, threshold-sorted rule set must match exactly the discounts a
+ * plain check of every active discount would, and usage recorded from many
+ * threads at once must exhaust a limited discount at exactly its limit.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(DiscountRuleEngine.class)
+class DiscountRuleEngineTest {
+
+    private static final String PREFIX = "RULE_";
+    private static final String[] CATEGORIES = {null, "Kitchen", "Garden", "Fashion"};
+    private static final String[] STORES = {null, "store-1", "store-2"};
+    private static final int DISCOUNTS = 300;
+    private static final int QUERIES = 500;
+
+    @Autowired
+    private DiscountRuleEngine ruleEngine;
+
+    @Autowired
+    private EcoDiscountRepository ecoDiscountRepository;
+
+    @AfterEach
+    void cleanUp() {
+        ecoDiscountRepository.deleteAll(ecoDiscountRepository.findAll().stream()
+                .filter(discount -> discount.getDiscountCode().startsWith(PREFIX)).toList());
+        ruleEngine.invalidate();
+    }
+
+    @Test
+    void matchesTheSameDiscountsAsCheckingEachOne() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<EcoDiscount> discounts = new ArrayList<>();
+        for (int i = 0; i < DISCOUNTS; i++) {
+            EcoDiscount discount = new EcoDiscount(PREFIX + i, "Rule " + i, null, "FIXED_AMOUNT", 5.0);
+            discount.setIsActive(random.nextInt(10) > 0);
+            discount.setApplicableCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            discount.setApplicableStoreId(STORES[random.nextInt(STORES.length)]);
+            discount.setMinimumOrderAmount(random.nextBoolean() ? null : (double) random.nextInt(100));
+            discount.setRequiresEcoPoints(random.nextBoolean());
+            discount.setRequiredEcoPoints(random.nextInt(500));
+            discount.setUsageLimit(random.nextBoolean() ? null : random.nextInt(3));
+            discount.setCurrentUsageCount(random.nextInt(2));
+            switch (random.nextInt(4)) {
+                case 0 -> discount.setValidFrom(now.plusDays(1));
+                case 1 -> discount.setValidUntil(now.minusDays(1));
+                default -> { }
+            }
+            discounts.add(discount);
+        }
+        ecoDiscountRepository.saveAll(discounts);
+        ruleEngine.invalidate();
+
+        for (int i = 0; i < QUERIES; i++) {
+            Integer ecoPoints = random.nextInt(5) == 0 ? null : random.nextInt(600);
+            double amount = random.nextInt(150);
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String storeId = STORES[random.nextInt(STORES.length)];
+
+            List<String> expected = discounts.stream()
+                    .filter(discount -> applies(discount, ecoPoints, amount, category, storeId))
+                    .map(EcoDiscount::getDiscountCode).toList();
+            assertThat(ruleEngine.findApplicable("no-usage-user", ecoPoints, amount, category, storeId))
+                    .extracting(EcoDiscount::getDiscountCode)
+                    .as("points=%s amount=%s category=%s store=%s", ecoPoints, amount, category, storeId)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void concurrentUsageExhaustsDiscountAtItsLimit() throws Exception {
+        int limit = 64;
+        EcoDiscount discount = new EcoDiscount(PREFIX + "LIMITED", "Limited", null, "PERCENTAGE", 10.0);
+        discount.setUsageLimit(limit);
+        discount.setCurrentUsageCount(0);
+        discount.setUserUsageLimit(null);
+        ecoDiscountRepository.save(discount);
+        ruleEngine.invalidate();
+        assertThat(ruleEngine.findApplicable(null, null, 50.0, null, null)).hasSize(1);
+
+        // All but the last use, from many threads at once, while others evaluate
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < (limit - 1) / threads + 1; i++) {
+                        ruleEngine.findApplicable(null, null, 50.0, null, null);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < limit - 1; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ruleEngine.recordUsage(PREFIX + "LIMITED");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(ruleEngine.findApplicable(null, null, 50.0, null, null)).hasSize(1);
+        ruleEngine.recordUsage(PREFIX + "LIMITED");
+        assertThat(ruleEngine.findApplicable(null, null, 50.0, null, null)).isEmpty();
+    }
+
+    // Every condition checked directly, the way the rule set must behave
+    private static boolean applies(EcoDiscount discount, Integer ecoPoints, double amount,
+                                   String category, String storeId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!discount.getIsActive()) {
+            return false;
+        }
+        if (discount.getApplicableCategory() != null && !discount.getApplicableCategory().equals(category)) {
+            return false;
+        }
+        if (discount.getApplicableStoreId() != null && !discount.getApplicableStoreId().equals(storeId)) {
+            return false;
+        }
+        if (discount.getValidFrom() != null && discount.getValidFrom().isAfter(now)) {
+            return false;
+        }
+        if (discount.getValidUntil() != null && discount.getValidUntil().isBefore(now)) {
+            return false;
+        }
+        if (discount.getUsageLimit() != null && discount.getCurrentUsageCount() >= discount.getUsageLimit()) {
+            return false;
+        }
+        if (discount.getRequiresEcoPoints()
+                && (ecoPoints == null || discount.getRequiredEcoPoints() > ecoPoints)) {
+            return false;
+        }
+        return discount.getMinimumOrderAmount() == null || amount >= discount.getMinimumOrderAmount();
+    }
+}
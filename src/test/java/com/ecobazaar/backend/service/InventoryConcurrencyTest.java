@@ -0,0 +1,247 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.InventoryReservation;
+import com.ecobazaar.backend.entity.Product;
+import com.ecobazaar.backend.repository.InventoryReservationRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Inventory concurrency test
+ *
+ * Parallel reservations, releases, expiries and the pool detach done by a
+ * product update that rolls back, with a low hot threshold so most of them
+ * go through InventoryStockPool while the timer drains idle pools. Stock
+ * must never be oversold and, once everything settles, every unit must be
+ * back in Product.quantity.
+ *
+ * Each release or rolled-back update gives units back on a second connection
+ * while its own is still open, so the thread count stays under half the
+ * test profile's pool of 10.
+ */
+@DataJpaTest(properties = {
+        "inventory.hot.threshold-per-sec=5",
+        "inventory.hot.chunk-size=20",
+        "inventory.hot.idle-ms=100"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({InventoryService.class, InventoryStockPool.class, IdGenerator.class})
+class InventoryConcurrencyTest {
+
+    private static final int STOCK = 300;
+    private static final int THREADS = 4;
+    private static final int OPERATIONS_PER_THREAD = 150;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryStockPool stockPool;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryReservationRepository reservationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long productId;
+
+    @BeforeEach
+    void createProduct() {
+        productId = productRepository.save(new Product("Bamboo toothbrush", null, 3.5, STOCK, "Personal care")).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(inventoryService), "ttlSeconds", 600L);
+        stockPool.drainAll();
+        reservationRepository.deleteAll(reservations());
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void parallelReservesNeverOversell() throws Exception {
+        List<Integer> reserved = runInParallel(() -> {
+            int units = 0;
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+                try {
+                    inventoryService.reserve(productId, "buyer", quantity);
+                    units += quantity;
+                } catch (IllegalStateException e) {
+                    // Sold out (demand is well above STOCK)
+                }
+            }
+            return units;
+        });
+
+        int reservedUnits = reserved.stream().mapToInt(Integer::intValue).sum();
+        assertThat(reservedUnits).isLessThanOrEqualTo(STOCK);
+        assertThat(heldUnits()).isEqualTo((long) reservedUnits);
+        assertThat(databaseUnits()).isGreaterThanOrEqualTo(0);
+        assertThat(awaitUnitsOutsideHolds()).isEqualTo(STOCK - reservedUnits);
+    }
+
+    @Test
+    void reservesReleasesAndDetachesLoseNoUnits() throws Exception {
+        runInParallel(() -> {
+            List<String> held = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int action = ThreadLocalRandom.current().nextInt(10);
+                if (action < 5 || held.isEmpty()) {
+                    try {
+                        held.add(inventoryService.reserve(productId, "buyer", ThreadLocalRandom.current().nextInt(1, 4))
+                                .getReservationId());
+                    } catch (IllegalStateException e) {
+                        // Sold out for now; releases will bring stock back
+                    }
+                } else if (action < 9) {
+                    assertThat(inventoryService.release(held.remove(held.size() - 1))).isTrue();
+                } else {
+                    detachInRolledBackUpdate();
+                }
+            }
+            for (String reservationId : held) {
+                assertThat(inventoryService.release(reservationId)).isTrue();
+            }
+            return 0;
+        });
+
+        assertThat(heldUnits()).isZero();
+        assertThat(awaitUnitsOutsideHolds()).isEqualTo(STOCK);
+        stockPool.drainAll();
+        assertThat(databaseUnits()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void expiriesRacingReleasesEndEachHoldOnce() throws Exception {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(inventoryService), "ttlSeconds", 1L);
+
+        List<Integer> released = runInParallel(() -> {
+            List<String> held = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS_PER_THREAD / 3; i++) {
+                try {
+                    held.add(inventoryService.reserve(productId, "buyer", 1).getReservationId());
+                } catch (IllegalStateException e) {
+                    // Sold out until expiries return stock
+                }
+            }
+            // Release half of them around the time the timer expires them
+            Thread.sleep(900);
+            int releasedCount = 0;
+            for (int i = 0; i < held.size(); i += 2) {
+                if (inventoryService.release(held.get(i))) {
+                    releasedCount++;
+                }
+            }
+            return releasedCount;
+        });
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (heldUnits() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(heldUnits()).isZero();
+        assertThat(awaitUnitsOutsideHolds()).isEqualTo(STOCK);
+        List<InventoryReservation> reservations = reservations();
+        assertThat(reservations).extracting(InventoryReservation::getStatus)
+                .containsOnly(InventoryReservation.RELEASED, InventoryReservation.EXPIRED);
+        assertThat(reservations.stream().filter(r -> InventoryReservation.RELEASED.equals(r.getStatus())).count())
+                .isEqualTo(released.stream().mapToLong(Integer::longValue).sum());
+    }
+
+    // What ProductService.updateProduct does with the pool when its save fails
+    private void detachInRolledBackUpdate() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int pooled = stockPool.detach(productId);
+            if (pooled > 0) {
+                TransactionCallbacks.afterCompletion(txStatus -> {
+                    if (txStatus != TransactionSynchronization.STATUS_COMMITTED) {
+                        stockPool.giveBack(productId, pooled);
+                    }
+                });
+            }
+            status.setRollbackOnly();
+        });
+    }
+
+    private <T> List<T> runInParallel(Callable<T> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<T> results = new ArrayList<>();
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Units in the database or the pool once holds have stopped ending. The
+     * timer's expiries and idle-pool drains briefly hold units in neither, so
+     * wait (up to ten seconds) for the total to reach STOCK minus what is held.
+     */
+    private int awaitUnitsOutsideHolds() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        int units = databaseUnits() + stockPool.pooledQuantity(productId);
+        while (units + heldUnits() < STOCK && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            units = databaseUnits() + stockPool.pooledQuantity(productId);
+        }
+        return units;
+    }
+
+    private int databaseUnits() {
+        return productRepository.findById(productId).orElseThrow().getQuantity();
+    }
+
+    private long heldUnits() {
+        return reservationRepository.sumHeldQuantity(productId);
+    }
+
+    private List<InventoryReservation> reservations() {
+        return reservationRepository.findAll().stream().filter(r -> productId.equals(r.getProductId())).toList();
+    }
+}
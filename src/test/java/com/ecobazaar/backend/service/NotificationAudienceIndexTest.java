@@ -0,0 +1,118 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.UserSettings;
+import com.ecobazaar.backend.repository.UserSettingsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Notification audience index test
+ *
+ * Settings writes applied while the index keeps rebuilding in the background
+ * (every 20 ms here) must not be lost: once the writers stop, every flag
+ * query must count and page exactly the rows a scan of the table finds.
+ * Each writer owns its own rows, as each user's settings have one writer.
+ */
+@DataJpaTest(properties = "notifications.audience.rebuild-interval-ms=20")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(NotificationAudienceIndex.class)
+class NotificationAudienceIndexTest {
+
+    private static final String PREFIX = "audience-";
+    private static final int USERS = 2000;
+    private static final int THREADS = 4;
+    private static final int WRITES_PER_THREAD = 300;
+    private static final int ALL_FLAGS = (1 << 10) - 1;
+
+    @Autowired
+    private NotificationAudienceIndex index;
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    @AfterEach
+    void cleanUp() {
+        userSettingsRepository.deleteAll(settings());
+    }
+
+    @Test
+    void writesDuringRebuildsAreNotLost() throws Exception {
+        Random random = new Random(11);
+        List<UserSettings> seeded = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            UserSettings settings = new UserSettings(PREFIX + i);
+            settings.setFlags(random.nextInt(ALL_FLAGS + 1));
+            seeded.add(settings);
+        }
+        List<UserSettings> rows = userSettingsRepository.saveAll(seeded);
+        rows.forEach(index::update);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                        // Rows thread, thread + THREADS, ... belong to this writer
+                        int row = thread + THREADS * ThreadLocalRandom.current().nextInt(USERS / THREADS);
+                        UserSettings settings = userSettingsRepository.findById(rows.get(row).getId()).orElseThrow();
+                        settings.setFlags(ThreadLocalRandom.current().nextInt(ALL_FLAGS + 1));
+                        index.update(userSettingsRepository.save(settings));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<UserSettings> stored = settings();
+        for (int query = 0; query < 200; query++) {
+            int allOf = random.nextInt(ALL_FLAGS + 1) & random.nextInt(ALL_FLAGS + 1);
+            int noneOf = random.nextInt(ALL_FLAGS + 1) & random.nextInt(ALL_FLAGS + 1) & ~allOf;
+            List<String> expected = stored.stream()
+                    .filter(settings -> (settings.getFlags() & allOf) == allOf && (settings.getFlags() & noneOf) == 0)
+                    .sorted(Comparator.comparing(UserSettings::getId))
+                    .map(UserSettings::getUserId).toList();
+
+            assertThat(index.count(allOf, noneOf)).as("allOf=%s noneOf=%s", allOf, noneOf)
+                    .isEqualTo(expected.size());
+            assertThat(index.userIds(allOf, noneOf, 0, 50)).as("allOf=%s noneOf=%s", allOf, noneOf)
+                    .containsExactlyElementsOf(expected.subList(0, Math.min(50, expected.size())));
+        }
+    }
+
+    private List<UserSettings> settings() {
+        return userSettingsRepository.findAll().stream()
+                .filter(settings -> settings.getUserId().startsWith(PREFIX)).toList();
+    }
+}
@@ -0,0 +1,167 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.model.ProductSummary;
+import com.ecobazaar.backend.repository.CartItemRepository;
+import com.ecobazaar.backend.repository.ProductRepository;
+import com.ecobazaar.backend.repository.UserOrderRepository;
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Product recommender test
+ *
+ * The parallel co-occurrence build must give every product pair the cosine
+ * score a direct computation over the users' strongest interactions gives,
+ * and a product removed while a build runs must stay removed once the new
+ * model is published. The repositories are mocks standing in for the
+ * interaction tables, so a build can be paused mid-load.
+ */
+class ProductRecommenderTest {
+
+    private static final int PRODUCTS = 60;
+    private static final int USERS = 300;
+    private static final float[] WEIGHTS = {1f, 2f, 3f}; // wishlist, cart, order
+
+    private final Random random = new Random(3);
+    private final List<List<Object[]>> interactions = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    private ProductRepository productRepository;
+    private ProductRecommender recommender;
+
+    @BeforeEach
+    void createRecommender() {
+        long rowId = 0;
+        for (int user = 0; user < USERS; user++) {
+            int basketSize = random.nextInt(8);
+            for (int i = 0; i < basketSize; i++) {
+                interactions.get(random.nextInt(3))
+                        .add(new Object[]{++rowId, "user-" + user, Long.toString(random.nextInt(PRODUCTS) + 1)});
+            }
+        }
+        List<ProductSummary> products = new ArrayList<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.add(new ProductSummary(id, "Product " + id, 10.0, 5, "Home", null, null, null, null, null,
+                    true, null, null));
+        }
+
+        WishlistItemRepository wishlistItemRepository = mock(WishlistItemRepository.class);
+        CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+        UserOrderRepository userOrderRepository = mock(UserOrderRepository.class);
+        productRepository = mock(ProductRepository.class);
+        when(wishlistItemRepository.findUserProductPairsAfter(anyLong(), any())).thenReturn(interactions.get(0));
+        when(cartItemRepository.findUserProductPairsAfter(anyLong(), any())).thenReturn(interactions.get(1));
+        when(userOrderRepository.findUserProductPairsAfter(anyLong(), any())).thenReturn(interactions.get(2));
+        when(productRepository.findActiveSummariesAfter(anyLong(), any())).thenReturn(products);
+
+        recommender = new ProductRecommender();
+        ReflectionTestUtils.setField(recommender, "wishlistItemRepository", wishlistItemRepository);
+        ReflectionTestUtils.setField(recommender, "cartItemRepository", cartItemRepository);
+        ReflectionTestUtils.setField(recommender, "userOrderRepository", userOrderRepository);
+        ReflectionTestUtils.setField(recommender, "productRepository", productRepository);
+        ReflectionTestUtils.setField(recommender, "neighborsPerProduct", PRODUCTS); // keep every neighbour
+        ReflectionTestUtils.setField(recommender, "maxBasketSize", 200);
+        ReflectionTestUtils.setField(recommender, "buildParallelism", 4);
+    }
+
+    @Test
+    void scoresMatchDirectCosineSimilarity() {
+        ReflectionTestUtils.invokeMethod(recommender, "rebuild");
+
+        // Each user's strongest interaction with each product
+        Map<String, Map<String, Float>> baskets = new HashMap<>();
+        for (int source = 0; source < WEIGHTS.length; source++) {
+            for (Object[] row : interactions.get(source)) {
+                baskets.computeIfAbsent((String) row[1], user -> new HashMap<>())
+                        .merge((String) row[2], WEIGHTS[source], Math::max);
+            }
+        }
+        Map<String, Double> norms = new HashMap<>();
+        for (Map<String, Float> basket : baskets.values()) {
+            if (basket.size() >= 2) {
+                basket.forEach((product, weight) -> norms.merge(product, (double) weight * weight, Double::sum));
+            }
+        }
+
+        for (String seed : norms.keySet()) {
+            Map<String, Double> expected = new HashMap<>();
+            for (Map<String, Float> basket : baskets.values()) {
+                Float seedWeight = basket.get(seed);
+                if (basket.size() < 2 || seedWeight == null) {
+                    continue;
+                }
+                basket.forEach((product, weight) -> {
+                    if (!product.equals(seed)) {
+                        expected.merge(product, (double) seedWeight * weight, Double::sum);
+                    }
+                });
+            }
+            expected.replaceAll((product, dot) -> dot / Math.sqrt(norms.get(seed) * norms.get(product)));
+
+            Map<String, Double> actual = new HashMap<>();
+            for (ProductRecommender.Recommendation recommendation : recommender.recommend(List.of(seed), PRODUCTS)) {
+                actual.put(recommendation.product().id().toString(), recommendation.score());
+            }
+            assertThat(actual.keySet()).as("neighbours of %s", seed).isEqualTo(expected.keySet());
+            expected.forEach((product, score) ->
+                    assertThat(actual.get(product)).as("%s -> %s", seed, product).isCloseTo(score, within(1e-4)));
+        }
+    }
+
+    @Test
+    void productRemovedDuringBuildStaysRemoved() throws Exception {
+        CountDownLatch loadingProducts = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        List<ProductSummary> products = productRepository.findActiveSummariesAfter(0L, null);
+        doAnswer(invocation -> {
+            loadingProducts.countDown();
+            resume.await(10, TimeUnit.SECONDS);
+            return products;
+        }).when(productRepository).findActiveSummariesAfter(anyLong(), any());
+
+        String removed = mostConnectedProduct();
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> build = worker.submit(() -> ReflectionTestUtils.invokeMethod(recommender, "rebuild"));
+            assertThat(loadingProducts.await(10, TimeUnit.SECONDS)).isTrue();
+            // Deleted after the build read it as active, before the build is published
+            recommender.productRemoved(Long.valueOf(removed));
+            resume.countDown();
+            build.get(30, TimeUnit.SECONDS);
+        } finally {
+            worker.shutdownNow();
+        }
+
+        for (long seed = 1; seed <= PRODUCTS; seed++) {
+            assertThat(recommender.recommend(List.of(Long.toString(seed)), PRODUCTS))
+                    .extracting(recommendation -> recommendation.product().id().toString())
+                    .doesNotContain(removed);
+        }
+    }
+
+    // The product appearing in the most interactions, so it neighbours many others
+    private String mostConnectedProduct() {
+        Map<String, Integer> counts = new HashMap<>();
+        interactions.forEach(rows -> rows.forEach(row -> counts.merge((String) row[2], 1, Integer::sum)));
+        return counts.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecobazaar.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservation timer wheel test
+ *
+ * Keys scheduled from many threads while the wheel is being advanced must
+ * each fire exactly once and never before their deadline, including
+ * deadlines several laps ahead and ones the wheel has already passed.
+ */
+class ReservationTimerWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int SLOTS = 16;
+    private static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 2000;
+
+    @Test
+    void concurrentSchedulesFireExactlyOnceAndOnTime() throws Exception {
+        ReservationTimerWheel wheel = new ReservationTimerWheel(TICK_MS, SLOTS, 0);
+        Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        Map<String, Long> firedAt = new HashMap<>();
+        List<String> duplicates = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        long now = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                        String key = thread + ":" + i;
+                        // Up to four laps ahead; deadlines the wheel has already passed fire on its next tick
+                        long deadline = ThreadLocalRandom.current().nextLong(TICK_MS * SLOTS * 4);
+                        deadlines.put(key, deadline);
+                        wheel.schedule(key, deadline);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // Single advancing thread, as in InventoryService, racing the schedulers
+            while (!futures.stream().allMatch(Future::isDone)) {
+                now += TICK_MS;
+                fire(wheel.advance(now), now, firedAt, duplicates);
+            }
+            long end = Math.max(now, TICK_MS * SLOTS * 4) + TICK_MS * 2;
+            while (now < end) {
+                now += TICK_MS;
+                fire(wheel.advance(now), now, firedAt, duplicates);
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(duplicates).isEmpty();
+        assertThat(firedAt).hasSize(THREADS * KEYS_PER_THREAD);
+        for (Map.Entry<String, Long> fired : firedAt.entrySet()) {
+            long deadlineTick = deadlines.get(fired.getKey()) / TICK_MS;
+            assertThat(fired.getValue() / TICK_MS).isGreaterThanOrEqualTo(deadlineTick);
+        }
+    }
+
+    private static void fire(List<String> keys, long now, Map<String, Long> firedAt, List<String> duplicates) {
+        for (String key : keys) {
+            if (firedAt.put(key, now) != null) {
+                duplicates.add(key);
+            }
+        }
+    }
+
+    @Test
+    void keyFiresOnTheTickOfItsDeadline() {
+        ReservationTimerWheel wheel = new ReservationTimerWheel(TICK_MS, SLOTS, 0);
+        long deadline = TICK_MS * SLOTS * 3 + 5; // three laps ahead
+
+        wheel.schedule("later", deadline);
+        for (long now = TICK_MS; now < deadline - TICK_MS; now += TICK_MS) {
+            assertThat(wheel.advance(now)).isEmpty();
+        }
+        assertThat(wheel.advance(deadline)).containsExactly("later");
+        assertThat(wheel.advance(deadline + TICK_MS * SLOTS)).isEmpty();
+    }
+
+    @Test
+    void longPauseFiresEverythingDueInOneAdvance() {
+        ReservationTimerWheel wheel = new ReservationTimerWheel(TICK_MS, SLOTS, 0);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < SLOTS * 3; i++) {
+            String key = "k" + i;
+            keys.add(key);
+            wheel.schedule(key, i * TICK_MS);
+        }
+
+        assertThat(wheel.advance(TICK_MS * SLOTS * 10)).containsExactlyInAnyOrderElementsOf(keys);
+    }
+}
@@ -0,0 +1,199 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.entity.Cart;
+import com.ecobazaar.backend.entity.UserEcoProfile;
+import com.ecobazaar.backend.entity.UserSettings;
+import com.ecobazaar.backend.entity.Wishlist;
+import com.ecobazaar.backend.repository.CartRepository;
+import com.ecobazaar.backend.repository.UserEcoProfileRepository;
+import com.ecobazaar.backend.repository.UserSettingsRepository;
+import com.ecobazaar.backend.repository.WishlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UpsertSupport concurrency test
+ *
+ * Many first requests for the same user's cart, wishlist or eco profile,
+ * each inside its own transaction and together more than the connection
+ * pool holds, must all get the same single row without waiting on a
+ * connection (the test profile's pool times out after five seconds). First
+ * requests for settings, made outside a transaction, must likewise share
+ * one row, including a request that loses the insert race. A profile
+ * created by the native insert must carry the entity's own defaults.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UpsertSupport.class, IdGenerator.class, LeaderboardService.class})
+class UpsertSupportConcurrencyTest {
+
+    private static final String USER_ID = "upsert-user";
+    private static final int REQUESTS = 200;
+    private static final int THREADS = 32; // more than the pool's 10 connections
+
+    @Autowired
+    private UpsertSupport upsertSupport;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private WishlistRepository wishlistRepository;
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    @Autowired
+    private UserEcoProfileRepository profileRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        cartRepository.findByUserId(USER_ID).ifPresent(cartRepository::delete);
+        wishlistRepository.findByUserId(USER_ID).ifPresent(wishlistRepository::delete);
+        userSettingsRepository.findByUserId(USER_ID).ifPresent(userSettingsRepository::delete);
+        profileRepository.findByUserId(USER_ID).ifPresent(profileRepository::delete);
+    }
+
+    @Test
+    void concurrentFirstRequestsCreateOneCart() throws Exception {
+        TransactionTemplate request = new TransactionTemplate(transactionManager);
+        Set<String> cartIds = runConcurrently(() -> request.execute(status -> upsertSupport.getOrInsert(
+                "cart:" + USER_ID,
+                () -> cartRepository.findByUserId(USER_ID),
+                () -> cartRepository.findByUserIdForShare(USER_ID),
+                () -> cartRepository.insertIfAbsent(idGenerator.nextId("cart_"), USER_ID))
+                .getCartId()));
+
+        assertThat(cartIds).hasSize(1);
+        assertThat(cartRepository.findAll().stream().filter(cart -> USER_ID.equals(cart.getUserId()))
+                .map(Cart::getCartId)).containsExactlyElementsOf(cartIds);
+    }
+
+    @Test
+    void concurrentFirstRequestsCreateOneWishlist() throws Exception {
+        TransactionTemplate request = new TransactionTemplate(transactionManager);
+        Set<String> wishlistIds = runConcurrently(() -> request.execute(status -> upsertSupport.getOrInsert(
+                "wishlist:" + USER_ID,
+                () -> wishlistRepository.findByUserId(USER_ID),
+                () -> wishlistRepository.findByUserIdForShare(USER_ID),
+                () -> wishlistRepository.insertIfAbsent(idGenerator.nextId("WL_"), USER_ID))
+                .getWishlistId()));
+
+        assertThat(wishlistIds).hasSize(1);
+        assertThat(wishlistRepository.findAll().stream().filter(wishlist -> USER_ID.equals(wishlist.getUserId()))
+                .map(Wishlist::getWishlistId)).containsExactlyElementsOf(wishlistIds);
+    }
+
+    @Test
+    void concurrentFirstRequestsCreateOneProfile() throws Exception {
+        Set<Long> profileIds = runConcurrently(() ->
+                leaderboardService.getOrCreateProfile(USER_ID, "User " + USER_ID, null).getId());
+
+        assertThat(profileIds).hasSize(1);
+        assertThat(profileRepository.findAll().stream().filter(profile -> USER_ID.equals(profile.getUserId()))
+                .map(UserEcoProfile::getId)).containsExactlyElementsOf(profileIds);
+    }
+
+    @Test
+    void insertedProfileHasTheEntityDefaults() {
+        UserEcoProfile inserted = leaderboardService.getOrCreateProfile(USER_ID, "Eco User", "eco@example.com");
+
+        assertThat(inserted)
+                .usingRecursiveComparison()
+                .ignoringFields("id", "version", "lastActivityDate", "createdAt", "updatedAt")
+                .isEqualTo(new UserEcoProfile(USER_ID, "Eco User", "eco@example.com"));
+        assertThat(inserted.getLastActivityDate()).isNotNull();
+        assertThat(inserted.getCreatedAt()).isNotNull();
+        assertThat(inserted.getUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    void concurrentFirstRequestsOutsideATransactionCreateOneSettingsRow() throws Exception {
+        Set<Long> settingsIds = runConcurrently(() -> getOrCreateSettings(
+                () -> userSettingsRepository.findByUserId(USER_ID)).getId());
+
+        assertThat(settingsIds).hasSize(1);
+        assertThat(userSettingsRepository.findAll().stream().filter(settings -> USER_ID.equals(settings.getUserId()))
+                .map(UserSettings::getId)).containsExactlyElementsOf(settingsIds);
+    }
+
+    @Test
+    void settingsRequestThatLosesTheInsertRaceGetsTheExistingRow() {
+        UserSettings existing = userSettingsRepository.save(new UserSettings(USER_ID));
+
+        // The first lookup misses, as it would have just before the other request committed
+        AtomicBoolean looked = new AtomicBoolean();
+        UserSettings settings = getOrCreateSettings(() -> looked.getAndSet(true)
+                ? userSettingsRepository.findByUserId(USER_ID)
+                : Optional.empty());
+
+        assertThat(settings.getId()).isEqualTo(existing.getId());
+        assertThat(userSettingsRepository.findAll().stream()
+                .filter(row -> USER_ID.equals(row.getUserId()))).hasSize(1);
+    }
+
+    // As SettingsService creates a user's settings row
+    private UserSettings getOrCreateSettings(Supplier<Optional<UserSettings>> find) {
+        return upsertSupport.getOrCreate("settings:" + USER_ID, find,
+                () -> userSettingsRepository.save(new UserSettings(USER_ID)));
+    }
+
+    // Runs REQUESTS first requests at once and collects the ids they got
+    private <T> Set<T> runConcurrently(Callable<T> firstRequest) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Set<T> ids = new HashSet<>();
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return firstRequest.call();
+                }));
+            }
+            start.countDown();
+            for (Future<T> future : futures) {
+                ids.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return ids;
+    }
+}
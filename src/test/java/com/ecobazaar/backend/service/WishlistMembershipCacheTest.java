@@ -0,0 +1,127 @@
+package com.ecobazaar.backend.service;
+
+import com.ecobazaar.backend.repository.WishlistItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Wishlist membership cache test
+ *
+ * Lookups must agree with the stored product ids, numeric or not, and a
+ * load that overlaps an invalidation must never be cached: once the last
+ * change has been invalidated, every reader sees it. The repository is a
+ * mock standing in for the table, so a load can be paused mid-query.
+ */
+class WishlistMembershipCacheTest {
+
+    private static final String USER_ID = "membership-user";
+
+    private final AtomicReference<List<String>> stored = new AtomicReference<>(List.of());
+    private WishlistItemRepository wishlistItemRepository;
+    private WishlistMembershipCache cache;
+
+    @BeforeEach
+    void createCache() {
+        wishlistItemRepository = mock(WishlistItemRepository.class);
+        when(wishlistItemRepository.findProductIdsByUserId(USER_ID)).thenAnswer(invocation -> stored.get());
+        cache = new WishlistMembershipCache();
+        ReflectionTestUtils.setField(cache, "wishlistItemRepository", wishlistItemRepository);
+        ReflectionTestUtils.setField(cache, "maxUsers", 100);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        cache.init();
+    }
+
+    @Test
+    void lookupsMatchStoredIds() {
+        stored.set(List.of("42", "7", "042", "eco-bag", "+5", "123456789012345678901"));
+
+        assertThat(cache.count(USER_ID)).isEqualTo(6);
+        assertThat(cache.contains(USER_ID, "42")).isTrue();
+        assertThat(cache.contains(USER_ID, "042")).isTrue();
+        assertThat(cache.contains(USER_ID, "eco-bag")).isTrue();
+        assertThat(cache.contains(USER_ID, "123456789012345678901")).isTrue();
+        assertThat(cache.contains(USER_ID, "0042")).isFalse();
+        assertThat(cache.contains(USER_ID, "5")).isFalse();
+        assertThat(cache.contains(USER_ID, null)).isFalse();
+        assertThat(cache.productIds(USER_ID)).containsExactlyInAnyOrderElementsOf(stored.get());
+        assertThat(cache.filterWishlisted(USER_ID, List.of("eco-bag", "8", "7"))).containsExactly("eco-bag", "7");
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        stored.set(List.of("1"));
+        doAnswer(invocation -> {
+            List<String> snapshot = stored.get();
+            loading.countDown();
+            resume.await(10, TimeUnit.SECONDS);
+            return snapshot;
+        }).when(wishlistItemRepository).findProductIdsByUserId(USER_ID);
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> staleRead = reader.submit(() -> cache.contains(USER_ID, "2"));
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            // The wishlist changes and is invalidated while the read above is still loading
+            stored.set(List.of("1", "2"));
+            cache.invalidate(USER_ID);
+            resume.countDown();
+            assertThat(staleRead.get(10, TimeUnit.SECONDS)).isFalse();
+        } finally {
+            reader.shutdownNow();
+        }
+
+        doAnswer(invocation -> stored.get()).when(wishlistItemRepository).findProductIdsByUserId(USER_ID);
+        assertThat(cache.contains(USER_ID, "2")).isTrue();
+    }
+
+    @Test
+    void readersSeeTheLastChangeOnceItIsInvalidated() throws Exception {
+        int readers = 6;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                futures.add(pool.submit(() -> {
+                    while (writing.get()) {
+                        cache.count(USER_ID);
+                    }
+                    return null;
+                }));
+            }
+            List<String> productIds = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                productIds.add(Integer.toString(i));
+                stored.set(List.copyOf(productIds));
+                cache.invalidate(USER_ID);
+            }
+            writing.set(false);
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(cache.count(USER_ID)).isEqualTo(2000);
+        assertThat(cache.contains(USER_ID, "1999")).isTrue();
+    }
+}